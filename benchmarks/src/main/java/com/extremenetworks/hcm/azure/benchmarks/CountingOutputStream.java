@@ -0,0 +1,23 @@
+package com.extremenetworks.hcm.azure.benchmarks;
+
+import java.io.OutputStream;
+
+/** Discards everything written to it, but counts the bytes */
+public class CountingOutputStream extends OutputStream {
+
+	private long count = 0;
+
+	@Override
+	public void write(int b) {
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		count += len;
+	}
+
+	public long getCount() {
+		return count;
+	}
+}
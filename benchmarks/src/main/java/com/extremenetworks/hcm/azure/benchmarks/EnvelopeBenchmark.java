@@ -0,0 +1,147 @@
+package com.extremenetworks.hcm.azure.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.extremenetworks.hcm.azure.mgr.ResourceDataStorage;
+import com.extremenetworks.hcm.azure.mgr.ResourcesWorker;
+import com.extremenetworks.hcm.azure.tools.NetworkInterfaceJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.NetworkJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.NetworkSecurityGroupJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.VirtualMachineJsonSerializer;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.cloud.Timestamp;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.StringValue;
+import com.microsoft.azure.management.compute.VirtualMachine;
+import com.microsoft.azure.management.network.Network;
+import com.microsoft.azure.management.network.NetworkInterface;
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wraps already serialized resources into the envelopes that are sent to the
+ * consumers:
+ *
+ * - rabbitMessage: The RabbitMQ message of one resource type
+ * (ResourcesWorker.createResourcesMessage)
+ *
+ * - allResourcesResponse: The GET /azure/resources/all response with all four
+ * resource types, stored in the "string" format (same envelope as
+ * ResourceRes, resource data copied by ResourceDataStorage.writeResourceData)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class EnvelopeBenchmark {
+
+	private static final String[] RESOURCE_TYPES = { "Network", "VM", "SecurityGroup", "NetworkInterface" };
+
+	@Param({ "1000", "10000", "100000" })
+	public int resourceCount;
+
+	private byte[] vmData;
+	private List<Entity> resourceDataEntities;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final ResourceDataStorage resourceDataStorage = new ResourceDataStorage(null);
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		SimpleModule azureModule = new SimpleModule("AzureModule");
+		azureModule.addSerializer(NetworkInterface.class, new NetworkInterfaceJsonSerializer());
+		azureModule.addSerializer(VirtualMachine.class, new VirtualMachineJsonSerializer());
+		azureModule.addSerializer(Network.class, new NetworkJsonSerializer());
+		azureModule.addSerializer(NetworkSecurityGroup.class, new NetworkSecurityGroupJsonSerializer());
+
+		ObjectMapper jsonMapper = new ObjectMapper();
+		jsonMapper.registerModule(azureModule);
+
+		SyntheticResources syntheticResources = new SyntheticResources(10, 50, 8);
+		resourceDataEntities = new ArrayList<Entity>();
+
+		for (String resourceType : RESOURCE_TYPES) {
+
+			String resourceData = jsonMapper.writeValueAsString(syntheticResources.create(resourceType, resourceCount));
+
+			if (resourceType.equals("VM")) {
+				vmData = resourceData.getBytes(StandardCharsets.UTF_8);
+			}
+
+			Key key = Key.newBuilder("benchmark", ResourceDataStorage.DS_ENTITY_KIND_AZURE_RESOURCES, resourceType)
+					.build();
+			resourceDataEntities.add(Entity.newBuilder(key).set("lastUpdated", Timestamp.now())
+					.set("resourceType", resourceType)
+					.set("resourceData", StringValue.newBuilder(resourceData).setExcludeFromIndexes(true).build())
+					.build());
+		}
+	}
+
+	@Benchmark
+	public byte[] rabbitMessage(OutputCounters counters) throws IOException {
+
+		byte[] message = ResourcesWorker.createResourcesMessage("VM", vmData, vmData.length, null, 0, "2020-01-01 00:00:00");
+
+		counters.outputBytes += message.length;
+		return message;
+	}
+
+	@Benchmark
+	public long allResourcesResponse(OutputCounters counters) throws IOException {
+
+		CountingOutputStream outputStream = new CountingOutputStream();
+
+		try (JsonGenerator jsonGen = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+
+			jsonGen.writeStartObject();
+
+			jsonGen.writeStringField("dataType", "resources");
+			jsonGen.writeStringField("sourceSystemType", "azure");
+			jsonGen.writeStringField("sourceSystemAppId", "00000000-0000-0000-0000-000000000000");
+			jsonGen.writeStringField("sourceSystemTenantId", "00000000-0000-0000-0000-000000000000");
+			jsonGen.writeStringField("sourceSystemSubscription", "00000000-0000-0000-0000-000000000000");
+
+			jsonGen.writeArrayFieldStart("data");
+
+			for (Entity resourceDataEntity : resourceDataEntities) {
+
+				jsonGen.writeStartObject();
+				jsonGen.writeStringField("lastUpdated", "2020-01-01 00:00:00");
+				jsonGen.writeStringField("resourceType", resourceDataEntity.getString("resourceType"));
+				jsonGen.writeFieldName("resourceData");
+				resourceDataStorage.writeResourceData(resourceDataEntity, jsonGen);
+				jsonGen.writeEndObject();
+			}
+
+			jsonGen.writeEndArray();
+			jsonGen.writeEndObject();
+		}
+
+		counters.outputBytes += outputStream.getCount();
+		return outputStream.getCount();
+	}
+}
@@ -0,0 +1,24 @@
+package com.extremenetworks.hcm.azure.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Additional results of a benchmark, reported by JMH next to the ops/s. The
+ * counters are rates (per second), like the ops/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class OutputCounters {
+
+	/** Bytes written by the benchmark method */
+	public long outputBytes;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		outputBytes = 0;
+	}
+}
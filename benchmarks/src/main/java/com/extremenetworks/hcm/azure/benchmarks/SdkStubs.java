@@ -0,0 +1,76 @@
+package com.extremenetworks.hcm.azure.benchmarks;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory stand-ins for the interfaces of the Azure SDK (VirtualMachine,
+ * NetworkInterface, ...). These interfaces have hundreds of methods, of which
+ * the serializers only call a few, so the stubs are dynamic proxies that answer
+ * each call from a map of method name -> value. Methods without a value return
+ * an empty collection, false / 0 or null.
+ *
+ * Calls that go to ARM for the real SDK objects (e.g.
+ * getNetworkSecurityGroup()) are answered from memory as well, so the
+ * benchmarks only measure the serialization. The proxy dispatch adds a small,
+ * constant overhead per call that is the same for every serializer version.
+ */
+public class SdkStubs {
+
+	private SdkStubs() {
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> T stub(Class<T> type, Map<String, Object> values) {
+
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+
+					if (method.getDeclaringClass() == Object.class) {
+						return handleObjectMethod(type, proxy, method, args);
+					}
+
+					Object value = values.get(method.getName());
+					return (value != null) ? value : getDefaultValue(method.getReturnType());
+				});
+	}
+
+	private static Object handleObjectMethod(Class<?> type, Object proxy, Method method, Object[] args) {
+
+		switch (method.getName()) {
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		default:
+			return type.getSimpleName() + "Stub";
+		}
+	}
+
+	private static Object getDefaultValue(Class<?> returnType) {
+
+		if (returnType == Map.class) {
+			return Collections.emptyMap();
+		}
+		if (returnType == List.class) {
+			return Collections.emptyList();
+		}
+		if (returnType == Set.class) {
+			return Collections.emptySet();
+		}
+		if (returnType == boolean.class) {
+			return false;
+		}
+		if (returnType == int.class) {
+			return 0;
+		}
+		if (returnType == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,103 @@
+package com.extremenetworks.hcm.azure.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.extremenetworks.hcm.azure.tools.NetworkInterfaceJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.NetworkJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.NetworkSecurityGroupJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.VirtualMachineJsonSerializer;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.microsoft.azure.management.compute.VirtualMachine;
+import com.microsoft.azure.management.network.Network;
+import com.microsoft.azure.management.network.NetworkInterface;
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes all resources of one type into a JSON array, the same way the
+ * ResourcesWorker does in streaming mode (one writeValue() per resource on a
+ * shared generator). The output is only counted, not kept.
+ *
+ * Run with "-prof gc" for the allocation rate. The outputBytes counter is the
+ * number of JSON bytes written per second - divided by the ops/s it is the
+ * size of the JSON array.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SerializerBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int resourceCount;
+
+	@Param({ "Network", "SecurityGroup", "NetworkInterface", "VM" })
+	public String resourceType;
+
+	@Param({ "10" })
+	public int tagsPerResource;
+
+	@Param({ "50" })
+	public int rulesPerSecurityGroup;
+
+	private List<Object> resources;
+	private ObjectMapper jsonMapper;
+	private ObjectWriter jsonWriter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		resources = new SyntheticResources(tagsPerResource, rulesPerSecurityGroup, 8).create(resourceType,
+				resourceCount);
+
+		/* Same serializers as registered by the ResourcesWorker */
+		SimpleModule azureModule = new SimpleModule("AzureModule");
+		azureModule.addSerializer(NetworkInterface.class, new NetworkInterfaceJsonSerializer());
+		azureModule.addSerializer(VirtualMachine.class, new VirtualMachineJsonSerializer());
+		azureModule.addSerializer(Network.class, new NetworkJsonSerializer());
+		azureModule.addSerializer(NetworkSecurityGroup.class, new NetworkSecurityGroupJsonSerializer());
+
+		jsonMapper = new ObjectMapper();
+		jsonMapper.registerModule(azureModule);
+		jsonWriter = jsonMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	@Benchmark
+	public long serialize(OutputCounters counters) throws IOException {
+
+		CountingOutputStream outputStream = new CountingOutputStream();
+
+		try (JsonGenerator jsonGen = jsonMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+
+			jsonGen.writeStartArray();
+			for (Object resource : resources) {
+				jsonWriter.writeValue(jsonGen, resource);
+			}
+			jsonGen.writeEndArray();
+		}
+
+		counters.outputBytes += outputStream.getCount();
+		return outputStream.getCount();
+	}
+}
@@ -0,0 +1,234 @@
+package com.extremenetworks.hcm.azure.benchmarks;
+
+import static com.extremenetworks.hcm.azure.benchmarks.SdkStubs.stub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.microsoft.azure.management.compute.ImageReference;
+import com.microsoft.azure.management.compute.OSDisk;
+import com.microsoft.azure.management.compute.OperatingSystemTypes;
+import com.microsoft.azure.management.compute.PowerState;
+import com.microsoft.azure.management.compute.StorageProfile;
+import com.microsoft.azure.management.compute.VirtualMachine;
+import com.microsoft.azure.management.compute.VirtualMachineSizeTypes;
+import com.microsoft.azure.management.network.Network;
+import com.microsoft.azure.management.network.NetworkInterface;
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+import com.microsoft.azure.management.network.NetworkSecurityRule;
+import com.microsoft.azure.management.network.NicIPConfiguration;
+import com.microsoft.azure.management.network.PublicIPAddress;
+import com.microsoft.azure.management.network.SecurityRuleAccess;
+import com.microsoft.azure.management.network.SecurityRuleDirection;
+import com.microsoft.azure.management.network.SecurityRuleProtocol;
+import com.microsoft.azure.management.network.Subnet;
+import com.microsoft.azure.management.resources.fluentcore.arm.AvailabilityZoneId;
+
+/**
+ * Generates synthetic resources (as SdkStubs) with realistic ids, names and
+ * sizes. The content is deterministic so that runs can be compared.
+ */
+public class SyntheticResources {
+
+	private static final String SUBSCRIPTION_ID = "00000000-1111-2222-3333-444444444444";
+	private static final int REFERENCED_RESOURCES = 100;
+	private static final String[] REGIONS = { "westeurope", "northeurope", "eastus", "westus2" };
+
+	private final int tagsPerResource;
+	private final int rulesPerSecurityGroup;
+	private final int subnetsPerNetwork;
+
+	/*
+	 * Networks and security groups referenced by the NICs. Many NICs share the
+	 * same ones (as in real subscriptions), which also keeps the heap small
+	 */
+	private final Map<Integer, Network> referencedNetworks = new HashMap<Integer, Network>();
+	private final Map<Integer, NetworkSecurityGroup> referencedSecurityGroups = new HashMap<Integer, NetworkSecurityGroup>();
+
+	public SyntheticResources(int tagsPerResource, int rulesPerSecurityGroup, int subnetsPerNetwork) {
+		this.tagsPerResource = tagsPerResource;
+		this.rulesPerSecurityGroup = rulesPerSecurityGroup;
+		this.subnetsPerNetwork = subnetsPerNetwork;
+	}
+
+	/** Creates the given number of resources of the given type */
+	public List<Object> create(String resourceType, int count) {
+
+		List<Object> resources = new ArrayList<Object>(count);
+
+		for (int i = 0; i < count; i++) {
+			switch (resourceType) {
+			case "Network":
+				resources.add(network(i));
+				break;
+			case "SecurityGroup":
+				resources.add(securityGroup(i));
+				break;
+			case "NetworkInterface":
+				resources.add(networkInterface(i));
+				break;
+			case "VM":
+				resources.add(virtualMachine(i));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown resource type " + resourceType);
+			}
+		}
+		return resources;
+	}
+
+	public Network network(int index) {
+
+		Map<String, Subnet> subnets = new LinkedHashMap<String, Subnet>();
+		for (int i = 0; i < subnetsPerNetwork; i++) {
+
+			Map<String, Object> subnet = new HashMap<String, Object>();
+			subnet.put("key", "subnet-" + i);
+			subnet.put("name", "subnet-" + i);
+			subnet.put("addressPrefix", "10." + (index % 256) + "." + i + ".0/24");
+			subnet.put("networkSecurityGroupId", id("Microsoft.Network/networkSecurityGroups", "nsg-" + index));
+			subnet.put("routeTableId", id("Microsoft.Network/routeTables", "rt-" + index));
+
+			subnets.put("subnet-" + i, stub(Subnet.class, subnet));
+		}
+
+		Map<String, Object> values = common("Microsoft.Network/virtualNetworks", "vnet-" + index, index);
+		values.put("subnets", subnets);
+
+		return stub(Network.class, values);
+	}
+
+	public NetworkSecurityGroup securityGroup(int index) {
+
+		Map<String, Object> values = common("Microsoft.Network/networkSecurityGroups", "nsg-" + index, index);
+		values.put("type", "Microsoft.Network/networkSecurityGroups");
+		values.put("securityRules", securityRules("rule", rulesPerSecurityGroup));
+		values.put("defaultSecurityRules", securityRules("default-rule", 6));
+
+		return stub(NetworkSecurityGroup.class, values);
+	}
+
+	public NetworkInterface networkInterface(int index) {
+
+		Map<String, NicIPConfiguration> ipConfigs = new LinkedHashMap<String, NicIPConfiguration>();
+		for (int i = 0; i < 2; i++) {
+
+			Map<String, Object> ipConfig = new HashMap<String, Object>();
+			ipConfig.put("key", "ipconfig" + i);
+			ipConfig.put("name", "ipconfig" + i);
+			ipConfig.put("networkId", id("Microsoft.Network/virtualNetworks", "vnet-" + index % REFERENCED_RESOURCES));
+			ipConfig.put("publicIPAddressId", id("Microsoft.Network/publicIPAddresses", "pip-" + index + "-" + i));
+			ipConfig.put("privateIPAddress", "10." + (index % 256) + "." + (index / 256 % 256) + "." + (4 + i));
+			ipConfig.put("subnetName", "subnet-0");
+			ipConfig.put("isPrimary", i == 0);
+			ipConfig.put("getNetwork",
+					referencedNetworks.computeIfAbsent(index % REFERENCED_RESOURCES, this::network));
+			ipConfig.put("getPublicIPAddress", publicIpAddress(index, i));
+
+			ipConfigs.put("ipconfig" + i, stub(NicIPConfiguration.class, ipConfig));
+		}
+
+		Map<String, Object> values = common("Microsoft.Network/networkInterfaces", "nic-" + index, index);
+		values.put("macAddress", String.format("00-0D-3A-%02X-%02X-%02X", index >> 16 & 0xff, index >> 8 & 0xff,
+				index & 0xff));
+		values.put("networkSecurityGroupId",
+				id("Microsoft.Network/networkSecurityGroups", "nsg-" + index % REFERENCED_RESOURCES));
+		values.put("primaryPrivateIP", "10." + (index % 256) + "." + (index / 256 % 256) + ".4");
+		values.put("virtualMachineId", id("Microsoft.Compute/virtualMachines", "vm-" + index));
+		values.put("internalDomainNameSuffix", "abcdefghijklmnopqrstuvwxyz.ax.internal.cloudapp.net");
+		values.put("internalFqdn", "vm-" + index + ".abcdefghijklmnopqrstuvwxyz.ax.internal.cloudapp.net");
+		values.put("update", stub(NetworkInterface.Update.class, new HashMap<String, Object>()));
+		values.put("getNetworkSecurityGroup",
+				referencedSecurityGroups.computeIfAbsent(index % REFERENCED_RESOURCES, this::securityGroup));
+		values.put("ipConfigurations", ipConfigs);
+
+		return stub(NetworkInterface.class, values);
+	}
+
+	public VirtualMachine virtualMachine(int index) {
+
+		Set<AvailabilityZoneId> zones = new LinkedHashSet<AvailabilityZoneId>();
+		zones.add(AvailabilityZoneId.ZONE_1);
+
+		StorageProfile storageProfile = new StorageProfile()
+				.withOsDisk(new OSDisk().withOsType(OperatingSystemTypes.LINUX))
+				.withImageReference(new ImageReference().withOffer("UbuntuServer").withSku("18.04-LTS"));
+
+		Map<String, Object> values = common("Microsoft.Compute/virtualMachines", "vm-" + index, index);
+		values.put("vmId", String.format("%08x-0000-4000-8000-%012x", index, (long) index));
+		values.put("availabilitySetId", id("Microsoft.Compute/availabilitySets", "avset-" + (index % 10)));
+		values.put("computerName", "vm-" + index);
+		values.put("primaryNetworkInterfaceId", id("Microsoft.Network/networkInterfaces", "nic-" + index));
+		values.put("provisioningState", "Succeeded");
+		values.put("powerState", PowerState.RUNNING);
+		values.put("size", VirtualMachineSizeTypes.STANDARD_D2S_V3);
+		values.put("getPrimaryPublicIPAddress", publicIpAddress(index, 0));
+		values.put("storageProfile", storageProfile);
+		values.put("availabilityZones", zones);
+		values.put("networkInterfaceIds", Arrays.asList(id("Microsoft.Network/networkInterfaces", "nic-" + index)));
+
+		return stub(VirtualMachine.class, values);
+	}
+
+	private PublicIPAddress publicIpAddress(int index, int ipConfig) {
+
+		Map<String, Object> values = common("Microsoft.Network/publicIPAddresses", "pip-" + index + "-" + ipConfig,
+				index);
+		values.put("ipAddress", "20." + (index >> 16 & 0xff) + "." + (index >> 8 & 0xff) + "." + (index & 0xff));
+
+		return stub(PublicIPAddress.class, values);
+	}
+
+	private Map<String, NetworkSecurityRule> securityRules(String namePrefix, int count) {
+
+		Map<String, NetworkSecurityRule> rules = new LinkedHashMap<String, NetworkSecurityRule>();
+
+		for (int i = 0; i < count; i++) {
+
+			Map<String, Object> rule = new HashMap<String, Object>();
+			rule.put("key", namePrefix + "-" + i);
+			rule.put("name", namePrefix + "-" + i);
+			rule.put("description", "Allow inbound traffic for service " + i);
+			rule.put("destinationAddressPrefix", "10.0." + i + ".0/24");
+			rule.put("destinationPortRange", Integer.toString(1000 + i));
+			rule.put("sourceAddressPrefix", "Internet");
+			rule.put("sourcePortRange", "*");
+			rule.put("priority", 100 + i);
+			rule.put("access", SecurityRuleAccess.ALLOW);
+			rule.put("direction", (i % 2 == 0) ? SecurityRuleDirection.INBOUND : SecurityRuleDirection.OUTBOUND);
+			rule.put("protocol", SecurityRuleProtocol.TCP);
+
+			rules.put(namePrefix + "-" + i, stub(NetworkSecurityRule.class, rule));
+		}
+		return rules;
+	}
+
+	/** Properties all resources have in common: id, name, key, region, resource group and tags */
+	private Map<String, Object> common(String resourceType, String name, int index) {
+
+		Map<String, String> tags = new LinkedHashMap<String, String>();
+		for (int i = 0; i < tagsPerResource; i++) {
+			tags.put("tag-" + i, "value-" + i + "-" + index);
+		}
+
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("id", id(resourceType, name));
+		values.put("key", id(resourceType, name));
+		values.put("name", name);
+		values.put("regionName", REGIONS[index % REGIONS.length]);
+		values.put("resourceGroupName", "rg-" + (index % 50));
+		values.put("tags", tags);
+		return values;
+	}
+
+	private String id(String resourceType, String name) {
+		return "/subscriptions/" + SUBSCRIPTION_ID + "/resourceGroups/rg-" + Math.floorMod(name.hashCode(), 50) + "/providers/"
+				+ resourceType + "/" + name;
+	}
+}
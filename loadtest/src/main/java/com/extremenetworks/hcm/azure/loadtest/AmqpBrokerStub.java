@@ -0,0 +1,376 @@
+package com.extremenetworks.hcm.azure.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rabbitmq.client.AMQP;
+
+/**
+ * Embedded stand-in for RabbitMQ that speaks just enough AMQP 0-9-1 for the
+ * RabbitPublisher: Connection and channel handshakes, queue declarations,
+ * publisher confirms and basic.publish. Every published message is acked right
+ * away and then discarded - only the number of messages and body bytes are
+ * counted. Each client connection is served by its own thread.
+ */
+public class AmqpBrokerStub {
+
+	private static final int CLASS_CONNECTION = 10;
+	private static final int CLASS_CHANNEL = 20;
+	private static final int CLASS_QUEUE = 50;
+	private static final int CLASS_BASIC = 60;
+	private static final int CLASS_CONFIRM = 85;
+
+	private static final int FRAME_MAX = 131072;
+	private static final int HEARTBEAT_SECONDS = 60;
+
+	private final ServerSocket serverSocket;
+
+	private final AtomicLong messagesReceived = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+
+	private static class ChannelState {
+
+		private final int channel;
+		private boolean confirmMode = false;
+		private long nextDeliveryTag = 1;
+
+		/* Body bytes still expected for the current message, -1 if none is in progress */
+		private long remainingBody = -1;
+
+		private ChannelState(int channel) {
+			this.channel = channel;
+		}
+	}
+
+	public AmqpBrokerStub(int port) throws IOException {
+		serverSocket = new ServerSocket(port);
+	}
+
+	public void start() {
+
+		Thread acceptThread = new Thread(this::acceptConnections, "amqp-broker-stub");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	public void stop() {
+
+		try {
+			serverSocket.close();
+		} catch (IOException ex) {
+			// Ignore - only used at the end of the load test
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public long getMessagesReceived() {
+		return messagesReceived.get();
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	public void resetCounters() {
+		messagesReceived.set(0);
+		bytesReceived.set(0);
+	}
+
+	private void acceptConnections() {
+
+		while (!serverSocket.isClosed()) {
+
+			try {
+				Socket socket = serverSocket.accept();
+
+				Thread connectionThread = new Thread(() -> serveConnection(socket),
+						"amqp-broker-stub-" + socket.getPort());
+				connectionThread.setDaemon(true);
+				connectionThread.start();
+
+			} catch (IOException ex) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("AMQP broker stub: error accepting a connection: " + ex);
+				}
+			}
+		}
+	}
+
+	private void serveConnection(Socket socket) {
+
+		try (Socket clientSocket = socket) {
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()));
+
+			/* Protocol header: "AMQP" 0 0 9 1 */
+			byte[] protocolHeader = new byte[8];
+			in.readFully(protocolHeader);
+
+			sendConnectionStart(out);
+
+			Map<Integer, ChannelState> channels = new HashMap<Integer, ChannelState>();
+			boolean open = true;
+
+			while (open) {
+
+				int frameType = in.readUnsignedByte();
+				int channel = in.readUnsignedShort();
+				byte[] payload = new byte[in.readInt()];
+				in.readFully(payload);
+
+				if (in.readUnsignedByte() != AMQP.FRAME_END) {
+					throw new IOException("Invalid frame end");
+				}
+
+				switch (frameType) {
+				case AMQP.FRAME_METHOD:
+					open = handleMethod(out, channels, channel, new DataInputStream(new ByteArrayInputStream(payload)));
+					break;
+				case AMQP.FRAME_HEADER:
+					handleContentHeader(out, channels.get(channel),
+							new DataInputStream(new ByteArrayInputStream(payload)));
+					break;
+				case AMQP.FRAME_BODY:
+					handleContentBody(out, channels.get(channel), payload.length);
+					break;
+				case AMQP.FRAME_HEARTBEAT:
+					writeFrame(out, AMQP.FRAME_HEARTBEAT, 0, new byte[0]);
+					break;
+				}
+
+				out.flush();
+			}
+
+		} catch (EOFException | SocketException ex) {
+			// Client closed the connection without a connection.close
+		} catch (IOException ex) {
+			System.err.println("AMQP broker stub: error serving a connection: " + ex);
+		}
+	}
+
+	/** @return False once the connection has been closed */
+	private boolean handleMethod(DataOutputStream out, Map<Integer, ChannelState> channels, int channel,
+			DataInputStream args) throws IOException {
+
+		int classId = args.readUnsignedShort();
+		int methodId = args.readUnsignedShort();
+
+		switch (classId * 1000 + methodId) {
+
+		case CLASS_CONNECTION * 1000 + 11: // start-ok
+			sendMethod(out, 0, CLASS_CONNECTION, 30, argsOut -> {
+				argsOut.writeShort(2047);
+				argsOut.writeInt(FRAME_MAX);
+				argsOut.writeShort(HEARTBEAT_SECONDS);
+			});
+			break;
+
+		case CLASS_CONNECTION * 1000 + 31: // tune-ok
+			break;
+
+		case CLASS_CONNECTION * 1000 + 40: // open
+			sendMethod(out, 0, CLASS_CONNECTION, 41, argsOut -> writeShortString(argsOut, ""));
+			break;
+
+		case CLASS_CONNECTION * 1000 + 50: // close
+			sendMethod(out, 0, CLASS_CONNECTION, 51, argsOut -> {
+			});
+			return false;
+
+		case CLASS_CHANNEL * 1000 + 10: // open
+			channels.put(channel, new ChannelState(channel));
+			sendMethod(out, channel, CLASS_CHANNEL, 11, argsOut -> argsOut.writeInt(0));
+			break;
+
+		case CLASS_CHANNEL * 1000 + 40: // close
+			channels.remove(channel);
+			sendMethod(out, channel, CLASS_CHANNEL, 41, argsOut -> {
+			});
+			break;
+
+		case CLASS_QUEUE * 1000 + 10: // declare
+			args.readUnsignedShort();
+			String queueName = readShortString(args);
+			boolean queueNoWait = (args.readUnsignedByte() & 0x10) != 0;
+
+			if (!queueNoWait) {
+				sendMethod(out, channel, CLASS_QUEUE, 11, argsOut -> {
+					writeShortString(argsOut, queueName);
+					argsOut.writeInt(0);
+					argsOut.writeInt(0);
+				});
+			}
+			break;
+
+		case CLASS_CONFIRM * 1000 + 10: // select
+			channels.get(channel).confirmMode = true;
+
+			if ((args.readUnsignedByte() & 0x01) == 0) {
+				sendMethod(out, channel, CLASS_CONFIRM, 11, argsOut -> {
+				});
+			}
+			break;
+
+		case CLASS_BASIC * 1000 + 40: // publish - the content header and body follow
+			break;
+
+		default:
+			System.err.println("AMQP broker stub: ignoring unsupported method " + classId + "." + methodId);
+		}
+
+		return true;
+	}
+
+	private void handleContentHeader(DataOutputStream out, ChannelState channelState, DataInputStream header)
+			throws IOException {
+
+		header.readUnsignedShort(); // class id
+		header.readUnsignedShort(); // weight
+		channelState.remainingBody = header.readLong();
+
+		if (channelState.remainingBody == 0) {
+			completeMessage(out, channelState);
+		}
+	}
+
+	private void handleContentBody(DataOutputStream out, ChannelState channelState, int length) throws IOException {
+
+		channelState.remainingBody -= length;
+		bytesReceived.addAndGet(length);
+
+		if (channelState.remainingBody <= 0) {
+			completeMessage(out, channelState);
+		}
+	}
+
+	private void completeMessage(DataOutputStream out, ChannelState channelState) throws IOException {
+
+		channelState.remainingBody = -1;
+		messagesReceived.incrementAndGet();
+
+		if (channelState.confirmMode) {
+
+			long deliveryTag = channelState.nextDeliveryTag++;
+
+			sendMethod(out, channelState.channel, CLASS_BASIC, 80, argsOut -> {
+				argsOut.writeLong(deliveryTag);
+				argsOut.writeByte(0); // not multiple
+			});
+		}
+	}
+
+	private void sendConnectionStart(DataOutputStream out) throws IOException {
+
+		Map<String, Object> capabilities = new LinkedHashMap<String, Object>();
+		capabilities.put("publisher_confirms", true);
+		capabilities.put("basic.nack", true);
+
+		Map<String, Object> serverProperties = new LinkedHashMap<String, Object>();
+		serverProperties.put("product", "HCM Azure AMQP broker stub");
+		serverProperties.put("capabilities", capabilities);
+
+		sendMethod(out, 0, CLASS_CONNECTION, 10, argsOut -> {
+			argsOut.writeByte(0);
+			argsOut.writeByte(9);
+			writeTable(argsOut, serverProperties);
+			writeLongString(argsOut, "PLAIN");
+			writeLongString(argsOut, "en_US");
+		});
+		out.flush();
+	}
+
+	private interface ArgumentWriter {
+		void write(DataOutputStream argsOut) throws IOException;
+	}
+
+	private void sendMethod(DataOutputStream out, int channel, int classId, int methodId, ArgumentWriter arguments)
+			throws IOException {
+
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		DataOutputStream argsOut = new DataOutputStream(payload);
+
+		argsOut.writeShort(classId);
+		argsOut.writeShort(methodId);
+		arguments.write(argsOut);
+		argsOut.flush();
+
+		writeFrame(out, AMQP.FRAME_METHOD, channel, payload.toByteArray());
+	}
+
+	private void writeFrame(DataOutputStream out, int frameType, int channel, byte[] payload) throws IOException {
+
+		out.writeByte(frameType);
+		out.writeShort(channel);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.writeByte(AMQP.FRAME_END);
+	}
+
+	private static String readShortString(DataInputStream in) throws IOException {
+
+		byte[] value = new byte[in.readUnsignedByte()];
+		in.readFully(value);
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	private static void writeShortString(DataOutputStream out, String value) throws IOException {
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeLongString(DataOutputStream out, String value) throws IOException {
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/** Field tables with boolean, string and nested table values */
+	@SuppressWarnings("unchecked")
+	private static void writeTable(DataOutputStream out, Map<String, Object> table) throws IOException {
+
+		ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+		DataOutputStream tableOut = new DataOutputStream(tableBytes);
+
+		for (Entry<String, Object> entry : table.entrySet()) {
+
+			writeShortString(tableOut, entry.getKey());
+
+			if (entry.getValue() instanceof Boolean) {
+				tableOut.writeByte('t');
+				tableOut.writeBoolean((Boolean) entry.getValue());
+			} else if (entry.getValue() instanceof Map) {
+				tableOut.writeByte('F');
+				writeTable(tableOut, (Map<String, Object>) entry.getValue());
+			} else {
+				tableOut.writeByte('S');
+				writeLongString(tableOut, entry.getValue().toString());
+			}
+		}
+
+		tableOut.flush();
+		out.writeInt(tableBytes.size());
+		tableBytes.writeTo(out);
+	}
+}
@@ -0,0 +1,165 @@
+package com.extremenetworks.hcm.azure.loadtest;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.cloud.datastore.BlobValue;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.Value;
+
+/**
+ * In-memory stand-in for the GCP Datastore client with the operations a sync
+ * uses: newKeyFactory(), get(), fetch(), put() and delete() with complete
+ * keys. Queries and transactions are not supported. The client interface has
+ * many more methods, so the stand-in is a dynamic proxy that dispatches on the
+ * method name and argument types.
+ *
+ * The entities are kept (so that delta syncs and chunk replacement work) and
+ * the size of every put is counted: The UTF-8 length of string properties,
+ * the length of blob properties and 8 bytes for any other property.
+ */
+public class InMemoryDatastore {
+
+	private final String projectId;
+	private final ConcurrentHashMap<Key, Entity> entities = new ConcurrentHashMap<Key, Entity>();
+
+	private final AtomicLong putCount = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	public InMemoryDatastore(String projectId) {
+		this.projectId = projectId;
+	}
+
+	/** Returns a Datastore client that operates on this store */
+	public Datastore getService() {
+
+		return (Datastore) Proxy.newProxyInstance(Datastore.class.getClassLoader(),
+				new Class<?>[] { Datastore.class }, (proxy, method, args) -> invoke(proxy, method, args));
+	}
+
+	public long getPutCount() {
+		return putCount.get();
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	public int getEntityCount() {
+		return entities.size();
+	}
+
+	public void resetCounters() {
+		putCount.set(0);
+		bytesWritten.set(0);
+	}
+
+	private Object invoke(Object proxy, Method method, Object[] args) {
+
+		switch (method.getName()) {
+
+		case "newKeyFactory":
+			return new KeyFactory(projectId);
+
+		case "get":
+			if (args[0] instanceof Key) {
+				return entities.get((Key) args[0]);
+			}
+			return fetch(toKeys(args[0])).iterator();
+
+		case "fetch":
+			return fetch(toKeys(args[0]));
+
+		case "put":
+			if (args[0] instanceof FullEntity) {
+				return put((FullEntity<?>) args[0]);
+			}
+			List<Entity> putEntities = new ArrayList<Entity>();
+			for (FullEntity<?> entity : (FullEntity<?>[]) args[0]) {
+				putEntities.add(put(entity));
+			}
+			return putEntities;
+
+		case "delete":
+			for (Key key : toKeys(args[0])) {
+				entities.remove(key);
+			}
+			return null;
+
+		case "equals":
+			return proxy == args[0];
+
+		case "hashCode":
+			return System.identityHashCode(proxy);
+
+		case "toString":
+			return "InMemoryDatastore[" + projectId + "]";
+
+		default:
+			throw new UnsupportedOperationException(
+					"Datastore." + method.getName() + "() is not supported by the in-memory Datastore");
+		}
+	}
+
+	/* Depending on the overload, the keys are passed as an array or as an Iterable */
+	@SuppressWarnings("unchecked")
+	private static Iterable<Key> toKeys(Object keys) {
+		return (keys instanceof Key[]) ? Arrays.asList((Key[]) keys) : (Iterable<Key>) keys;
+	}
+
+	private List<Entity> fetch(Iterable<Key> keys) {
+
+		List<Entity> fetchedEntities = new ArrayList<Entity>();
+		for (Key key : keys) {
+			fetchedEntities.add(entities.get(key));
+		}
+		return fetchedEntities;
+	}
+
+	private Entity put(FullEntity<?> fullEntity) {
+
+		if (!(fullEntity.getKey() instanceof Key)) {
+			throw new UnsupportedOperationException("The in-memory Datastore only supports complete keys");
+		}
+
+		Entity entity = (fullEntity instanceof Entity) ? (Entity) fullEntity
+				: Entity.newBuilder((Key) fullEntity.getKey(), fullEntity).build();
+
+		entities.put(entity.getKey(), entity);
+
+		putCount.incrementAndGet();
+		bytesWritten.addAndGet(getSize(entity));
+
+		return entity;
+	}
+
+	private static long getSize(Entity entity) {
+
+		long size = 0;
+
+		for (String name : entity.getNames()) {
+
+			Value<?> value = entity.getValue(name);
+
+			if (value instanceof StringValue) {
+				size += ((StringValue) value).get().getBytes(StandardCharsets.UTF_8).length;
+			} else if (value instanceof BlobValue) {
+				size += ((BlobValue) value).get().length();
+			} else {
+				size += 8;
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,245 @@
+package com.extremenetworks.hcm.azure.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.extremenetworks.hcm.azure.mgr.AccountConfig;
+import com.extremenetworks.hcm.azure.mgr.AzureConnectionRegistry;
+import com.extremenetworks.hcm.azure.mgr.RabbitPublisher;
+import com.extremenetworks.hcm.azure.mgr.ResourcesWorker;
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig;
+import com.extremenetworks.hcm.azure.mgr.ServiceContext;
+import com.extremenetworks.hcm.azure.mgr.SyncMetrics;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreOptions;
+import com.microsoft.rest.credentials.TokenCredentials;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+
+/**
+ * Runs complete account syncs (ResourcesWorker) against local stand-ins of all
+ * external systems and reports, per subscription size, the sync time, the peak
+ * heap and the bytes that were read from ARM, written to Datastore and
+ * published to RabbitMQ:
+ *
+ * - ARM: MockArmServer, reached through HCM_AZURE_ARM_BASE_URL with a static
+ * token (set via AzureConnectionRegistry.setCredentialsFactory) instead of AAD
+ *
+ * - Datastore: InMemoryDatastore or, with --datastore-emulator=host:port, the
+ * Datastore emulator
+ *
+ * - RabbitMQ: AmqpBrokerStub
+ *
+ * Usage: LoadTest [--page-size=100] [--amqp-port=5673]
+ * [--datastore-emulator=localhost:8081] [number of VMs ...]
+ *
+ * The number of VMs defaults to 1000, 10000 and 100000. All other settings
+ * (fetch and serialization mode, storage format, ...) are read from the usual
+ * environment variables, see ServiceConfig. HCM_AZURE_SYNC_INTERVAL_MINUTES
+ * must stay unset (or 0) since the stand-ins do not support the periodic
+ * sync's queries.
+ * For the same reason, HCM_AZURE_STORAGE_FORMAT=entities only deletes stale
+ * resource entities with the Datastore emulator.
+ */
+public class LoadTest {
+
+	private static final String PROJECT_ID = "hcm-loadtest";
+	private static final String TENANT_ID = "loadtest";
+
+	/* Sent as bearer token to the mock ARM server, which does not check it */
+	private static final String ARM_ACCESS_TOKEN = "offline";
+
+	/* Max time to wait for the broker stub to confirm all messages of a sync */
+	private static final long CONFIRM_TIMEOUT_MILLIS = 60000;
+
+	private static final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+	public static void main(String[] args) throws Exception {
+
+		int pageSize = 100;
+		int amqpPort = 5673;
+		String datastoreEmulator = null;
+		List<Integer> vmCounts = new ArrayList<Integer>();
+
+		for (String arg : args) {
+			if (arg.startsWith("--page-size=")) {
+				pageSize = Integer.parseInt(arg.substring("--page-size=".length()));
+			} else if (arg.startsWith("--amqp-port=")) {
+				amqpPort = Integer.parseInt(arg.substring("--amqp-port=".length()));
+			} else if (arg.startsWith("--datastore-emulator=")) {
+				datastoreEmulator = arg.substring("--datastore-emulator=".length());
+			} else {
+				vmCounts.add(Integer.parseInt(arg));
+			}
+		}
+
+		if (vmCounts.isEmpty()) {
+			vmCounts.add(1000);
+			vmCounts.add(10000);
+			vmCounts.add(100000);
+		}
+
+		String armBaseUrl = ServiceConfig.getArmBaseUrl();
+
+		if (armBaseUrl.contains("management.azure.com")) {
+			System.err.println("Set " + ServiceConfig.ENV_ARM_BASE_URL + " to the local mock ARM server (e.g. "
+					+ "http://localhost:8180)");
+			System.exit(1);
+		}
+
+		AzureConnectionRegistry.getInstance().setCredentialsFactory(
+				(appId, azureTenantId, key) -> new TokenCredentials("Bearer", ARM_ACCESS_TOKEN));
+
+		MockArmServer armServer = new MockArmServer(armBaseUrl, pageSize);
+		armServer.start();
+
+		AmqpBrokerStub broker = new AmqpBrokerStub(amqpPort);
+		broker.start();
+
+		InMemoryDatastore inMemoryDatastore = null;
+		Datastore datastore;
+
+		if (datastoreEmulator != null) {
+			datastore = DatastoreOptions.newBuilder().setProjectId(PROJECT_ID).setHost(datastoreEmulator)
+					.setCredentials(NoCredentials.getInstance()).build().getService();
+		} else {
+			inMemoryDatastore = new InMemoryDatastore(PROJECT_ID);
+			datastore = inMemoryDatastore.getService();
+		}
+
+		RabbitPublisher rabbitPublisher = new RabbitPublisher("localhost", amqpPort,
+				ServiceContext.RABBIT_QUEUE_NAME, ServiceConfig.getPublishChannels());
+
+		ServiceContext serviceContext = ServiceContext.start(datastore, rabbitPublisher);
+
+		System.out.println("Fetch mode: " + ServiceConfig.getFetchMode() + ", serialization mode: "
+				+ ServiceConfig.getSerializationMode() + ", storage format: " + ServiceConfig.getStorageFormat()
+				+ ", ARM page size: " + pageSize + ", Datastore: "
+				+ ((datastoreEmulator != null) ? "emulator at " + datastoreEmulator : "in-memory"));
+		System.out.println();
+		System.out.println(String.format("%8s %10s %9s %14s %9s %9s %12s %12s %10s %9s", "VMs", "Resources",
+				"Sync (s)", "Peak heap (MB)", "ARM reqs", "ARM (MB)", "DS JSON (MB)", "DS puts (MB)", "AMQP msgs",
+				"AMQP (MB)"));
+
+		try {
+			for (int vmCount : vmCounts) {
+				runSync(vmCount, armServer, broker, inMemoryDatastore, datastore, rabbitPublisher);
+			}
+
+		} finally {
+			serviceContext.shutdown(30, TimeUnit.SECONDS);
+			broker.stop();
+			armServer.stop();
+		}
+	}
+
+	private static void runSync(int vmCount, MockArmServer armServer, AmqpBrokerStub broker,
+			InMemoryDatastore inMemoryDatastore, Datastore datastore, RabbitPublisher rabbitPublisher)
+			throws InterruptedException {
+
+		AccountConfig accountConfig = new AccountConfig();
+		accountConfig.setTenantId(TENANT_ID);
+		accountConfig.setAccountId("account-" + vmCount);
+		accountConfig.setAppId("loadtest-app-" + vmCount);
+		accountConfig.setKey("offline");
+		accountConfig.setAzureTenantId("00000000-0000-0000-0000-000000000000");
+		accountConfig.setSubscription(MockArmServer.subscriptionFor(vmCount));
+
+		long armRequestsBefore = armServer.getRequestCount();
+		long armBytesBefore = armServer.getBytesServed();
+		double datastoreJsonBytesBefore = getPayloadBytes(SyncMetrics.TARGET_DATASTORE);
+		broker.resetCounters();
+		if (inMemoryDatastore != null) {
+			inMemoryDatastore.resetCounters();
+		}
+
+		System.gc();
+		HeapSampler heapSampler = new HeapSampler();
+		heapSampler.start();
+
+		long start = System.nanoTime();
+
+		new ResourcesWorker(TENANT_ID, accountConfig.getAccountId(), accountConfig, rabbitPublisher, datastore).run();
+
+		/* The sync is only complete once the broker has confirmed all messages */
+		long confirmDeadline = System.currentTimeMillis() + CONFIRM_TIMEOUT_MILLIS;
+		while (rabbitPublisher.getUnconfirmedCount() > 0 && System.currentTimeMillis() < confirmDeadline) {
+			Thread.sleep(10);
+		}
+
+		double syncSeconds = (System.nanoTime() - start) / 1e9;
+		long peakHeap = heapSampler.stopSampling();
+
+		System.out.println(String.format("%8d %10d %9.2f %14.1f %9d %9.1f %12.1f %12s %10d %9.1f", vmCount,
+				MockArmServer.getResourceCount(vmCount), syncSeconds, toMegabytes(peakHeap),
+				armServer.getRequestCount() - armRequestsBefore,
+				toMegabytes(armServer.getBytesServed() - armBytesBefore),
+				toMegabytes(getPayloadBytes(SyncMetrics.TARGET_DATASTORE) - datastoreJsonBytesBefore),
+				(inMemoryDatastore != null)
+						? String.format("%.1f", toMegabytes(inMemoryDatastore.getBytesWritten()))
+						: "-",
+				broker.getMessagesReceived(), toMegabytes(broker.getBytesReceived())));
+	}
+
+	/** Sum of all payload sizes of the given target that have been recorded by the SyncMetrics */
+	private static double getPayloadBytes(String target) {
+
+		double bytes = 0;
+
+		for (MetricFamilySamples metricFamily : SyncMetrics.payloadBytes.collect()) {
+			for (Sample sample : metricFamily.samples) {
+				if (sample.name.endsWith("_sum") && sample.labelValues.get(0).equals(target)) {
+					bytes += sample.value;
+				}
+			}
+		}
+		return bytes;
+	}
+
+	private static double toMegabytes(double bytes) {
+		return bytes / (1024 * 1024);
+	}
+
+	/**
+	 * Samples the used heap every 10 ms. Unlike the peak usage of the memory
+	 * pools, the sampled value is the peak of the whole heap at one point in time
+	 */
+	private static class HeapSampler extends Thread {
+
+		private final AtomicLong peakHeap = new AtomicLong();
+		private volatile boolean running = true;
+
+		private HeapSampler() {
+			super("heap-sampler");
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+
+			while (running) {
+				peakHeap.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException ex) {
+					return;
+				}
+			}
+		}
+
+		private long stopSampling() throws InterruptedException {
+
+			running = false;
+			join();
+
+			return Math.max(peakHeap.get(), memoryBean.getHeapMemoryUsage().getUsed());
+		}
+	}
+}
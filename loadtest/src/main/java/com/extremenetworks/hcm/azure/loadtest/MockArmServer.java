@@ -0,0 +1,625 @@
+package com.extremenetworks.hcm.azure.loadtest;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal ARM REST API that serves synthetic, paged listings of virtual
+ * networks, network security groups, network interfaces, public IP addresses
+ * and virtual machines, as well as single resources by id and the instance
+ * view of the VMs. Nothing is kept in memory: Every resource is generated from
+ * its index while the response is written.
+ *
+ * The size of a subscription is encoded in its id (see subscriptionFor), so one
+ * server serves subscriptions of any size. A subscription with n VMs has n
+ * network interfaces and public IPs, n / 20 security groups and n / 50 virtual
+ * networks (at least one of each).
+ */
+public class MockArmServer {
+
+	private static final String SUBSCRIPTION_PREFIX = "00000000-0000-0000-0000-";
+
+	private static final int RESOURCE_GROUPS = 20;
+	private static final int SUBNETS_PER_NETWORK = 4;
+	private static final int RULES_PER_SECURITY_GROUP = 20;
+	private static final int TAGS_PER_RESOURCE = 5;
+	private static final String[] REGIONS = { "westeurope", "northeurope", "eastus", "westus2" };
+
+	private enum RESOURCE_KINDS {
+
+		Network("Microsoft.Network/virtualNetworks", "vnet"),
+		SecurityGroup("Microsoft.Network/networkSecurityGroups", "nsg"),
+		NetworkInterface("Microsoft.Network/networkInterfaces", "nic"),
+		PublicIpAddress("Microsoft.Network/publicIPAddresses", "pip"),
+		VM("Microsoft.Compute/virtualMachines", "vm");
+
+		private final String type;
+		private final String namePrefix;
+
+		private RESOURCE_KINDS(String type, String namePrefix) {
+			this.type = type;
+			this.namePrefix = namePrefix;
+		}
+
+		private static RESOURCE_KINDS fromType(String provider, String type) {
+
+			for (RESOURCE_KINDS kind : values()) {
+				if (kind.type.equalsIgnoreCase(provider + "/" + type)) {
+					return kind;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final String baseUrl;
+	private final int pageSize;
+
+	private final HttpServer httpServer;
+	private final ExecutorService requestExecutor = Executors.newFixedThreadPool(16);
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong bytesServed = new AtomicLong();
+
+	/**
+	 * @param baseUrl  The URL the service uses for ARM (HCM_AZURE_ARM_BASE_URL).
+	 *                 The server listens on its port
+	 * @param pageSize Number of resources per page of a listing
+	 */
+	public MockArmServer(String baseUrl, int pageSize) throws IOException {
+
+		URL url = new URL(baseUrl);
+
+		this.baseUrl = url.getProtocol() + "://" + url.getAuthority();
+		this.pageSize = pageSize;
+
+		httpServer = HttpServer.create(new InetSocketAddress(url.getPort()), 0);
+		httpServer.createContext("/", this::handle);
+		httpServer.setExecutor(requestExecutor);
+	}
+
+	/** Id of the mock subscription with the given number of VMs */
+	public static String subscriptionFor(int vmCount) {
+		return SUBSCRIPTION_PREFIX + String.format("%012d", vmCount);
+	}
+
+	/** Total number of resources of all kinds of a subscription with the given number of VMs */
+	public static int getResourceCount(int vmCount) {
+
+		int count = 0;
+		for (RESOURCE_KINDS kind : RESOURCE_KINDS.values()) {
+			count += getResourceCount(kind, vmCount);
+		}
+		return count;
+	}
+
+	private static int getResourceCount(RESOURCE_KINDS kind, int vmCount) {
+
+		switch (kind) {
+		case Network:
+			return Math.max(1, vmCount / 50);
+		case SecurityGroup:
+			return Math.max(1, vmCount / 20);
+		default:
+			return vmCount;
+		}
+	}
+
+	public void start() {
+		httpServer.start();
+	}
+
+	public void stop() {
+		httpServer.stop(0);
+		requestExecutor.shutdownNow();
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	public long getBytesServed() {
+		return bytesServed.get();
+	}
+
+	/**
+	 * Supported paths:
+	 *
+	 * /subscriptions/{sub}/providers/{provider}/{type}
+	 *
+	 * /subscriptions/{sub}/resourceGroups/{rg}/providers/{provider}/{type}/{name}
+	 *
+	 * /subscriptions/{sub}/resourceGroups/{rg}/providers/Microsoft.Compute/virtualMachines/{name}/instanceView
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+
+		requestCount.incrementAndGet();
+
+		try {
+			if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+				sendError(exchange, 401, "AuthenticationFailed", "Missing bearer token");
+				return;
+			}
+
+			String[] path = exchange.getRequestURI().getPath().split("/");
+
+			if (path.length < 3 || !path[1].equalsIgnoreCase("subscriptions")
+					|| !path[2].startsWith(SUBSCRIPTION_PREFIX)) {
+				sendError(exchange, 404, "SubscriptionNotFound", "Unknown subscription");
+				return;
+			}
+
+			String subscription = path[2];
+			int vmCount = Integer.parseInt(subscription.substring(SUBSCRIPTION_PREFIX.length()));
+
+			if (path.length == 6 && path[3].equalsIgnoreCase("providers")) {
+
+				RESOURCE_KINDS kind = RESOURCE_KINDS.fromType(path[4], path[5]);
+				if (kind != null) {
+					sendPage(exchange, subscription, vmCount, kind, getSkipToken(exchange));
+					return;
+				}
+
+			} else if ((path.length == 9 || path.length == 10) && path[3].equalsIgnoreCase("resourceGroups")
+					&& path[5].equalsIgnoreCase("providers")) {
+
+				RESOURCE_KINDS kind = RESOURCE_KINDS.fromType(path[6], path[7]);
+				int index = getIndex(kind, path[8]);
+
+				if (index >= 0 && index < getResourceCount(kind, vmCount)) {
+
+					if (path.length == 9) {
+						sendResource(exchange, subscription, vmCount, kind, index);
+						return;
+					}
+					if (kind == RESOURCE_KINDS.VM && path[9].equalsIgnoreCase("instanceView")) {
+						sendInstanceView(exchange);
+						return;
+					}
+				}
+			}
+
+			sendError(exchange, 404, "ResourceNotFound", "Unknown resource " + exchange.getRequestURI().getPath());
+
+		} catch (RuntimeException ex) {
+			sendError(exchange, 400, "BadRequest", ex.toString());
+
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void sendPage(HttpExchange exchange, String subscription, int vmCount, RESOURCE_KINDS kind, int start)
+			throws IOException {
+
+		int end = Math.min(start + pageSize, getResourceCount(kind, vmCount));
+
+		try (JsonGenerator jsonGen = createResponse(exchange, 200)) {
+
+			jsonGen.writeStartObject();
+			jsonGen.writeArrayFieldStart("value");
+
+			for (int index = start; index < end; index++) {
+				writeResource(jsonGen, subscription, vmCount, kind, index);
+			}
+
+			jsonGen.writeEndArray();
+
+			if (end < getResourceCount(kind, vmCount)) {
+				jsonGen.writeStringField("nextLink", baseUrl + exchange.getRequestURI().getPath() + "?"
+						+ getApiVersionParam(exchange) + "$skipToken=" + end);
+			}
+
+			jsonGen.writeEndObject();
+		}
+	}
+
+	private void sendResource(HttpExchange exchange, String subscription, int vmCount, RESOURCE_KINDS kind,
+			int index) throws IOException {
+
+		try (JsonGenerator jsonGen = createResponse(exchange, 200)) {
+			writeResource(jsonGen, subscription, vmCount, kind, index);
+		}
+	}
+
+	private void sendInstanceView(HttpExchange exchange) throws IOException {
+
+		try (JsonGenerator jsonGen = createResponse(exchange, 200)) {
+
+			jsonGen.writeStartObject();
+			jsonGen.writeArrayFieldStart("statuses");
+
+			jsonGen.writeStartObject();
+			jsonGen.writeStringField("code", "ProvisioningState/succeeded");
+			jsonGen.writeStringField("level", "Info");
+			jsonGen.writeEndObject();
+
+			jsonGen.writeStartObject();
+			jsonGen.writeStringField("code", "PowerState/running");
+			jsonGen.writeStringField("level", "Info");
+			jsonGen.writeEndObject();
+
+			jsonGen.writeEndArray();
+			jsonGen.writeEndObject();
+		}
+	}
+
+	private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+
+		try (JsonGenerator jsonGen = createResponse(exchange, status)) {
+
+			jsonGen.writeStartObject();
+			jsonGen.writeObjectFieldStart("error");
+			jsonGen.writeStringField("code", code);
+			jsonGen.writeStringField("message", message);
+			jsonGen.writeEndObject();
+			jsonGen.writeEndObject();
+		}
+	}
+
+	/** Sends the headers (chunked body) and returns a generator for the body */
+	private JsonGenerator createResponse(HttpExchange exchange, int status) throws IOException {
+
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.getResponseHeaders().set("x-ms-ratelimit-remaining-subscription-reads", "11999");
+		exchange.sendResponseHeaders(status, 0);
+
+		OutputStream countingBody = new FilterOutputStream(exchange.getResponseBody()) {
+
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytesServed.incrementAndGet();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				bytesServed.addAndGet(len);
+			}
+		};
+
+		return jsonFactory.createGenerator(countingBody, JsonEncoding.UTF8);
+	}
+
+	private static int getSkipToken(HttpExchange exchange) {
+
+		String query = exchange.getRequestURI().getQuery();
+		if (query == null) {
+			return 0;
+		}
+
+		for (String param : query.split("&")) {
+			if (param.startsWith("$skipToken=")) {
+				return Integer.parseInt(param.substring("$skipToken=".length()));
+			}
+		}
+		return 0;
+	}
+
+	private static String getApiVersionParam(HttpExchange exchange) {
+
+		String query = exchange.getRequestURI().getQuery();
+		if (query == null) {
+			return "";
+		}
+
+		for (String param : query.split("&")) {
+			if (param.startsWith("api-version=")) {
+				return param + "&";
+			}
+		}
+		return "";
+	}
+
+	/** Returns the index of the resource with the given name or -1 */
+	private static int getIndex(RESOURCE_KINDS kind, String name) {
+
+		if (kind == null || !name.startsWith(kind.namePrefix + "-")) {
+			return -1;
+		}
+
+		try {
+			return Integer.parseInt(name.substring(kind.namePrefix.length() + 1));
+		} catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	private static String id(String subscription, RESOURCE_KINDS kind, int index) {
+		return "/subscriptions/" + subscription + "/resourceGroups/rg-" + (index % RESOURCE_GROUPS) + "/providers/"
+				+ kind.type + "/" + kind.namePrefix + "-" + index;
+	}
+
+	private void writeResource(JsonGenerator jsonGen, String subscription, int vmCount, RESOURCE_KINDS kind,
+			int index) throws IOException {
+
+		jsonGen.writeStartObject();
+
+		jsonGen.writeStringField("id", id(subscription, kind, index));
+		jsonGen.writeStringField("name", kind.namePrefix + "-" + index);
+		jsonGen.writeStringField("type", kind.type);
+		jsonGen.writeStringField("location", REGIONS[index % REGIONS.length]);
+
+		jsonGen.writeObjectFieldStart("tags");
+		for (int i = 0; i < TAGS_PER_RESOURCE; i++) {
+			jsonGen.writeStringField("tag-" + i, "value-" + i + "-" + index);
+		}
+		jsonGen.writeEndObject();
+
+		switch (kind) {
+		case Network:
+			writeNetworkProperties(jsonGen, subscription, vmCount, index);
+			break;
+		case SecurityGroup:
+			writeSecurityGroupProperties(jsonGen, subscription, index);
+			break;
+		case NetworkInterface:
+			writeNetworkInterfaceProperties(jsonGen, subscription, vmCount, index);
+			break;
+		case PublicIpAddress:
+			writePublicIpAddressProperties(jsonGen, subscription, index);
+			break;
+		case VM:
+			writeVirtualMachineProperties(jsonGen, subscription, index);
+			break;
+		}
+
+		jsonGen.writeEndObject();
+	}
+
+	private void writeNetworkProperties(JsonGenerator jsonGen, String subscription, int vmCount, int index)
+			throws IOException {
+
+		String networkId = id(subscription, RESOURCE_KINDS.Network, index);
+		int securityGroups = getResourceCount(RESOURCE_KINDS.SecurityGroup, vmCount);
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+
+		jsonGen.writeObjectFieldStart("addressSpace");
+		jsonGen.writeArrayFieldStart("addressPrefixes");
+		jsonGen.writeString("10." + (index % 256) + ".0.0/16");
+		jsonGen.writeEndArray();
+		jsonGen.writeEndObject();
+
+		jsonGen.writeArrayFieldStart("subnets");
+		for (int i = 0; i < SUBNETS_PER_NETWORK; i++) {
+
+			jsonGen.writeStartObject();
+			jsonGen.writeStringField("id", networkId + "/subnets/subnet-" + i);
+			jsonGen.writeStringField("name", "subnet-" + i);
+
+			jsonGen.writeObjectFieldStart("properties");
+			jsonGen.writeStringField("addressPrefix", "10." + (index % 256) + "." + i + ".0/24");
+			jsonGen.writeStringField("provisioningState", "Succeeded");
+			jsonGen.writeObjectFieldStart("networkSecurityGroup");
+			jsonGen.writeStringField("id", id(subscription, RESOURCE_KINDS.SecurityGroup, index % securityGroups));
+			jsonGen.writeEndObject();
+			jsonGen.writeEndObject();
+
+			jsonGen.writeEndObject();
+		}
+		jsonGen.writeEndArray();
+
+		jsonGen.writeEndObject();
+	}
+
+	private void writeSecurityGroupProperties(JsonGenerator jsonGen, String subscription, int index)
+			throws IOException {
+
+		String securityGroupId = id(subscription, RESOURCE_KINDS.SecurityGroup, index);
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+
+		jsonGen.writeArrayFieldStart("securityRules");
+		for (int i = 0; i < RULES_PER_SECURITY_GROUP; i++) {
+			writeSecurityRule(jsonGen, securityGroupId + "/securityRules/rule-" + i, "rule-" + i, 100 + i,
+					(i % 2 == 0) ? "Inbound" : "Outbound", Integer.toString(1000 + i));
+		}
+		jsonGen.writeEndArray();
+
+		jsonGen.writeArrayFieldStart("defaultSecurityRules");
+		writeSecurityRule(jsonGen, securityGroupId + "/defaultSecurityRules/AllowVnetInBound", "AllowVnetInBound",
+				65000, "Inbound", "*");
+		writeSecurityRule(jsonGen, securityGroupId + "/defaultSecurityRules/AllowVnetOutBound", "AllowVnetOutBound",
+				65000, "Outbound", "*");
+		jsonGen.writeEndArray();
+
+		jsonGen.writeEndObject();
+	}
+
+	private void writeSecurityRule(JsonGenerator jsonGen, String id, String name, int priority, String direction,
+			String destinationPortRange) throws IOException {
+
+		jsonGen.writeStartObject();
+		jsonGen.writeStringField("id", id);
+		jsonGen.writeStringField("name", name);
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+		jsonGen.writeStringField("description", "Allow traffic for service " + name);
+		jsonGen.writeStringField("protocol", "Tcp");
+		jsonGen.writeStringField("sourcePortRange", "*");
+		jsonGen.writeStringField("destinationPortRange", destinationPortRange);
+		jsonGen.writeStringField("sourceAddressPrefix", "Internet");
+		jsonGen.writeStringField("destinationAddressPrefix", "VirtualNetwork");
+		jsonGen.writeStringField("access", "Allow");
+		jsonGen.writeNumberField("priority", priority);
+		jsonGen.writeStringField("direction", direction);
+		jsonGen.writeEndObject();
+
+		jsonGen.writeEndObject();
+	}
+
+	private void writeNetworkInterfaceProperties(JsonGenerator jsonGen, String subscription, int vmCount, int index)
+			throws IOException {
+
+		String nicId = id(subscription, RESOURCE_KINDS.NetworkInterface, index);
+		int networkIndex = index % getResourceCount(RESOURCE_KINDS.Network, vmCount);
+		int subnetIndex = index % SUBNETS_PER_NETWORK;
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+		jsonGen.writeStringField("macAddress",
+				String.format("00-0D-3A-%02X-%02X-%02X", index >> 16 & 0xff, index >> 8 & 0xff, index & 0xff));
+		jsonGen.writeBooleanField("primary", true);
+		jsonGen.writeBooleanField("enableAcceleratedNetworking", false);
+		jsonGen.writeBooleanField("enableIPForwarding", false);
+
+		jsonGen.writeObjectFieldStart("networkSecurityGroup");
+		jsonGen.writeStringField("id", id(subscription, RESOURCE_KINDS.SecurityGroup,
+				index % getResourceCount(RESOURCE_KINDS.SecurityGroup, vmCount)));
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("virtualMachine");
+		jsonGen.writeStringField("id", id(subscription, RESOURCE_KINDS.VM, index));
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("dnsSettings");
+		jsonGen.writeArrayFieldStart("dnsServers");
+		jsonGen.writeEndArray();
+		jsonGen.writeArrayFieldStart("appliedDnsServers");
+		jsonGen.writeEndArray();
+		jsonGen.writeStringField("internalDomainNameSuffix", "loadtest.ax.internal.cloudapp.net");
+		jsonGen.writeEndObject();
+
+		jsonGen.writeArrayFieldStart("ipConfigurations");
+		jsonGen.writeStartObject();
+		jsonGen.writeStringField("id", nicId + "/ipConfigurations/ipconfig1");
+		jsonGen.writeStringField("name", "ipconfig1");
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+		jsonGen.writeStringField("privateIPAddress",
+				"10." + (networkIndex % 256) + "." + subnetIndex + "." + (4 + index / 4 % 250));
+		jsonGen.writeStringField("privateIPAllocationMethod", "Dynamic");
+		jsonGen.writeStringField("privateIPAddressVersion", "IPv4");
+		jsonGen.writeBooleanField("primary", true);
+
+		jsonGen.writeObjectFieldStart("subnet");
+		jsonGen.writeStringField("id",
+				id(subscription, RESOURCE_KINDS.Network, networkIndex) + "/subnets/subnet-" + subnetIndex);
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("publicIPAddress");
+		jsonGen.writeStringField("id", id(subscription, RESOURCE_KINDS.PublicIpAddress, index));
+		jsonGen.writeEndObject();
+
+		jsonGen.writeEndObject();
+		jsonGen.writeEndObject();
+		jsonGen.writeEndArray();
+
+		jsonGen.writeEndObject();
+	}
+
+	private void writePublicIpAddressProperties(JsonGenerator jsonGen, String subscription, int index)
+			throws IOException {
+
+		jsonGen.writeObjectFieldStart("sku");
+		jsonGen.writeStringField("name", "Basic");
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+		jsonGen.writeStringField("ipAddress",
+				"20." + (index >> 16 & 0xff) + "." + (index >> 8 & 0xff) + "." + (index & 0xff));
+		jsonGen.writeStringField("publicIPAllocationMethod", "Static");
+		jsonGen.writeStringField("publicIPAddressVersion", "IPv4");
+		jsonGen.writeNumberField("idleTimeoutInMinutes", 4);
+
+		/* Public IP i is assigned to the IP configuration of NIC i */
+		jsonGen.writeObjectFieldStart("ipConfiguration");
+		jsonGen.writeStringField("id",
+				id(subscription, RESOURCE_KINDS.NetworkInterface, index) + "/ipConfigurations/ipconfig1");
+		jsonGen.writeEndObject();
+
+		jsonGen.writeEndObject();
+	}
+
+	private void writeVirtualMachineProperties(JsonGenerator jsonGen, String subscription, int index)
+			throws IOException {
+
+		if (index % 2 == 1) {
+			jsonGen.writeArrayFieldStart("zones");
+			jsonGen.writeString(Integer.toString(index % 3 + 1));
+			jsonGen.writeEndArray();
+		}
+
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeStringField("provisioningState", "Succeeded");
+		jsonGen.writeStringField("vmId", String.format("%08x-0000-4000-8000-%012x", index, (long) index));
+
+		jsonGen.writeObjectFieldStart("hardwareProfile");
+		jsonGen.writeStringField("vmSize", "Standard_D2s_v3");
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("storageProfile");
+		jsonGen.writeObjectFieldStart("imageReference");
+		jsonGen.writeStringField("publisher", "Canonical");
+		jsonGen.writeStringField("offer", "UbuntuServer");
+		jsonGen.writeStringField("sku", "18.04-LTS");
+		jsonGen.writeStringField("version", "latest");
+		jsonGen.writeEndObject();
+		jsonGen.writeObjectFieldStart("osDisk");
+		jsonGen.writeStringField("osType", "Linux");
+		jsonGen.writeStringField("name", "osdisk-" + index);
+		jsonGen.writeStringField("createOption", "FromImage");
+		jsonGen.writeStringField("caching", "ReadWrite");
+		jsonGen.writeNumberField("diskSizeGB", 30);
+		jsonGen.writeObjectFieldStart("managedDisk");
+		jsonGen.writeStringField("storageAccountType", "Premium_LRS");
+		jsonGen.writeStringField("id", "/subscriptions/" + subscription + "/resourceGroups/rg-"
+				+ (index % RESOURCE_GROUPS) + "/providers/Microsoft.Compute/disks/osdisk-" + index);
+		jsonGen.writeEndObject();
+		jsonGen.writeEndObject();
+		jsonGen.writeArrayFieldStart("dataDisks");
+		jsonGen.writeEndArray();
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("osProfile");
+		jsonGen.writeStringField("computerName", "vm-" + index);
+		jsonGen.writeStringField("adminUsername", "azureuser");
+		jsonGen.writeObjectFieldStart("linuxConfiguration");
+		jsonGen.writeBooleanField("disablePasswordAuthentication", true);
+		jsonGen.writeEndObject();
+		jsonGen.writeArrayFieldStart("secrets");
+		jsonGen.writeEndArray();
+		jsonGen.writeEndObject();
+
+		jsonGen.writeObjectFieldStart("networkProfile");
+		jsonGen.writeArrayFieldStart("networkInterfaces");
+		jsonGen.writeStartObject();
+		jsonGen.writeStringField("id", id(subscription, RESOURCE_KINDS.NetworkInterface, index));
+		jsonGen.writeObjectFieldStart("properties");
+		jsonGen.writeBooleanField("primary", true);
+		jsonGen.writeEndObject();
+		jsonGen.writeEndObject();
+		jsonGen.writeEndArray();
+		jsonGen.writeEndObject();
+
+		if (index % 2 == 0) {
+			jsonGen.writeObjectFieldStart("availabilitySet");
+			jsonGen.writeStringField("id", "/subscriptions/" + subscription + "/resourceGroups/rg-"
+					+ (index % RESOURCE_GROUPS) + "/providers/Microsoft.Compute/availabilitySets/avset-"
+					+ (index % RESOURCE_GROUPS));
+			jsonGen.writeEndObject();
+		}
+
+		jsonGen.writeEndObject();
+	}
+}
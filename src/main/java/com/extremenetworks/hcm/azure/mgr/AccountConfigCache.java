@@ -0,0 +1,104 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, in-process cache of account configs keyed by tenant id and account
+ * id. Entries expire after the configured TTL and the least recently used entry
+ * is dropped once the cache is full. Entries can also be invalidated
+ * explicitly, e.g. after the account config has been modified.
+ */
+public class AccountConfigCache {
+
+	private static final AccountConfigCache instance = new AccountConfigCache();
+
+	private final long ttlMillis;
+	private final int maxEntries;
+
+	/* Access-ordered, so the eldest entry is the least recently used one */
+	private final LinkedHashMap<String, CachedAccountConfig> accountConfigs;
+
+	private static class CachedAccountConfig {
+
+		private final AccountConfig accountConfig;
+		private final long loadedAt;
+
+		private CachedAccountConfig(AccountConfig accountConfig) {
+			this.accountConfig = accountConfig;
+			this.loadedAt = System.currentTimeMillis();
+		}
+	}
+
+	private AccountConfigCache() {
+
+		ttlMillis = TimeUnit.SECONDS.toMillis(ServiceConfig.getAccountConfigCacheTtlSeconds());
+		maxEntries = ServiceConfig.getAccountConfigCacheSize();
+
+		accountConfigs = new LinkedHashMap<String, CachedAccountConfig>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedAccountConfig> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public static AccountConfigCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Copies the cached config for the given tenant and account into the provided
+	 * accountConfig
+	 *
+	 * @return False if there is no (unexpired) config in the cache
+	 */
+	public synchronized boolean get(String tenantId, String accountId, AccountConfig accountConfig) {
+
+		String cacheKey = tenantId + "|" + accountId;
+		CachedAccountConfig cached = accountConfigs.get(cacheKey);
+
+		if (cached == null) {
+			return false;
+		}
+
+		if (System.currentTimeMillis() - cached.loadedAt > ttlMillis) {
+			accountConfigs.remove(cacheKey);
+			return false;
+		}
+
+		copy(cached.accountConfig, accountConfig);
+		return true;
+	}
+
+	public synchronized void put(AccountConfig accountConfig) {
+
+		AccountConfig cachedConfig = new AccountConfig();
+		copy(accountConfig, cachedConfig);
+
+		accountConfigs.put(accountConfig.getTenantId() + "|" + accountConfig.getAccountId(),
+				new CachedAccountConfig(cachedConfig));
+	}
+
+	public synchronized void invalidate(String tenantId, String accountId) {
+		accountConfigs.remove(tenantId + "|" + accountId);
+	}
+
+	public synchronized void invalidateAll() {
+		accountConfigs.clear();
+	}
+
+	private static void copy(AccountConfig from, AccountConfig to) {
+
+		to.setTenantId(from.getTenantId());
+		to.setAccountId(from.getAccountId());
+		to.setAppId(from.getAppId());
+		to.setKey(from.getKey());
+		to.setSubscription(from.getSubscription());
+		to.setAzureTenantId(from.getAzureTenantId());
+	}
+}
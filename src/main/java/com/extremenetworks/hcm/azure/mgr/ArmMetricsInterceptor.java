@@ -0,0 +1,64 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Records the latency and HTTP status code of every ARM request in the
+ * SyncMetrics. Each request is assigned to an operation made of the HTTP method
+ * and the ARM resource type, e.g. "GET Microsoft.Network/networkInterfaces",
+ * so that the metrics don't contain any resource names or ids. Paths without a
+ * resource provider (e.g. the list of resource groups) are recorded as
+ * "other", which keeps the number of label values bounded.
+ */
+public class ArmMetricsInterceptor implements Interceptor {
+
+	/** Resource type of all requests that do not address a resource provider */
+	private static final String OTHER_RESOURCE_TYPE = "other";
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+
+		Request request = chain.request();
+		String operation = request.method() + " " + getResourceType(request.url().pathSegments());
+
+		long start = System.nanoTime();
+		String status = "error";
+
+		try {
+			Response response = chain.proceed(request);
+			status = Integer.toString(response.code());
+			return response;
+
+		} finally {
+			SyncMetrics.armRequestDuration.labels(operation, status).observe((System.nanoTime() - start) / 1e9);
+		}
+	}
+
+	/**
+	 * The resource type of the given ARM path, e.g. for
+	 * /subscriptions/{id}/resourceGroups/{rg}/providers/Microsoft.Network/networkInterfaces/{name}
+	 * it is Microsoft.Network/networkInterfaces
+	 */
+	private String getResourceType(List<String> pathSegments) {
+
+		int providersIndex = pathSegments.lastIndexOf("providers");
+
+		if (providersIndex < 0 || providersIndex + 2 >= pathSegments.size()) {
+			// E.g. the list of resource groups. The last segment might be a name
+			return OTHER_RESOURCE_TYPE;
+		}
+
+		String resourceType = pathSegments.get(providersIndex + 1) + "/" + pathSegments.get(providersIndex + 2);
+
+		// Nested types, e.g. .../virtualNetworks/{name}/subnets
+		for (int i = providersIndex + 4; i < pathSegments.size(); i += 2) {
+			resourceType += "/" + pathSegments.get(i);
+		}
+		return resourceType;
+	}
+}
@@ -0,0 +1,268 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * OkHttp interceptor that keeps the requests of all syncs within the ARM
+ * throttling limits of a subscription (and its tenant):
+ *
+ * - Concurrency: The number of parallel requests per subscription is limited.
+ * The limit is halved whenever ARM throttles (429) or the remaining reads
+ * reported in the x-ms-ratelimit-remaining-subscription-reads /
+ * x-ms-ratelimit-remaining-tenant-reads headers get low, and is increased by
+ * one again while there are plenty of reads left.
+ *
+ * - Retry-After: A throttled request is retried once the time given in the
+ * Retry-After header (or an exponential backoff, if there is none) has passed.
+ * Until then, no other request for the same subscription is sent either.
+ *
+ * The state is kept per subscription and shared by all connections, since ARM
+ * counts the requests of all apps that access the subscription.
+ */
+public class ArmThrottlingInterceptor implements Interceptor {
+
+	private static final Logger logger = LogManager.getLogger(ArmThrottlingInterceptor.class);
+
+	private static final String HEADER_RETRY_AFTER = "Retry-After";
+	private static final String HEADER_REMAINING_SUBSCRIPTION_READS = "x-ms-ratelimit-remaining-subscription-reads";
+	private static final String HEADER_REMAINING_TENANT_READS = "x-ms-ratelimit-remaining-tenant-reads";
+
+	/* Below: reduce the concurrency. Above: slowly increase it again */
+	private static final int LOW_REMAINING_READS = 100;
+	private static final int HIGH_REMAINING_READS = 1000;
+
+	/* Min time between two adjustments of the concurrency of a subscription */
+	private static final long ADJUSTMENT_INTERVAL_MILLIS = 1000;
+
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+	/* Key: subscription id */
+	private static final ConcurrentHashMap<String, SubscriptionThrottle> throttles = new ConcurrentHashMap<String, SubscriptionThrottle>();
+
+	private static final LongAdder throttledResponses = new LongAdder();
+
+	private final String subscription;
+	private final SubscriptionThrottle throttle;
+	private final int maxRetries;
+
+	/**
+	 * Concurrency limit and pause of one subscription. Uses a lock instead of a
+	 * monitor so that waiting virtual threads do not pin their carrier thread
+	 */
+	private static class SubscriptionThrottle {
+
+		private final int maxConcurrency;
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition changed = lock.newCondition();
+
+		/* Guarded by lock */
+		private int concurrency;
+		private int inFlight = 0;
+		private long pausedUntil = 0;
+		private long lastAdjustment = 0;
+
+		private SubscriptionThrottle(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+			this.concurrency = maxConcurrency;
+		}
+
+		private void acquire() throws InterruptedException {
+
+			lock.lock();
+			try {
+				while (true) {
+					long pauseMillis = pausedUntil - System.currentTimeMillis();
+
+					if (pauseMillis > 0) {
+						changed.await(pauseMillis, TimeUnit.MILLISECONDS);
+					} else if (inFlight >= concurrency) {
+						changed.await();
+					} else {
+						inFlight++;
+						return;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void release() {
+
+			lock.lock();
+			try {
+				inFlight--;
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void pause(long millis) {
+
+			lock.lock();
+			try {
+				pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + millis);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void decrease() {
+
+			lock.lock();
+			try {
+				long now = System.currentTimeMillis();
+				if (now - lastAdjustment >= ADJUSTMENT_INTERVAL_MILLIS && concurrency > 1) {
+					concurrency = Math.max(concurrency / 2, 1);
+					lastAdjustment = now;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void increase() {
+
+			lock.lock();
+			try {
+				long now = System.currentTimeMillis();
+				if (now - lastAdjustment >= ADJUSTMENT_INTERVAL_MILLIS && concurrency < maxConcurrency) {
+					concurrency++;
+					lastAdjustment = now;
+					changed.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	public ArmThrottlingInterceptor(String subscription) {
+
+		this.subscription = subscription;
+		this.maxRetries = ServiceConfig.getArmMaxRetries();
+		this.throttle = throttles.computeIfAbsent(subscription,
+				k -> new SubscriptionThrottle(Math.max(ServiceConfig.getArmMaxConcurrency(), 1)));
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+
+		for (int attempt = 0;; attempt++) {
+
+			try {
+				throttle.acquire();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the ARM throttling limits");
+			}
+
+			Response response;
+			try {
+				response = chain.proceed(chain.request());
+			} finally {
+				throttle.release();
+			}
+
+			if (response.code() != 429) {
+				adjustConcurrency(response);
+				return response;
+			}
+
+			throttledResponses.increment();
+			throttle.decrease();
+
+			long retryAfterMillis = getRetryAfterMillis(response, attempt);
+			throttle.pause(retryAfterMillis);
+
+			if (attempt >= maxRetries) {
+				logger.warn("ARM is still throttling subscription " + subscription + " after " + maxRetries
+						+ " retries - giving up on " + chain.request().url());
+				return response;
+			}
+
+			logger.info("ARM throttled subscription " + subscription + " - retrying in " + retryAfterMillis + " ms");
+			response.close();
+		}
+	}
+
+	/** Number of 429 responses received from ARM, across all subscriptions */
+	public static long getThrottledResponses() {
+		return throttledResponses.sum();
+	}
+
+	private void adjustConcurrency(Response response) {
+
+		int remainingReads = Math.min(parseInt(response.header(HEADER_REMAINING_SUBSCRIPTION_READS)),
+				parseInt(response.header(HEADER_REMAINING_TENANT_READS)));
+
+		if (remainingReads == Integer.MAX_VALUE) {
+			// Not a read request or no rate limit headers
+			return;
+		}
+
+		if (remainingReads < LOW_REMAINING_READS) {
+			logger.debug("Only " + remainingReads + " ARM reads left for subscription " + subscription
+					+ " - reducing the concurrency");
+			throttle.decrease();
+		} else if (remainingReads > HIGH_REMAINING_READS) {
+			throttle.increase();
+		}
+	}
+
+	/**
+	 * The delay given in the Retry-After header (seconds or HTTP date), or an
+	 * exponential backoff if there is none
+	 */
+	private long getRetryAfterMillis(Response response, int attempt) {
+
+		String retryAfter = response.header(HEADER_RETRY_AFTER);
+
+		if (retryAfter != null) {
+			try {
+				return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+
+			} catch (NumberFormatException ex) {
+				try {
+					long retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+							.toInstant().toEpochMilli();
+					return Math.max(retryAt - System.currentTimeMillis(), 0);
+
+				} catch (Exception ex2) {
+					logger.debug("Ignoring invalid Retry-After header " + retryAfter);
+				}
+			}
+		}
+
+		return Math.min(TimeUnit.SECONDS.toMillis(1L << Math.min(attempt, 6)), MAX_BACKOFF_MILLIS);
+	}
+
+	private int parseInt(String headerValue) {
+
+		if (headerValue == null) {
+			return Integer.MAX_VALUE;
+		}
+
+		try {
+			return Integer.parseInt(headerValue.trim());
+		} catch (NumberFormatException ex) {
+			return Integer.MAX_VALUE;
+		}
+	}
+}
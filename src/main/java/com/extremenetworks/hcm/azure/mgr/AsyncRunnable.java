@@ -0,0 +1,20 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Work that can also run without occupying the thread that starts it, e.g. an
+ * account sync in fetch mode "async". The SyncScheduler then only uses one of
+ * its threads to start the work and considers it running until the returned
+ * future completes. The work itself may still block other threads, e.g. for
+ * its remote calls.
+ */
+public interface AsyncRunnable extends Runnable {
+
+	/**
+	 * Starts the work. Depending on its configuration, it either completes
+	 * within the call or in the background. The returned future never completes
+	 * exceptionally
+	 */
+	CompletableFuture<Void> runAsync();
+}
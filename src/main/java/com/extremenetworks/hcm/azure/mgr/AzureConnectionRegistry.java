@@ -0,0 +1,279 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import com.microsoft.azure.AzureEnvironment;
+import com.microsoft.azure.management.Azure;
+import com.microsoft.rest.RestClient;
+import com.microsoft.rest.ServiceResponseBuilder;
+import com.microsoft.rest.credentials.ServiceClientCredentials;
+import com.microsoft.rest.serializer.JacksonAdapter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Process-wide cache of authenticated Azure connections, keyed by app id, Azure
+ * tenant id and subscription. All connections share one SSL context, OkHttp
+ * connection pool and dispatcher, so repeated syncs of the same account reuse
+ * both the TLS connections and the cached AAD tokens. Connections that have not
+ * been used for longer than the configured TTL are evicted. The requests of
+ * each subscription are kept within its ARM limits by the
+ * ArmThrottlingInterceptor.
+ *
+ * The ARM base URL can be configured (HCM_AZURE_ARM_BASE_URL) and, together
+ * with credentials from setCredentialsFactory instead of AAD, point to a local
+ * mock server (see the load test).
+ */
+public class AzureConnectionRegistry {
+
+	private static final Logger logger = LogManager.getLogger(AzureConnectionRegistry.class);
+
+	private static final AzureConnectionRegistry instance = new AzureConnectionRegistry();
+
+	private final ConcurrentHashMap<String, CachedConnection> connections = new ConcurrentHashMap<String, CachedConnection>();
+	private final long ttlMillis;
+
+	/* Built once - holds the SSL context, connection pool and dispatcher shared by all connections */
+	private OkHttpClient sharedHttpClient;
+
+	/* Acquires and caches AAD tokens unless replaced via setCredentialsFactory */
+	private volatile CredentialsFactory credentialsFactory = (appId, azureTenantId, key) -> new CachingTokenCredentials(
+			appId, azureTenantId, key, AzureEnvironment.AZURE);
+
+	/** Creates the ARM credentials of a new connection */
+	public interface CredentialsFactory {
+
+		ServiceClientCredentials create(String appId, String azureTenantId, String key);
+	}
+
+	private static class CachedConnection {
+
+		private final Azure azure;
+		private final String key;
+		private final boolean debugRestClient;
+		private volatile long lastUsed;
+
+		private CachedConnection(Azure azure, String key, boolean debugRestClient) {
+			this.azure = azure;
+			this.key = key;
+			this.debugRestClient = debugRestClient;
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	private AzureConnectionRegistry() {
+		ttlMillis = TimeUnit.MINUTES.toMillis(ServiceConfig.getConnectionTtlMinutes());
+	}
+
+	public static AzureConnectionRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached connection for the given app, tenant and subscription or
+	 * creates (and caches) a new one. A cached connection is replaced if the key
+	 * for the app has changed in the meantime.
+	 *
+	 * @return The connection or null in case of any error
+	 */
+	public Azure getConnection(String appId, String azureTenantId, String key, String subscription,
+			boolean enableDebugRestClient) {
+
+		evictExpiredConnections();
+
+		String cacheKey = appId + "|" + azureTenantId + "|" + subscription;
+
+		CachedConnection cachedConnection = connections.compute(cacheKey, (k, existing) -> {
+
+			if (existing != null && existing.key.equals(key) && existing.debugRestClient == enableDebugRestClient) {
+				logger.debug("Reusing cached Azure connection for app " + appId + " and subscription "
+						+ subscription);
+				existing.lastUsed = System.currentTimeMillis();
+				return existing;
+			}
+
+			Azure azure = createConnection(appId, azureTenantId, key, subscription, enableDebugRestClient);
+			return (azure == null) ? null : new CachedConnection(azure, key, enableDebugRestClient);
+		});
+
+		return (cachedConnection == null) ? null : cachedConnection.azure;
+	}
+
+	/**
+	 * Replaces the AAD credentials of all connections that are created from now
+	 * on, e.g. by the load test with a static token for its mock ARM server.
+	 * Connections that are already cached keep their credentials. Not used by
+	 * the service itself
+	 */
+	public void setCredentialsFactory(CredentialsFactory credentialsFactory) {
+		this.credentialsFactory = credentialsFactory;
+	}
+
+	/** Removes the cached connection, e.g. after the account config has changed */
+	public void invalidate(String appId, String azureTenantId, String subscription) {
+		connections.remove(appId + "|" + azureTenantId + "|" + subscription);
+	}
+
+	/** Removes all connections that have not been used within the TTL */
+	public void evictExpiredConnections() {
+
+		long now = System.currentTimeMillis();
+		Iterator<Entry<String, CachedConnection>> itConnections = connections.entrySet().iterator();
+
+		while (itConnections.hasNext()) {
+			Entry<String, CachedConnection> entry = itConnections.next();
+
+			if (now - entry.getValue().lastUsed > ttlMillis) {
+				logger.debug("Evicting idle Azure connection " + entry.getKey());
+				itConnections.remove();
+			}
+		}
+	}
+
+	private Azure createConnection(String appId, String azureTenantId, String key, String subscription,
+			boolean enableDebugRestClient) {
+
+		OkHttpClient httpClient = getSharedHttpClient();
+		if (httpClient == null) {
+			return null;
+		}
+
+		logger.debug("Creating new Azure connection for app " + appId + " and subscription " + subscription);
+
+		String armBaseUrl = ServiceConfig.getArmBaseUrl();
+		ServiceClientCredentials credentials = credentialsFactory.create(appId, azureTenantId, key);
+
+		/*
+		 * newBuilder() shares the SSL socket factory, connection pool and dispatcher.
+		 * The throttling interceptor is added first so that its retries run through
+		 * the complete chain incl. the credentials. The metrics interceptor then sees
+		 * every single attempt
+		 */
+		OkHttpClient.Builder httpClientBuilder = httpClient.newBuilder()
+				.addInterceptor(new ArmThrottlingInterceptor(subscription)).addInterceptor(new ArmMetricsInterceptor());
+
+		retrofit2.Retrofit.Builder retrofitBuilder = new retrofit2.Retrofit.Builder();
+		retrofitBuilder.baseUrl(armBaseUrl);
+
+		RestClient.Builder restClientBuilder = new RestClient.Builder(httpClientBuilder, retrofitBuilder)
+				.withCredentials(credentials).withBaseUrl(armBaseUrl)
+				.withResponseBuilderFactory(new ServiceResponseBuilder.Factory())
+				.withSerializerAdapter(new JacksonAdapter());
+
+		if (enableDebugRestClient) {
+			restClientBuilder.withLogLevel(com.microsoft.rest.LogLevel.BODY_AND_HEADERS); // Logging enabled
+		}
+
+		return Azure.authenticate(restClientBuilder.build(), azureTenantId).withSubscription(subscription);
+	}
+
+	private synchronized OkHttpClient getSharedHttpClient() {
+
+		if (sharedHttpClient == null) {
+
+			OkHttpClient.Builder httpClientBuilder = buildAzureRestClient(10000, 10000);
+			if (httpClientBuilder == null) {
+				return null;
+			}
+
+			sharedHttpClient = httpClientBuilder.connectionPool(new ConnectionPool())
+					.dispatcher(new Dispatcher()).build();
+		}
+
+		return sharedHttpClient;
+	}
+
+	/**
+	 * Builds the HTTP client config that all Azure connections are based on. The
+	 * method tries to load the custom Java trustStore that holds the Azure Root CA
+	 * certificates. This trustStore is used to build a custom SSLContext which is
+	 * then loaded into the client config to ensure all Azure server certificates
+	 * are trusted. Only called once per process.
+	 *
+	 * @param socketTimeout     Timeout in milliseconds to wait for the socket to
+	 *                          any Azure API server to setup
+	 * @param connectionTimeout Timeout in milliseconds to wait for a result on any
+	 *                          API request towards any Azure server
+	 * @return The client builder or null in case of any error
+	 */
+	private OkHttpClient.Builder buildAzureRestClient(int socketTimeout, int connectionTimeout) {
+
+		try {
+			/*
+			 * Load the keyStore file. It is located within the JAR file which is a default
+			 * folder for the classloader to search for files to load. Within the project
+			 * structure, the file is located under src/main/resources
+			 */
+			ClassLoader classLoader = AzureConnectionRegistry.class.getClassLoader();
+			InputStream azureKeyStoreStream = classLoader.getResourceAsStream("azureJavaKeyStore");
+
+			if (azureKeyStoreStream == null) {
+				logger.error(
+						"Couldn't find custom Azure Java trust store file: azureJavaKeyStore - won't be able to communicate with the Azure cloud!");
+				return null;
+			}
+
+			// Create a custom keystore and load the content of the azureJavaKeyStore into
+			// it
+			KeyStore azureKeyStore = KeyStore.getInstance("JKS");
+			azureKeyStore.load(azureKeyStoreStream, "changeit".toCharArray());
+
+			TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm()); // PKIX
+			tmf.init(azureKeyStore); // if you pass null, you get the JVM defaults
+										// which is CACerts file or javax.net.ssl.trustStore
+			KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm()); // PKIX
+			kmf.init(azureKeyStore, "changeit".toCharArray()); // if you pass null, you get the JVM defaults
+			// which is CACerts file or javax.net.ssl.trustStore
+
+			SSLContext sslContext = SSLContext.getInstance("TLS");
+			sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+			TrustManager[] trustManagers = tmf.getTrustManagers();
+			if (trustManagers.length != 1 || !(trustManagers[0] instanceof X509TrustManager)) {
+				throw new IllegalStateException("Unexpected default trust managers:" + Arrays.toString(trustManagers));
+			}
+			X509TrustManager trustManager = (X509TrustManager) trustManagers[0];
+
+			if (trustManager.getAcceptedIssuers() != null && trustManager.getAcceptedIssuers().length > 0) {
+
+				for (X509Certificate issuer : trustManager.getAcceptedIssuers()) {
+					logger.debug("TrustManager accepted issuer: DN: " + issuer.getIssuerDN() + ", subject DN: "
+							+ issuer.getSubjectDN());
+				}
+
+			} else {
+				logger.debug("TrustManager has no accepted issuers");
+			}
+
+			SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
+
+			OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder().sslSocketFactory(sslSocketFactory,
+					trustManager);
+
+			return httpClientBuilder;
+
+		} catch (Exception ex) {
+			logger.error("Error building the Java trust store and SSL socket factory", ex);
+			return null;
+		}
+	}
+}
@@ -1,48 +1,53 @@
 package com.extremenetworks.hcm.azure.mgr;
 
-import java.io.InputStream;
-import java.security.KeyStore;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.TrustManagerFactory;
-import javax.net.ssl.X509TrustManager;
-
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSnapshot;
+import com.extremenetworks.hcm.azure.model.PublicIpAddressSnapshot;
 import com.extremenetworks.hcm.azure.tools.NetworkInterfaceJsonSerializer;
 import com.extremenetworks.hcm.azure.tools.NetworkJsonSerializer;
 import com.extremenetworks.hcm.azure.tools.NetworkSecurityGroupJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.ResourceLookupContext;
+import com.extremenetworks.hcm.azure.tools.SnapshotConverter;
 import com.extremenetworks.hcm.azure.tools.VirtualMachineJsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.azure.PagedList;
-import com.microsoft.azure.credentials.ApplicationTokenCredentials;
 import com.microsoft.azure.management.Azure;
 import com.microsoft.azure.management.compute.VirtualMachine;
 import com.microsoft.azure.management.network.Network;
 import com.microsoft.azure.management.network.NetworkInterface;
 import com.microsoft.azure.management.network.NetworkSecurityGroup;
-import com.microsoft.rest.RestClient;
-import com.microsoft.rest.ServiceResponseBuilder;
-import com.microsoft.rest.serializer.JacksonAdapter;
+import com.microsoft.azure.management.network.PublicIPAddress;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import okhttp3.OkHttpClient;
+import rx.Observable;
+import rx.Scheduler;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
 
 public class AzureManager {
 
 	private static final Logger logger = LogManager.getLogger(AzureManager.class);
 
+	/*
+	 * Resources that may be converted ahead of the consumer of an async listing
+	 * (a few ARM pages). Once they are buffered, the next page is only requested
+	 * after the consumer has caught up
+	 */
+	private static final int ASYNC_BUFFER_SIZE = 2000;
+
 	ObjectMapper jsonMapper = new ObjectMapper();
 	// private int maxResultsGetEc2Instances = 100;
 
@@ -51,11 +56,34 @@ public class AzureManager {
 
 	/* One connection config per Azure account */
 	private HashMap<String, Azure> azureConnections;
+
+	/* Handles the resources of the async variants, see streamResourcesAsync */
+	private final Scheduler asyncScheduler;
+
+	/*
+	 * Issues the ARM requests of the async variants. The requests (and the waits
+	 * of the ArmThrottlingInterceptor) block a thread, so they must not run on the
+	 * small asyncScheduler: One thread per in-flight request
+	 */
+	private final Scheduler armScheduler = Schedulers.io();
+
 	private final Pattern patternIpAddress = Pattern
 			.compile("^([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\." + "([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\."
 					+ "([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\." + "([01]?\\d\\d?|2[0-4]\\d|25[0-5])$");
 
 	public AzureManager() {
+		this(Schedulers.io());
+	}
+
+	/**
+	 * @param asyncScheduler Handles the resources of the async variants (e.g.
+	 *                       streamVMsAsync) as they arrive. Should be backed by a
+	 *                       small, shared thread pool. The ARM requests themselves
+	 *                       are not issued on it
+	 */
+	public AzureManager(Scheduler asyncScheduler) {
+
+		this.asyncScheduler = asyncScheduler;
 
 		// regionsWithConnectionErrors = new HashSet<String>();
 
@@ -74,10 +102,11 @@ public class AzureManager {
 	}
 
 	/**
-	 * Create a new connection object based on the provided parameters and stores it
-	 * in a cache that is keyed-off of the given account name. If that cache already
-	 * holds an existing connection config for that account name then it will be
-	 * overwritten / updated
+	 * Retrieves the connection for the provided parameters from the process-wide
+	 * AzureConnectionRegistry (creating it if needed) and stores it in a cache that
+	 * is keyed-off of the given account name. If that cache already holds an
+	 * existing connection config for that account name then it will be overwritten
+	 * / updated
 	 */
 	public boolean createConnection(String appId, String tenantId, String key, AzureEnvironment azureEnvironment,
 			String subscription) {
@@ -103,127 +132,20 @@ public class AzureManager {
 			return false;
 		}
 
-		ApplicationTokenCredentials credentials = new ApplicationTokenCredentials(appId, tenantId, key,
-				AzureEnvironment.AZURE);
-
-		// Azure azureConnection = Azure
-		// .configure()
-		// .withLogLevel(LogLevel.NONE)
-		// .authenticate(credentials)
-		// .withSubscription(subscription);
+		/* Connections (incl. SSL context, HTTP connection pool and AAD tokens) are shared across syncs */
+		Azure azureConnection = AzureConnectionRegistry.getInstance().getConnection(appId, tenantId, key,
+				subscription, enableDebugRestClient);
 
-		OkHttpClient.Builder httpClientBuilder = buildAzureRestClient(10000, 10000);
-
-		retrofit2.Retrofit.Builder retrofitBuilder = new retrofit2.Retrofit.Builder();
-		retrofitBuilder.baseUrl("https://management.azure.com");
-
-		com.microsoft.rest.RestClient restClient = null;
-
-		if (enableDebugRestClient) {
-			restClient = new RestClient.Builder(httpClientBuilder, retrofitBuilder).withCredentials(credentials)
-					.withBaseUrl("https://management.azure.com")
-					.withResponseBuilderFactory(new ServiceResponseBuilder.Factory())
-					.withSerializerAdapter(new JacksonAdapter())
-					.withLogLevel(com.microsoft.rest.LogLevel.BODY_AND_HEADERS) // Logging enabled
-					.build();
-
-		} else {
-			restClient = new RestClient.Builder(httpClientBuilder, retrofitBuilder).withCredentials(credentials)
-					.withBaseUrl("https://management.azure.com")
-					.withResponseBuilderFactory(new ServiceResponseBuilder.Factory())
-					.withSerializerAdapter(new JacksonAdapter()).build();
+		if (azureConnection == null) {
+			logger.warn("Cannot create Azure connection for application id " + appId);
+			return false;
 		}
 
-		Azure azureConnection = Azure.authenticate(restClient, tenantId).withSubscription(subscription);
-
 		azureConnections.put(appId, azureConnection);
 
 		return true;
 	}
 
-	/**
-	 * Initializes the global member awsClientConfig. This is required before any
-	 * interaction with the AWS service! The method tries to load the custom Java
-	 * trustStore that holds the Amazon Root CA certificate. This trustStore is used
-	 * to build a custom SSLContext which is then loaded into the custom client
-	 * config. This is then used in all calls to the AWS library that interact with
-	 * the AWS cloud to ensure they trust any Amazon server certificates.
-	 * 
-	 * @param socketTimeout     Timeout in milliseconds to wait for the socket to
-	 *                          any AWS API server to setup
-	 * @param connectionTimeout Timeout in milliseconds to wait for a result on any
-	 *                          API request towards any AWS server
-	 * @return True in case of success, False in case of any error.
-	 */
-	private OkHttpClient.Builder buildAzureRestClient(int socketTimeout, int connectionTimeout) {
-
-		try {
-			/*
-			 * Load the keyStore file. It is located within the WAR file under
-			 * /WEB-INF/classes which is a default folder for the classloader to search for
-			 * files to load. Within the project structure, the file is located under
-			 * src/main/resources
-			 */
-			ClassLoader classLoader = AzureManager.class.getClassLoader();
-			InputStream azureKeyStoreStream = classLoader.getResourceAsStream("azureJavaKeyStore");
-
-			// String awsKeyStorePath = System.getProperty("jboss.server.config.dir") +
-			// "/connect/awsJavaKeyStore";
-			// InputStream awskeyStoreStream = new FileInputStream(awsKeyStorePath);
-
-			if (azureKeyStoreStream == null) {
-				logger.error(
-						"Couldn't find custom Azure Java trust store file: azureJavaKeyStore - won't be able to communicate with the Azure cloud!");
-				return null;
-			}
-
-			// Create a custom keystore and load the content of the azureJavaKeyStore into
-			// it
-			KeyStore azureKeyStore = KeyStore.getInstance("JKS");
-			azureKeyStore.load(azureKeyStoreStream, "changeit".toCharArray());
-
-			TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm()); // PKIX
-			tmf.init(azureKeyStore); // if you pass null, you get the JVM defaults
-										// which is CACerts file or javax.net.ssl.trustStore
-			KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm()); // PKIX
-			kmf.init(azureKeyStore, "changeit".toCharArray()); // if you pass null, you get the JVM defaults
-			// which is CACerts file or javax.net.ssl.trustStore
-
-			SSLContext sslContext = SSLContext.getInstance("TLS");
-			sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
-
-			TrustManager[] trustManagers = tmf.getTrustManagers();
-			if (trustManagers.length != 1 || !(trustManagers[0] instanceof X509TrustManager)) {
-				throw new IllegalStateException("Unexpected default trust managers:" + Arrays.toString(trustManagers));
-			}
-			X509TrustManager trustManager = (X509TrustManager) trustManagers[0];
-			// SSLContext sslContext = SSLContext.getInstance("SSL");
-			// sslContext.init(null, new TrustManager[] { trustManager }, null);
-
-			if (trustManager.getAcceptedIssuers() != null && trustManager.getAcceptedIssuers().length > 0) {
-
-				for (X509Certificate issuer : trustManager.getAcceptedIssuers()) {
-					logger.debug("TrustManager accepted issuer: DN: " + issuer.getIssuerDN() + ", subject DN: "
-							+ issuer.getSubjectDN());
-				}
-
-			} else {
-				logger.debug("TrustManager has no accepted issuers");
-			}
-
-			SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-
-			OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder().sslSocketFactory(sslSocketFactory,
-					trustManager);
-
-			return httpClientBuilder;
-
-		} catch (Exception ex) {
-			logger.error("Error building the Java trust store and SSL socket factory", ex);
-			return null;
-		}
-	}
-
 	/**
 	 * Returns the list of all existing "managed" security groups from the given
 	 * Azure account. Uses a special tag ("ExtremePolicyId") as a filter on each
@@ -510,6 +432,369 @@ public class AzureManager {
 		}
 	}
 
+	/**
+	 * Streams all virtual machines from the given account to the consumer. Unlike
+	 * retrieveVMs, no list of all VMs is kept - each VM is handed over as soon as
+	 * its page has been loaded.
+	 * 
+	 * @return False in case of any error
+	 */
+	public boolean streamVMs(String accountName, ResourceConsumer<? super VirtualMachine> consumer) {
+		return streamResources(accountName, "VMs", azure -> azure.virtualMachines().listAsync(), consumer);
+	}
+
+	/**
+	 * Streams all network interfaces from the given account to the consumer, page
+	 * by page.
+	 * 
+	 * @return False in case of any error
+	 */
+	public boolean streamNetworkInterfaces(String accountName, ResourceConsumer<? super NetworkInterface> consumer) {
+		return streamResources(accountName, "network interfaces", azure -> azure.networkInterfaces().listAsync(),
+				consumer);
+	}
+
+	/**
+	 * Streams all networks from the given account to the consumer, page by page.
+	 * 
+	 * @return False in case of any error
+	 */
+	public boolean streamNetworks(String accountName, ResourceConsumer<? super Network> consumer) {
+		return streamResources(accountName, "networks", azure -> azure.networks().listAsync(), consumer);
+	}
+
+	/**
+	 * Streams all security groups from the given account to the consumer, page by
+	 * page.
+	 * 
+	 * @return False in case of any error
+	 */
+	public boolean streamSecurityGroups(String accountName, ResourceConsumer<? super NetworkSecurityGroup> consumer) {
+		return streamResources(accountName, "security groups", azure -> azure.networkSecurityGroups().listAsync(),
+				consumer);
+	}
+
+	/**
+	 * Subscribes to the given (paged) listing and hands every resource to the
+	 * consumer on the calling thread. The SDK loads the next page only once the
+	 * items of the current page have been consumed, so the memory that is used
+	 * is bounded by the page size instead of the number of resources.
+	 */
+	private <T> boolean streamResources(String accountName, String description,
+			Function<Azure, Observable<T>> listing, ResourceConsumer<? super T> consumer) {
+
+		if (accountName == null || accountName.isEmpty()) {
+			logger.warn("Cannot stream " + description + " since the given account name is empty");
+			return false;
+		}
+
+		Azure azureConnection = azureConnections.get(accountName);
+		if (azureConnection == null) {
+			logger.warn("Cannot stream " + description + " since there is no Azure connection for account "
+					+ accountName);
+			return false;
+		}
+
+		try {
+			int count = 0;
+			Iterator<T> itResources = listing.apply(azureConnection).toBlocking().getIterator();
+
+			while (itResources.hasNext()) {
+				consumer.accept(itResources.next());
+				count++;
+			}
+
+			logger.debug("Successfully streamed " + count + " " + description + " from account " + accountName);
+			return true;
+
+		} catch (Exception ex) {
+			logger.error("Error streaming " + description + " from account " + accountName, ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Async variant of streamVMs: Returns right away and hands the VMs to the
+	 * consumer on the async scheduler as their pages arrive.
+	 * 
+	 * @param converter Converts each VM before it is handed to the consumer. Runs
+	 *                  on the thread that requested the page, so it may issue
+	 *                  remote calls
+	 * @return Completes with false in case of any error
+	 */
+	public <R> CompletableFuture<Boolean> streamVMsAsync(String accountName,
+			Function<? super VirtualMachine, ? extends R> converter, ResourceConsumer<? super R> consumer) {
+		return streamResourcesAsync(accountName, "VMs", azure -> azure.virtualMachines().listAsync(), converter,
+				consumer);
+	}
+
+	/**
+	 * Async variant of streamNetworkInterfaces, see streamVMsAsync
+	 * 
+	 * @return Completes with false in case of any error
+	 */
+	public <R> CompletableFuture<Boolean> streamNetworkInterfacesAsync(String accountName,
+			Function<? super NetworkInterface, ? extends R> converter, ResourceConsumer<? super R> consumer) {
+		return streamResourcesAsync(accountName, "network interfaces", azure -> azure.networkInterfaces().listAsync(),
+				converter, consumer);
+	}
+
+	/**
+	 * Async variant of streamNetworks, see streamVMsAsync
+	 * 
+	 * @return Completes with false in case of any error
+	 */
+	public <R> CompletableFuture<Boolean> streamNetworksAsync(String accountName,
+			Function<? super Network, ? extends R> converter, ResourceConsumer<? super R> consumer) {
+		return streamResourcesAsync(accountName, "networks", azure -> azure.networks().listAsync(), converter,
+				consumer);
+	}
+
+	/**
+	 * Async variant of streamSecurityGroups, see streamVMsAsync
+	 * 
+	 * @return Completes with false in case of any error
+	 */
+	public <R> CompletableFuture<Boolean> streamSecurityGroupsAsync(String accountName,
+			Function<? super NetworkSecurityGroup, ? extends R> converter, ResourceConsumer<? super R> consumer) {
+		return streamResourcesAsync(accountName, "security groups",
+				azure -> azure.networkSecurityGroups().listAsync(), converter, consumer);
+	}
+
+	/**
+	 * Subscribes to the given (paged) listing without occupying the calling
+	 * thread. The pages are requested on the ARM scheduler - one thread per
+	 * listing that is in flight, which also does the conversion (it may issue
+	 * remote calls as well). Only the consumer runs on the shared async scheduler,
+	 * so a throttled or slow listing does not hold up the other ones. The consumer
+	 * is called for one resource at a time, never concurrently. A slow consumer
+	 * throttles the listing: At most ASYNC_BUFFER_SIZE converted resources are
+	 * buffered for it.
+	 */
+	private <T, R> CompletableFuture<Boolean> streamResourcesAsync(String accountName, String description,
+			Function<Azure, Observable<T>> listing, Function<? super T, ? extends R> converter,
+			ResourceConsumer<? super R> consumer) {
+
+		CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+
+		if (accountName == null || accountName.isEmpty()) {
+			logger.warn("Cannot stream " + description + " since the given account name is empty");
+			result.complete(false);
+			return result;
+		}
+
+		Azure azureConnection = azureConnections.get(accountName);
+		if (azureConnection == null) {
+			logger.warn("Cannot stream " + description + " since there is no Azure connection for account "
+					+ accountName);
+			result.complete(false);
+			return result;
+		}
+
+		try {
+			AtomicInteger count = new AtomicInteger();
+
+			listing.apply(azureConnection).subscribeOn(armScheduler).<R>map(converter::apply)
+					.observeOn(asyncScheduler, false, ASYNC_BUFFER_SIZE).subscribe(resource -> {
+						try {
+							consumer.accept(resource);
+							count.incrementAndGet();
+						} catch (Exception ex) {
+							// Cancels the listing and ends up in the error handler
+							throw Exceptions.propagate(ex);
+						}
+					}, ex -> {
+						logger.error("Error streaming " + description + " from account " + accountName, ex);
+						result.complete(false);
+					}, () -> {
+						logger.debug("Successfully streamed " + count.get() + " " + description + " from account "
+								+ accountName);
+						result.complete(true);
+					});
+
+		} catch (Exception ex) {
+			logger.error("Error streaming " + description + " from account " + accountName, ex);
+			result.complete(false);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Async variant of retrieveSecurityGroup
+	 * 
+	 * @return Completes with the security group or with null if it does not exist
+	 *         or in case of any error
+	 */
+	public CompletableFuture<NetworkSecurityGroup> retrieveSecurityGroupAsync(String accountName, String groupId) {
+
+		if (groupId == null || groupId.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		Azure azureConnection = azureConnections.get(accountName);
+		if (azureConnection == null) {
+			logger.warn("Cannot retrieve the security group with id " + groupId
+					+ " since there is no Azure connection for account " + accountName);
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return toFuture(azureConnection.networkSecurityGroups().getByIdAsync(groupId),
+				"security group with id " + groupId + " from account " + accountName);
+	}
+
+	/**
+	 * Async variant of retrieveLookupContext: The security groups, networks and
+	 * public IPs are listed in parallel on the ARM scheduler and converted into
+	 * snapshots as they arrive. The network interfaces are listed afterwards
+	 * since they are converted with the other three already in the context.
+	 * 
+	 * @return Completes with the lookup context or with null in case of any error
+	 */
+	public CompletableFuture<ResourceLookupContext> retrieveLookupContextAsync(String accountName,
+			SnapshotConverter snapshotConverter) {
+
+		Azure azureConnection = (accountName == null) ? null : azureConnections.get(accountName);
+		if (azureConnection == null) {
+			logger.warn("Cannot retrieve the resource lookup context since there is no Azure connection for account "
+					+ accountName);
+			return CompletableFuture.completedFuture(null);
+		}
+
+		Observable<List<NetworkSecurityGroupSnapshot>> secGroups = azureConnection.networkSecurityGroups()
+				.listAsync().subscribeOn(armScheduler).map(secGroup -> snapshotConverter.toSnapshot(secGroup))
+				.toList();
+		Observable<List<NetworkSnapshot>> networks = azureConnection.networks().listAsync()
+				.subscribeOn(armScheduler).map(network -> snapshotConverter.toSnapshot(network)).toList();
+		Observable<List<PublicIpAddressSnapshot>> publicIps = azureConnection.publicIPAddresses().listAsync()
+				.subscribeOn(armScheduler).map(publicIp -> snapshotConverter.toSnapshot(publicIp)).toList();
+
+		Observable<ResourceLookupContext> lookupContext = Observable
+				.zip(secGroups, networks, publicIps, (secGroupList, networkList, publicIpList) -> {
+
+					ResourceLookupContext context = snapshotConverter.newLookupContext();
+					secGroupList.forEach(context::addNetworkSecurityGroup);
+					networkList.forEach(context::addNetwork);
+					publicIpList.forEach(context::addPublicIpAddress);
+					return context;
+
+				}).flatMap(context -> {
+
+					SnapshotConverter contextConverter = snapshotConverter.withLookupContext(context);
+
+					return azureConnection.networkInterfaces().listAsync().subscribeOn(armScheduler)
+							.map(nwInterface -> contextConverter.toSnapshot(nwInterface)).toList()
+							.map(nwInterfaceList -> {
+
+								nwInterfaceList.forEach(context::addNetworkInterface);
+
+								logger.debug("Retrieved resource lookup context from account " + accountName + ": "
+										+ context.getNetworkSecurityGroups().size() + " security groups, "
+										+ context.getNetworks().size() + " networks, "
+										+ context.getPublicIpAddresses().size() + " public IPs and "
+										+ nwInterfaceList.size() + " network interfaces");
+								return context;
+							});
+				});
+
+		return toFuture(lookupContext, "resource lookup context from account " + accountName);
+	}
+
+	/**
+	 * Completes with the last item of the given observable, with null if there
+	 * is none or in case of any error
+	 */
+	private <T> CompletableFuture<T> toFuture(Observable<T> observable, String description) {
+
+		CompletableFuture<T> result = new CompletableFuture<T>();
+
+		try {
+			observable.subscribeOn(armScheduler).lastOrDefault(null).subscribe(result::complete, ex -> {
+				logger.error("Error retrieving the " + description, ex);
+				result.complete(null);
+			});
+
+		} catch (Exception ex) {
+			logger.error("Error retrieving the " + description, ex);
+			result.complete(null);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Bulk-retrieves all security groups, networks, public IP addresses and
+	 * network interfaces from the given account (one paged list call per type)
+	 * and indexes them by their lower-case id. The network interfaces are listed
+	 * last and resolved against the other three. The resulting snapshot is used
+	 * by the JSON serializers to resolve references without any further remote
+	 * calls, and the network interfaces (needed for the primary public IP of each
+	 * VM) are published from it as well instead of being listed a second time.
+	 * Each resource is converted right away, so only the compact snapshots are
+	 * kept.
+	 * 
+	 * @param snapshotConverter Converter (and string pool) of the current sync
+	 * @return The lookup context or null in case of any error
+	 */
+	public ResourceLookupContext retrieveLookupContext(String accountName, SnapshotConverter snapshotConverter) {
+
+		if (accountName == null || accountName.isEmpty()) {
+			logger.warn("Cannot retrieve the resource lookup context since the given account name is empty");
+			return null;
+		}
+
+		Azure azureConnection = azureConnections.get(accountName);
+		if (azureConnection == null) {
+			logger.warn("Cannot retrieve the resource lookup context since there is no Azure connection for account "
+					+ accountName);
+			return null;
+		}
+
+		logger.debug("Trying to retrieve all security groups, networks, public IPs and network interfaces from "
+				+ "Azure account " + accountName);
+
+		try {
+			ResourceLookupContext lookupContext = snapshotConverter.newLookupContext();
+
+			/* Streamed page by page - a PagedList would keep all SDK objects until the end */
+			Iterator<NetworkSecurityGroup> itSecGroups = azureConnection.networkSecurityGroups().listAsync()
+					.toBlocking().getIterator();
+			while (itSecGroups.hasNext()) {
+				lookupContext.addNetworkSecurityGroup(snapshotConverter.toSnapshot(itSecGroups.next()));
+			}
+
+			Iterator<Network> itNetworks = azureConnection.networks().listAsync().toBlocking().getIterator();
+			while (itNetworks.hasNext()) {
+				lookupContext.addNetwork(snapshotConverter.toSnapshot(itNetworks.next()));
+			}
+
+			Iterator<PublicIPAddress> itPublicIps = azureConnection.publicIPAddresses().listAsync().toBlocking()
+					.getIterator();
+			while (itPublicIps.hasNext()) {
+				lookupContext.addPublicIpAddress(snapshotConverter.toSnapshot(itPublicIps.next()));
+			}
+
+			SnapshotConverter contextConverter = snapshotConverter.withLookupContext(lookupContext);
+
+			Iterator<NetworkInterface> itNwInterfaces = azureConnection.networkInterfaces().listAsync().toBlocking()
+					.getIterator();
+			while (itNwInterfaces.hasNext()) {
+				lookupContext.addNetworkInterface(contextConverter.toSnapshot(itNwInterfaces.next()));
+			}
+
+			logger.debug("Retrieved resource lookup context from account " + accountName + ": "
+					+ lookupContext.getNetworkSecurityGroups().size() + " security groups, "
+					+ lookupContext.getNetworks().size() + " networks, "
+					+ lookupContext.getPublicIpAddresses().size() + " public IPs and "
+					+ lookupContext.getNetworkInterfaces().size() + " network interfaces");
+			return lookupContext;
+
+		} catch (Exception ex) {
+			logger.error("Error retrieving the resource lookup context from account " + accountName, ex);
+			return null;
+		}
+	}
+
 	/**
 	 * Assigns the given security group to the given instance interface. Azure does
 	 * not support assigning multiple security groups to an interface.
@@ -0,0 +1,122 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.AzureEnvironment;
+import com.microsoft.azure.credentials.ApplicationTokenCredentials;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Application token credentials that keep their AAD tokens for as long as the
+ * cached Azure connection lives and refresh them proactively: A token is renewed
+ * once it is within a few minutes of its expiry (taken from the token's "exp"
+ * claim) instead of waiting until it has already expired. If the renewal fails
+ * while the current token is still valid, the current token is used and the
+ * renewal is retried on the next request.
+ */
+class CachingTokenCredentials extends ApplicationTokenCredentials {
+
+	private static final Logger logger = LogManager.getLogger(CachingTokenCredentials.class);
+	private static final ObjectMapper jsonMapper = new ObjectMapper();
+
+	private static final long REFRESH_MARGIN_MILLIS = 5 * 60 * 1000;
+
+	/* Used if the expiry cannot be read from the token */
+	private static final long DEFAULT_TOKEN_LIFETIME_MILLIS = 10 * 60 * 1000;
+
+	private final String secret;
+
+	/* Key: resource the token has been issued for. Guarded by lock */
+	private final Map<String, CachedToken> tokens = new HashMap<String, CachedToken>();
+
+	/* Not a monitor: The AAD request must not pin the carrier of a virtual thread */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private static class CachedToken {
+
+		private final String accessToken;
+		private final long expiresAt;
+
+		private CachedToken(String accessToken, long expiresAt) {
+			this.accessToken = accessToken;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	CachingTokenCredentials(String clientId, String domain, String secret, AzureEnvironment environment) {
+
+		super(clientId, domain, secret, environment);
+		this.secret = secret;
+	}
+
+	@Override
+	public String getToken(String resource) throws IOException {
+
+		lock.lock();
+		try {
+			CachedToken token = tokens.get(resource);
+			long now = System.currentTimeMillis();
+
+			if (token != null && token.expiresAt - now > REFRESH_MARGIN_MILLIS) {
+				return token.accessToken;
+			}
+
+			try {
+				return acquireToken(resource).accessToken;
+
+			} catch (IOException | RuntimeException ex) {
+
+				if (token != null && token.expiresAt > now) {
+					logger.warn("Error refreshing the AAD token for app " + clientId()
+							+ " - using the current token until it expires", ex);
+					return token.accessToken;
+				}
+				throw ex;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private CachedToken acquireToken(String resource) throws IOException {
+
+		logger.debug("Acquiring a new AAD token for app " + clientId() + " and resource " + resource);
+
+		/* A fresh credentials object has no token cache and therefore always asks AAD */
+		String accessToken = new ApplicationTokenCredentials(clientId(), domain(), secret, environment())
+				.getToken(resource);
+
+		CachedToken token = new CachedToken(accessToken, getExpiry(accessToken));
+		tokens.put(resource, token);
+
+		return token;
+	}
+
+	/** Reads the "exp" claim (seconds since the epoch) from the given JWT */
+	private long getExpiry(String accessToken) {
+
+		try {
+			String[] tokenParts = accessToken.split("\\.");
+			byte[] payload = Base64.getUrlDecoder().decode(tokenParts[1]);
+			JsonNode claims = jsonMapper.readTree(new String(payload, StandardCharsets.UTF_8));
+
+			if (claims.hasNonNull("exp")) {
+				return claims.get("exp").asLong() * 1000;
+			}
+
+		} catch (Exception ex) {
+			logger.debug("Could not read the expiry from the AAD token for app " + clientId(), ex);
+		}
+
+		return System.currentTimeMillis() + DEFAULT_TOKEN_LIFETIME_MILLIS;
+	}
+}
@@ -1,5 +1,7 @@
 package com.extremenetworks.hcm.azure.mgr;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.server.Server;
@@ -7,6 +9,9 @@ import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.glassfish.jersey.servlet.ServletContainer;
 
+import io.prometheus.client.exporter.MetricsServlet;
+import io.prometheus.client.hotspot.DefaultExports;
+
 public class Main {
 
 	private static final Logger logger = LogManager.getLogger(Main.class);
@@ -14,6 +19,9 @@ public class Main {
 	
 	public static void main(String[] args) {
 		
+		/* Shared infrastructure (RabbitMQ, Datastore, executors) for all requests */
+		ServiceContext serviceContext = ServiceContext.start();
+
 		Server server = new Server(80);
 
         ServletContextHandler ctx = 
@@ -27,6 +35,21 @@ public class Main {
         serHol.setInitParameter("jersey.config.server.provider.packages", 
                 "com.extremenetworks.hcm.azure.mgr");
 
+        /* Prometheus metrics of the syncs (see SyncMetrics) and of the JVM */
+        SyncMetrics.registerServiceCollector(serviceContext);
+        DefaultExports.initialize();
+        ctx.addServlet(new ServletHolder(new MetricsServlet()), "/metrics");
+
+        /* Stop accepting requests first, then let running workers finish */
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (Exception ex) {
+                logger.error("Error stopping the web server", ex);
+            }
+            serviceContext.shutdown(30, TimeUnit.SECONDS);
+        }));
+
         try {
             server.start();
             server.join();
@@ -0,0 +1,130 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.PAYLOAD_COMPRESSION;
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.PAYLOAD_FORMAT;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.rabbitmq.client.AMQP;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Encodes the JSON messages for the queue in the configured payload format
+ * (JSON, Smile or CBOR) and compression (none, gzip or LZ4 frame format). The
+ * encoding is signalled in the AMQP content-type and content-encoding
+ * properties. With the defaults (JSON, no compression) the message and its
+ * properties are left untouched, so existing consumers keep working.
+ *
+ * The messages are assembled as JSON from the output of the resource
+ * serializers, so Smile and CBOR are produced by transcoding that JSON token by
+ * token - the structure of the message is the same in all formats.
+ */
+public class PayloadEncoder {
+
+	public static final String CONTENT_TYPE_JSON = "application/json";
+	public static final String CONTENT_TYPE_SMILE = "application/x-jackson-smile";
+	public static final String CONTENT_TYPE_CBOR = "application/cbor";
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+	private static final SmileFactory smileFactory = new SmileFactory();
+	private static final CBORFactory cborFactory = new CBORFactory();
+
+	private final PAYLOAD_FORMAT format;
+	private final PAYLOAD_COMPRESSION compression;
+
+	public PayloadEncoder(PAYLOAD_FORMAT format, PAYLOAD_COMPRESSION compression) {
+		this.format = format;
+		this.compression = compression;
+	}
+
+	/** Encoder for the configured payload format and compression */
+	public static PayloadEncoder fromConfig() {
+		return new PayloadEncoder(ServiceConfig.getPayloadFormat(), ServiceConfig.getPayloadCompression());
+	}
+
+	/**
+	 * @param jsonMessage UTF-8 JSON message
+	 * @return The message in the configured format and compression
+	 */
+	public byte[] encode(byte[] jsonMessage) throws IOException {
+
+		if (format == PAYLOAD_FORMAT.json && compression == PAYLOAD_COMPRESSION.none) {
+			return jsonMessage;
+		}
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(jsonMessage.length / 2);
+
+		try (OutputStream compressedStream = compress(outputStream)) {
+
+			if (format == PAYLOAD_FORMAT.json) {
+				compressedStream.write(jsonMessage);
+
+			} else {
+				JsonFactory binaryFactory = (format == PAYLOAD_FORMAT.smile) ? smileFactory : cborFactory;
+
+				try (JsonParser parser = jsonFactory.createParser(jsonMessage);
+						JsonGenerator binaryGen = binaryFactory.createGenerator(compressedStream)) {
+
+					parser.nextToken();
+					binaryGen.copyCurrentStructure(parser);
+				}
+			}
+		}
+
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Adds the content type and encoding to the given properties (which may be
+	 * null). Returns the given properties unchanged for plain JSON
+	 */
+	public AMQP.BasicProperties getProperties(AMQP.BasicProperties properties) {
+
+		if (format == PAYLOAD_FORMAT.json && compression == PAYLOAD_COMPRESSION.none) {
+			return properties;
+		}
+
+		AMQP.BasicProperties.Builder builder = (properties != null) ? properties.builder()
+				: new AMQP.BasicProperties.Builder();
+
+		builder.contentType(getContentType());
+		if (compression != PAYLOAD_COMPRESSION.none) {
+			builder.contentEncoding(compression.name());
+		}
+
+		return builder.build();
+	}
+
+	public String getContentType() {
+
+		switch (format) {
+		case smile:
+			return CONTENT_TYPE_SMILE;
+		case cbor:
+			return CONTENT_TYPE_CBOR;
+		default:
+			return CONTENT_TYPE_JSON;
+		}
+	}
+
+	/* Closing the returned stream also closes the given one */
+	private OutputStream compress(OutputStream outputStream) throws IOException {
+
+		switch (compression) {
+		case gzip:
+			return new GZIPOutputStream(outputStream, 8192);
+		case lz4:
+			return new LZ4FrameOutputStream(outputStream);
+		default:
+			return outputStream;
+		}
+	}
+}
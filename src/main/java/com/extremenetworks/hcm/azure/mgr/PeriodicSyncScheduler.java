@@ -0,0 +1,171 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.extremenetworks.hcm.azure.mgr.SyncScheduler.SYNC_STATUS;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.QueryResults;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Periodically syncs all configured Azure accounts, so no external trigger is
+ * needed. Once per interval, all SourceSystemAzure entities are enumerated
+ * across all Datastore namespaces (one namespace per tenant). The syncs of
+ * that round are spread evenly over the interval, starting at a random offset,
+ * so they don't all hit ARM at the same time.
+ *
+ * The syncs are handed to the SyncScheduler, so they share its global
+ * concurrency limit with the manually triggered syncs, and an account that is
+ * still syncing is not synced twice.
+ *
+ * There is no coordination between several instances of the service: Each one
+ * syncs all accounts. The periodic sync is therefore opt-in (see
+ * ServiceConfig.ENV_SYNC_INTERVAL_MINUTES) and meant to be enabled on a single
+ * instance only.
+ */
+public class PeriodicSyncScheduler {
+
+	private static final Logger logger = LogManager.getLogger(PeriodicSyncScheduler.class);
+
+	private static final String DS_KIND_NAMESPACE = "__namespace__";
+
+	private final ServiceContext serviceContext;
+	private final long intervalMillis;
+
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+	public PeriodicSyncScheduler(ServiceContext serviceContext, int intervalMinutes) {
+
+		this.serviceContext = serviceContext;
+		this.intervalMillis = TimeUnit.MINUTES.toMillis(intervalMinutes);
+	}
+
+	public void start() {
+
+		logger.info("Syncing all configured Azure accounts every " + TimeUnit.MILLISECONDS.toMinutes(intervalMillis)
+				+ " minutes");
+
+		timer.scheduleAtFixedRate(this::scheduleRound, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/** Cancels the current round. Syncs that are already running are not affected */
+	public void shutdown() {
+		timer.shutdownNow();
+	}
+
+	/** Enumerates all accounts and schedules their syncs within the next interval */
+	private void scheduleRound() {
+
+		try {
+			List<AccountConfig> accountConfigs = retrieveAllAccountConfigs();
+
+			if (accountConfigs.isEmpty()) {
+				logger.debug("No configured Azure accounts found - nothing to sync");
+				return;
+			}
+
+			long spacingMillis = intervalMillis / accountConfigs.size();
+			long offsetMillis = ThreadLocalRandom.current().nextLong(Math.max(spacingMillis, 1));
+
+			logger.info("Scheduling the sync of " + accountConfigs.size() + " Azure accounts, one every "
+					+ spacingMillis + " ms");
+
+			for (AccountConfig accountConfig : accountConfigs) {
+
+				timer.schedule(() -> triggerSync(accountConfig), offsetMillis, TimeUnit.MILLISECONDS);
+				offsetMillis += spacingMillis;
+			}
+
+		} catch (Exception ex) {
+			// Must not throw, otherwise all following rounds are cancelled
+			logger.error("Error scheduling the periodic sync of all Azure accounts", ex);
+		}
+	}
+
+	private void triggerSync(AccountConfig accountConfig) {
+
+		try {
+			String tenantId = accountConfig.getTenantId();
+			String accountId = accountConfig.getAccountId();
+
+			SYNC_STATUS syncStatus = serviceContext.getSyncScheduler().trigger(tenantId, accountId,
+					new ResourcesWorker(tenantId, accountId, accountConfig,
+							serviceContext.getRabbitPublisher(), serviceContext.getDatastore()));
+
+			logger.debug("Periodic sync of tenant " + tenantId + " and account " + accountId + ": " + syncStatus);
+
+		} catch (Exception ex) {
+			logger.error("Error triggering the periodic sync of account " + accountConfig.getAccountId(), ex);
+		}
+	}
+
+	/**
+	 * Retrieves the configs of all Azure accounts of all tenants. Incomplete
+	 * configs are skipped
+	 */
+	private List<AccountConfig> retrieveAllAccountConfigs() {
+
+		Datastore datastore = serviceContext.getDatastore();
+		List<AccountConfig> accountConfigs = new ArrayList<AccountConfig>();
+
+		Query<Key> namespaceQuery = Query.newKeyQueryBuilder().setKind(DS_KIND_NAMESPACE).build();
+		QueryResults<Key> namespaceKeys = datastore.run(namespaceQuery);
+
+		while (namespaceKeys.hasNext()) {
+
+			// The default namespace has no name and does not belong to a tenant
+			String tenantId = namespaceKeys.next().getName();
+			if (tenantId == null || tenantId.isEmpty()) {
+				continue;
+			}
+
+			Query<Entity> srcSysQuery = Query.newEntityQueryBuilder().setNamespace(tenantId)
+					.setKind(ResourceDataStorage.DS_ENTITY_KIND_SRC_SYS_AZURE).build();
+			QueryResults<Entity> srcSysEntities = datastore.run(srcSysQuery);
+
+			while (srcSysEntities.hasNext()) {
+
+				Entity srcSysEntity = srcSysEntities.next();
+				String accountId = srcSysEntity.getKey().getName();
+
+				if (accountId == null || !isComplete(srcSysEntity)) {
+					logger.warn("Skipping incomplete Azure account config " + srcSysEntity.getKey());
+					continue;
+				}
+
+				AccountConfig accountConfig = new AccountConfig();
+				accountConfig.setTenantId(tenantId);
+				accountConfig.setAccountId(accountId);
+				accountConfig.setAppId(srcSysEntity.getString("appId"));
+				accountConfig.setKey(srcSysEntity.getString("key"));
+				accountConfig.setSubscription(srcSysEntity.getString("subscription"));
+				accountConfig.setAzureTenantId(srcSysEntity.getString("tenantId"));
+
+				accountConfigs.add(accountConfig);
+			}
+		}
+
+		return accountConfigs;
+	}
+
+	private boolean isComplete(Entity srcSysEntity) {
+
+		for (String property : new String[] { "appId", "key", "tenantId", "subscription" }) {
+			if (!srcSysEntity.contains(property) || srcSysEntity.isNull(property)
+					|| srcSysEntity.getString(property).isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
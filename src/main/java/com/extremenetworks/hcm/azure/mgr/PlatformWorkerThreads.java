@@ -0,0 +1,30 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Default worker threads: The syncs run on the (bounded) pool of the
+ * SyncScheduler and all of their fetches share one fixed pool of
+ * HCM_AZURE_FETCH_THREADS threads
+ */
+class PlatformWorkerThreads implements WorkerThreads {
+
+	private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(ServiceConfig.getFetchThreads());
+
+	@Override
+	public ThreadFactory getSyncThreadFactory() {
+		return Executors.defaultThreadFactory();
+	}
+
+	@Override
+	public ExecutorService getFetchExecutor() {
+		return fetchExecutor;
+	}
+
+	@Override
+	public SyncScope openSyncScope(String syncName) {
+		return new SyncScope(fetchExecutor, false);
+	}
+}
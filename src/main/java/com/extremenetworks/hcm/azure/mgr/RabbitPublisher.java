@@ -0,0 +1,401 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Thread-safe publisher for the resource messages. AMQP channels must not be
+ * used by several threads at the same time, so each publish borrows a channel
+ * from a pool and returns it right afterwards - concurrent syncs (and the
+ * parallel fetches within a sync) never share a channel.
+ *
+ * All channels run in publisher confirm mode. Publishing does not wait for the
+ * confirm: The message is kept as outstanding until the broker acks it (the
+ * broker usually acks several messages at once). Nacked messages are
+ * republished up to MAX_PUBLISH_ATTEMPTS times, as are the outstanding messages
+ * of a channel that has been closed.
+ */
+public class RabbitPublisher {
+
+	private static final Logger logger = LogManager.getLogger(RabbitPublisher.class);
+
+	private static final int MAX_PUBLISH_ATTEMPTS = 3;
+
+	/* Max time a publish waits for a free channel */
+	private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+	private final String rabbitServer;
+	private final int rabbitPort;
+	private final String queueName;
+	private final int poolSize;
+
+	/* Guarded by "this" */
+	private Connection rabbitConnection;
+	private int openChannels = 0;
+
+	private final LinkedBlockingQueue<PooledChannel> idleChannels = new LinkedBlockingQueue<PooledChannel>();
+	private final Set<PooledChannel> allChannels = ConcurrentHashMap.newKeySet();
+
+	/* Republishes nacked messages - must not happen on the connection's listener thread */
+	private final ExecutorService republishExecutor = Executors.newSingleThreadExecutor();
+
+	// Metrics
+	private final LongAdder publishedCount = new LongAdder();
+	private final LongAdder confirmedCount = new LongAdder();
+	private final LongAdder nackedCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder confirmLatencyNanos = new LongAdder();
+	private final AtomicLong maxConfirmLatencyNanos = new AtomicLong();
+
+	private static class PendingMessage {
+
+		private final AMQP.BasicProperties properties;
+		private final byte[] body;
+		private final int attempt;
+		private final long publishedAt = System.nanoTime();
+
+		private PendingMessage(AMQP.BasicProperties properties, byte[] body, int attempt) {
+			this.properties = properties;
+			this.body = body;
+			this.attempt = attempt;
+		}
+	}
+
+	private class PooledChannel implements ConfirmListener {
+
+		private final Channel channel;
+
+		/* Key: publish sequence number */
+		private final ConcurrentSkipListMap<Long, PendingMessage> outstanding = new ConcurrentSkipListMap<Long, PendingMessage>();
+
+		private PooledChannel(Channel channel) {
+			this.channel = channel;
+		}
+
+		private void publish(PendingMessage message) throws IOException {
+
+			long sequenceNo = channel.getNextPublishSeqNo();
+			outstanding.put(sequenceNo, message);
+
+			try {
+				channel.basicPublish("", queueName, message.properties, message.body);
+				publishedCount.increment();
+
+			} catch (IOException | RuntimeException ex) {
+				outstanding.remove(sequenceNo);
+				throw ex;
+			}
+		}
+
+		@Override
+		public void handleAck(long deliveryTag, boolean multiple) {
+
+			long now = System.nanoTime();
+
+			for (PendingMessage message : removeOutstanding(deliveryTag, multiple)) {
+
+				long latency = now - message.publishedAt;
+				confirmLatencyNanos.add(latency);
+				maxConfirmLatencyNanos.accumulateAndGet(latency, Math::max);
+				confirmedCount.increment();
+			}
+		}
+
+		@Override
+		public void handleNack(long deliveryTag, boolean multiple) {
+
+			for (PendingMessage message : removeOutstanding(deliveryTag, multiple)) {
+				nackedCount.increment();
+				republish(message, "nacked by the broker");
+			}
+		}
+
+		private List<PendingMessage> removeOutstanding(long deliveryTag, boolean multiple) {
+
+			List<PendingMessage> messages = new ArrayList<PendingMessage>();
+
+			if (multiple) {
+				NavigableMap<Long, PendingMessage> confirmed = outstanding.headMap(deliveryTag, true);
+				messages.addAll(confirmed.values());
+				confirmed.clear();
+
+			} else {
+				PendingMessage message = outstanding.remove(deliveryTag);
+				if (message != null) {
+					messages.add(message);
+				}
+			}
+			return messages;
+		}
+	}
+
+	/**
+	 * @param rabbitServer Host name of the RabbitMQ server
+	 * @param queueName    Queue all messages are published to
+	 * @param poolSize     Max number of channels, i.e. of concurrent publishes
+	 */
+	public RabbitPublisher(String rabbitServer, String queueName, int poolSize) {
+		this(rabbitServer, ConnectionFactory.USE_DEFAULT_PORT, queueName, poolSize);
+	}
+
+	/**
+	 * @param rabbitPort AMQP port of the RabbitMQ server, e.g. of a local broker
+	 *                   stub
+	 */
+	public RabbitPublisher(String rabbitServer, int rabbitPort, String queueName, int poolSize) {
+
+		this.rabbitServer = rabbitServer;
+		this.rabbitPort = rabbitPort;
+		this.queueName = queueName;
+		this.poolSize = Math.max(poolSize, 1);
+	}
+
+	public String getQueueName() {
+		return queueName;
+	}
+
+	/** Connects to RabbitMQ. Optional - publish() (re)connects if needed */
+	public synchronized void connect() throws IOException {
+
+		if (rabbitConnection != null && rabbitConnection.isOpen()) {
+			return;
+		}
+
+		try {
+			ConnectionFactory factory = new ConnectionFactory();
+			factory.setHost(rabbitServer);
+			factory.setPort(rabbitPort);
+
+			rabbitConnection = factory.newConnection();
+
+		} catch (TimeoutException ex) {
+			throw new IOException("Timeout connecting to RabbitMQ server " + rabbitServer, ex);
+		}
+
+		logger.debug("Connected to RabbitMQ server " + rabbitServer);
+	}
+
+	/** Publishes the message to the queue without waiting for the broker's confirm */
+	public void publish(byte[] body) throws IOException {
+		publish(null, body);
+	}
+
+	/** Publishes the message to the queue without waiting for the broker's confirm */
+	public void publish(AMQP.BasicProperties properties, byte[] body) throws IOException {
+		publish(new PendingMessage(properties, body, 1));
+	}
+
+	private void publish(PendingMessage message) throws IOException {
+
+		PooledChannel pooledChannel = borrowChannel();
+
+		try {
+			pooledChannel.publish(message);
+
+		} finally {
+			returnChannel(pooledChannel);
+		}
+	}
+
+	private void republish(PendingMessage message, String reason) {
+
+		if (message.attempt >= MAX_PUBLISH_ATTEMPTS) {
+			failedCount.increment();
+			logger.error("Message to queue " + queueName + " was " + reason + " - giving up after " + message.attempt
+					+ " attempts");
+			return;
+		}
+
+		logger.warn("Message to queue " + queueName + " was " + reason + " - republishing it");
+
+		try {
+			republishExecutor.execute(() -> {
+				try {
+					publish(new PendingMessage(message.properties, message.body, message.attempt + 1));
+
+				} catch (Exception ex) {
+					failedCount.increment();
+					logger.error("Error republishing message to queue " + queueName, ex);
+				}
+			});
+
+		} catch (Exception ex) {
+			// Shutting down
+			failedCount.increment();
+		}
+	}
+
+	private PooledChannel borrowChannel() throws IOException {
+
+		try {
+			while (true) {
+
+				PooledChannel pooledChannel = idleChannels.poll();
+
+				if (pooledChannel == null) {
+					pooledChannel = openChannelIfBelowPoolSize();
+				}
+
+				if (pooledChannel == null) {
+					pooledChannel = idleChannels.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+					if (pooledChannel == null) {
+						throw new IOException("No RabbitMQ channel became available within " + BORROW_TIMEOUT_SECONDS
+								+ " seconds");
+					}
+				}
+
+				if (pooledChannel.channel.isOpen()) {
+					return pooledChannel;
+				}
+
+				discardChannel(pooledChannel);
+			}
+
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a RabbitMQ channel");
+		}
+	}
+
+	private void returnChannel(PooledChannel pooledChannel) {
+
+		if (pooledChannel.channel.isOpen()) {
+			idleChannels.offer(pooledChannel);
+		} else {
+			discardChannel(pooledChannel);
+		}
+	}
+
+	private synchronized PooledChannel openChannelIfBelowPoolSize() throws IOException {
+
+		if (openChannels >= poolSize) {
+			return null;
+		}
+
+		connect();
+
+		Channel channel = rabbitConnection.createChannel();
+		channel.confirmSelect();
+		channel.queueDeclare(queueName, false, false, false, null);
+
+		PooledChannel pooledChannel = new PooledChannel(channel);
+		channel.addConfirmListener(pooledChannel);
+
+		allChannels.add(pooledChannel);
+		openChannels++;
+
+		logger.debug("Opened RabbitMQ channel " + openChannels + " of " + poolSize + " for queue " + queueName);
+		return pooledChannel;
+	}
+
+	/** Drops a closed channel. Its unconfirmed messages are republished on another one */
+	private void discardChannel(PooledChannel pooledChannel) {
+
+		synchronized (this) {
+			if (!allChannels.remove(pooledChannel)) {
+				return;
+			}
+			openChannels--;
+		}
+
+		List<PendingMessage> unconfirmed = new ArrayList<PendingMessage>(pooledChannel.outstanding.values());
+		pooledChannel.outstanding.clear();
+
+		for (PendingMessage message : unconfirmed) {
+			republish(message, "not confirmed before its channel was closed");
+		}
+	}
+
+	/**
+	 * Waits (up to the given timeout) for the outstanding confirms and closes the
+	 * connection
+	 */
+	public void shutdown(long timeout, TimeUnit unit) {
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (PooledChannel pooledChannel : allChannels) {
+			try {
+				long remainingMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1);
+				if (pooledChannel.channel.isOpen() && !pooledChannel.channel.waitForConfirms(remainingMillis)) {
+					logger.warn("Some messages were nacked by the broker during shutdown");
+				}
+			} catch (Exception ex) {
+				logger.warn("Not all messages were confirmed before shutdown: " + pooledChannel.outstanding.size()
+						+ " outstanding", ex);
+			}
+		}
+
+		republishExecutor.shutdown();
+
+		synchronized (this) {
+			try {
+				if (rabbitConnection != null && rabbitConnection.isOpen()) {
+					rabbitConnection.close();
+				}
+			} catch (Exception ex) {
+				logger.warn("Error closing the RabbitMQ connection", ex);
+			}
+		}
+	}
+
+	/** Number of messages that have been published but not yet confirmed */
+	public int getUnconfirmedCount() {
+
+		int unconfirmed = 0;
+		for (PooledChannel pooledChannel : allChannels) {
+			unconfirmed += pooledChannel.outstanding.size();
+		}
+		return unconfirmed;
+	}
+
+	/** Total number of messages published, incl. republished ones */
+	public long getPublishedCount() {
+		return publishedCount.sum();
+	}
+
+	public long getConfirmedCount() {
+		return confirmedCount.sum();
+	}
+
+	public long getNackedCount() {
+		return nackedCount.sum();
+	}
+
+	/** Messages that could not be delivered, even after republishing them */
+	public long getFailedCount() {
+		return failedCount.sum();
+	}
+
+	/** Sum of the time between publish and confirm of all confirmed messages */
+	public long getConfirmLatencyNanos() {
+		return confirmLatencyNanos.sum();
+	}
+
+	public long getMaxConfirmLatencyNanos() {
+		return maxConfirmLatencyNanos.get();
+	}
+}
@@ -0,0 +1,11 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+/**
+ * Callback for resources that are streamed one by one (page by page) from
+ * Azure. The resource should not be referenced after the call returns so that
+ * it can be garbage collected before the next page is loaded.
+ */
+public interface ResourceConsumer<T> {
+
+	void accept(T resource) throws Exception;
+}
@@ -0,0 +1,68 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Holds the serialized resources (UTF-8 JSON array) of one type while they are
+ * written to Datastore and published to RabbitMQ. Both read the bytes in place
+ * (getBuffer() and size()) instead of a copy or a String.
+ *
+ * Every thread reuses its buffer for the next resource type. A buffer that has
+ * grown beyond MAX_RETAINED_CAPACITY is dropped once it has been released, so a
+ * single large subscription does not pin that much memory per fetch thread.
+ */
+class ResourceDataBuffer extends ByteArrayOutputStream {
+
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+	private static final int MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+
+	private static final ThreadLocal<ResourceDataBuffer> threadBuffers = new ThreadLocal<ResourceDataBuffer>();
+
+	private ResourceDataBuffer() {
+		super(INITIAL_CAPACITY);
+	}
+
+	/** Returns the (empty) buffer of the current thread. Call release() once done */
+	static ResourceDataBuffer acquire() {
+
+		ResourceDataBuffer buffer = threadBuffers.get();
+
+		if (buffer == null) {
+			buffer = new ResourceDataBuffer();
+			threadBuffers.set(buffer);
+		}
+
+		buffer.reset();
+		return buffer;
+	}
+
+	/**
+	 * Returns a new buffer that is not bound to the current thread, e.g. for
+	 * async fetches whose pages are handled by different threads
+	 */
+	static ResourceDataBuffer allocate() {
+		return new ResourceDataBuffer();
+	}
+
+	/** The content must not be used anymore after the release */
+	void release() {
+
+		if (buf.length > MAX_RETAINED_CAPACITY && threadBuffers.get() == this) {
+			threadBuffers.remove();
+		}
+	}
+
+	/** The internal array - only the first size() bytes are valid */
+	byte[] getBuffer() {
+		return buf;
+	}
+
+	byte byteAt(int index) {
+		return buf[index];
+	}
+
+	byte[] copyOfRange(int from, int to) {
+		return Arrays.copyOfRange(buf, from, to);
+	}
+}
@@ -0,0 +1,676 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.extremenetworks.hcm.azure.mgr.ResourceEntries.ResourceEntry;
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.STORAGE_FORMAT;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.cloud.Timestamp;
+import com.google.cloud.datastore.Blob;
+import com.google.cloud.datastore.BlobValue;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.LongValue;
+import com.google.cloud.datastore.PathElement;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.QueryResults;
+import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.StructuredQuery;
+import com.google.cloud.datastore.StructuredQuery.CompositeFilter;
+import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads and writes the resource data (JSON array of all resources of one type)
+ * of an account in GCP Datastore. Two formats are supported:
+ *
+ * string: The JSON is stored as a single string property on the
+ * AZURE_Resources entity. Limited by the 1 MiB Datastore entity size.
+ *
+ * gzipChunks: The JSON is gzip-compressed and split into AZURE_ResourceChunk
+ * child entities. The AZURE_Resources entity only acts as the manifest that
+ * references the current chunk generation. New chunks are always written
+ * before the manifest is switched over to them, so readers never see a partial
+ * update. The chunks of the previous generation are deleted afterwards.
+ *
+ * entities: Each resource is stored as its own AZURE_Resource entity under the
+ * account's SourceSystemAzure entity, keyed by its Azure resource id. The type,
+ * region, resource group and private IP are indexed, so single resources can
+ * be queried. The AZURE_Resources entity only holds the metadata. The entities
+ * are written in batches of up to 500 entities and 8 MiB per request, in
+ * parallel if a write executor is provided. Entities of resources that no
+ * longer exist are deleted before the metadata (and with it the lastUpdated
+ * timestamp the ETag is derived from) is updated. Resources whose content has
+ * not changed since the previous write of this instance are not rewritten, so
+ * the lastUpdated of a resource entity is the time its content last changed.
+ *
+ * Reading always supports all formats, independent of the configured format.
+ */
+public class ResourceDataStorage {
+
+	private static final Logger logger = LogManager.getLogger(ResourceDataStorage.class);
+
+	public static final String DS_ENTITY_KIND_AZURE_RESOURCES = "AZURE_Resources";
+	public static final String DS_ENTITY_KIND_AZURE_RESOURCE_CHUNK = "AZURE_ResourceChunk";
+	public static final String DS_ENTITY_KIND_AZURE_RESOURCE = "AZURE_Resource";
+	public static final String DS_ENTITY_KIND_SRC_SYS_AZURE = "SourceSystemAzure";
+
+	private static final String FORMAT_GZIP_CHUNKS = "gzipChunks";
+	private static final String FORMAT_ENTITIES = "entities";
+
+	/* Stays well below the 1 MiB entity limit, incl. key and property names */
+	private static final int CHUNK_SIZE = 900 * 1024;
+
+	/* Number of chunks per put / fetch - keeps each request below the 10 MiB limit */
+	private static final int CHUNKS_PER_REQUEST = 8;
+
+	/* Max number of entities per put / delete (Datastore limit) */
+	private static final int ENTITIES_PER_REQUEST = 500;
+
+	/* Max resource data per put - leaves room for the keys and indexed properties below the 10 MiB limit */
+	private static final int ENTITY_BYTES_PER_REQUEST = 8 * 1024 * 1024;
+
+	/*
+	 * Fingerprints of the resource entities this instance has written last, per
+	 * manifest key. Only valid as long as the manifest still carries the
+	 * lastUpdated of that write - otherwise another instance has written since
+	 */
+	private static final ConcurrentHashMap<Key, StoredFingerprints> storedFingerprints = new ConcurrentHashMap<Key, StoredFingerprints>();
+
+	private final Datastore datastore;
+
+	/* Null if the entity batches are written one after the other */
+	private final ExecutorService writeExecutor;
+
+	private static class StoredFingerprints {
+
+		private final Timestamp lastUpdated;
+
+		/* Key: name of the resource entity's key */
+		private final Map<String, String> fingerprints;
+
+		private StoredFingerprints(Timestamp lastUpdated, Map<String, String> fingerprints) {
+			this.lastUpdated = lastUpdated;
+			this.fingerprints = fingerprints;
+		}
+	}
+
+	public ResourceDataStorage(Datastore datastore) {
+		this(datastore, null);
+	}
+
+	/**
+	 * @param writeExecutor Writes the entity batches of the storage format
+	 *                      "entities" in parallel. Must not be used for tasks
+	 *                      that write resource data themselves
+	 */
+	public ResourceDataStorage(Datastore datastore, ExecutorService writeExecutor) {
+
+		this.datastore = datastore;
+		this.writeExecutor = writeExecutor;
+	}
+
+	/**
+	 * Stores the resource data of the given type in the configured storage format
+	 *
+	 * @param namespace    Extreme Networks tenant id
+	 * @param accountId    Extreme Networks account id
+	 * @param resourceData JSON array (UTF-8) of all resources of the given type
+	 * @param length       Number of valid bytes of the resource data
+	 */
+	public void write(String namespace, String accountId, String resourceType, byte[] resourceData, int length)
+			throws InterruptedException {
+
+		write(namespace, accountId, resourceType, resourceData, length, null);
+	}
+
+	/**
+	 * Stores the resource data of the given type in the configured storage format
+	 *
+	 * @param namespace       Extreme Networks tenant id
+	 * @param accountId       Extreme Networks account id
+	 * @param resourceData    JSON array (UTF-8) of all resources of the given type
+	 * @param length          Number of valid bytes of the resource data
+	 * @param resourceEntries Position and indexed properties of each resource
+	 *                        within the resource data. Required for the storage
+	 *                        format "entities" - without them, the data is stored
+	 *                        as gzip chunks instead
+	 */
+	void write(String namespace, String accountId, String resourceType, byte[] resourceData, int length,
+			ResourceEntries resourceEntries) throws InterruptedException {
+
+		Key accountKey = datastore.newKeyFactory().setNamespace(namespace).setKind(DS_ENTITY_KIND_SRC_SYS_AZURE)
+				.newKey(accountId);
+
+		Key manifestKey = datastore.newKeyFactory().setNamespace(namespace).setKind(DS_ENTITY_KIND_AZURE_RESOURCES)
+				.addAncestor(PathElement.of(DS_ENTITY_KIND_SRC_SYS_AZURE, accountId)).newKey(resourceType);
+
+		/* Needed to clean up the chunks or entities of the previous write */
+		Entity previousManifest = datastore.get(manifestKey);
+
+		STORAGE_FORMAT storageFormat = ServiceConfig.getStorageFormat();
+		if (storageFormat == STORAGE_FORMAT.entities && resourceEntries == null) {
+			storageFormat = STORAGE_FORMAT.gzipChunks;
+		}
+
+		Timestamp lastUpdated = Timestamp.now();
+		Entity.Builder manifestBuilder = Entity.newBuilder(manifestKey).set("lastUpdated", lastUpdated)
+				.set("resourceType", resourceType);
+
+		/* Removed right away - a failed write must not leave fingerprints of entities that are not stored */
+		StoredFingerprints previousFingerprints = storedFingerprints.remove(manifestKey);
+		if (previousFingerprints != null && (!isStoredAsEntities(previousManifest) || toMicros(
+				previousFingerprints.lastUpdated) != toMicros(previousManifest.getTimestamp("lastUpdated")))) {
+			previousFingerprints = null;
+		}
+
+		/* Fingerprints of the resource entities that have just been written, if any */
+		Map<String, String> fingerprints = null;
+
+		if (storageFormat == STORAGE_FORMAT.entities) {
+
+			fingerprints = new HashMap<String, String>();
+			Set<Key> resourceKeys = writeEntities(accountKey, resourceType, resourceData, resourceEntries,
+					lastUpdated, previousFingerprints, fingerprints);
+
+			/* Before the manifest: Its new lastUpdated (ETag) must not cover the stale entities */
+			deleteStaleEntities(accountKey, resourceType, resourceKeys);
+
+			manifestBuilder.set("storageFormat", FORMAT_ENTITIES).set("resourceCount",
+					LongValue.newBuilder(resourceEntries.size()).setExcludeFromIndexes(true).build());
+
+			logger.debug("Wrote " + resourceType + " data of account " + accountId + " as "
+					+ resourceEntries.size() + " entities to GCP Datastore");
+
+		} else if (storageFormat == STORAGE_FORMAT.gzipChunks) {
+
+			byte[] compressedData = compress(resourceData, length);
+			String generation = Long.toString(System.currentTimeMillis());
+			int chunkCount = (compressedData.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+			List<Entity> chunks = new ArrayList<Entity>();
+
+			for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+
+				int from = chunkIndex * CHUNK_SIZE;
+				int to = Math.min(from + CHUNK_SIZE, compressedData.length);
+
+				chunks.add(Entity.newBuilder(getChunkKey(manifestKey, generation, chunkIndex))
+						.set("data", BlobValue.newBuilder(Blob.copyFrom(Arrays.copyOfRange(compressedData, from, to)))
+								.setExcludeFromIndexes(true).build())
+						.build());
+
+				if (chunks.size() == CHUNKS_PER_REQUEST) {
+					datastore.put(chunks.toArray(new Entity[chunks.size()]));
+					chunks.clear();
+				}
+			}
+
+			if (!chunks.isEmpty()) {
+				datastore.put(chunks.toArray(new Entity[chunks.size()]));
+			}
+
+			manifestBuilder.set("storageFormat", FORMAT_GZIP_CHUNKS)
+					.set("chunkGeneration", StringValue.newBuilder(generation).setExcludeFromIndexes(true).build())
+					.set("chunkCount", LongValue.newBuilder(chunkCount).setExcludeFromIndexes(true).build())
+					.set("uncompressedSize",
+							LongValue.newBuilder(length).setExcludeFromIndexes(true).build())
+					.set("compressedSize",
+							LongValue.newBuilder(compressedData.length).setExcludeFromIndexes(true).build());
+
+			logger.debug("Writing " + resourceType + " data of account " + accountId + " as " + chunkCount
+					+ " chunks (" + compressedData.length + " bytes compressed) to GCP Datastore");
+
+		} else {
+			/* The only copy of the data - a string property needs a String */
+			manifestBuilder.set("resourceData", StringValue
+					.newBuilder(new String(resourceData, 0, length, StandardCharsets.UTF_8))
+					.setExcludeFromIndexes(true).build());
+
+			logger.debug("Writing " + resourceType + " data of account " + accountId + " (" + length
+					+ " bytes) to GCP Datastore");
+		}
+
+		datastore.put(manifestBuilder.build());
+
+		if (fingerprints != null) {
+			storedFingerprints.put(manifestKey, new StoredFingerprints(lastUpdated, fingerprints));
+		}
+
+		deleteChunks(previousManifest);
+
+		/* Switched to another format: The readers of the previous manifest are done with the entities now */
+		if (storageFormat != STORAGE_FORMAT.entities && isStoredAsEntities(previousManifest)) {
+			deleteStaleEntities(accountKey, resourceType, Collections.<Key>emptySet());
+		}
+	}
+
+	/**
+	 * Writes each resource as its own AZURE_Resource entity. Resources whose
+	 * fingerprint matches the previous one are skipped, their entity is still up
+	 * to date
+	 *
+	 * @param previousFingerprints Optional. Fingerprints of the previous write
+	 * @param fingerprints         Receives the fingerprints of all resources
+	 * @return The keys of all current resources, incl. the skipped ones
+	 */
+	private Set<Key> writeEntities(Key accountKey, String resourceType, byte[] resourceData,
+			ResourceEntries resourceEntries, Timestamp lastUpdated, StoredFingerprints previousFingerprints,
+			Map<String, String> fingerprints) throws InterruptedException {
+
+		KeyFactory keyFactory = datastore.newKeyFactory().setNamespace(accountKey.getNamespace())
+				.setKind(DS_ENTITY_KIND_AZURE_RESOURCE)
+				.addAncestor(PathElement.of(accountKey.getKind(), accountKey.getName()));
+
+		List<ResourceEntry> entries = resourceEntries.getEntries();
+		Set<Key> keys = new HashSet<Key>();
+
+		/* The entries that need to be written and their keys */
+		List<ResourceEntry> changedEntries = new ArrayList<ResourceEntry>();
+		List<Key> changedKeys = new ArrayList<Key>();
+
+		List<Integer> batchEnds = new ArrayList<Integer>();
+		int batchCount = 0;
+		int batchBytes = 0;
+
+		for (int index = 0; index < entries.size(); index++) {
+
+			ResourceEntry entry = entries.get(index);
+
+			/* Azure provides the id of every published resource - the fallback just keeps the resource */
+			String keyName = (entry.id != null) ? entry.id : resourceType + "-" + index;
+			Key key = keyFactory.newKey(keyName);
+			keys.add(key);
+
+			if (entry.fingerprint != null) {
+				fingerprints.put(keyName, entry.fingerprint);
+
+				if (previousFingerprints != null
+						&& entry.fingerprint.equals(previousFingerprints.fingerprints.get(keyName))) {
+					continue;
+				}
+			}
+
+			/* Each batch is limited by the number of entities and by its size */
+			int entryBytes = entry.end - entry.start;
+
+			if (batchCount == ENTITIES_PER_REQUEST
+					|| (batchCount > 0 && batchBytes + entryBytes > ENTITY_BYTES_PER_REQUEST)) {
+				batchEnds.add(changedEntries.size());
+				batchCount = 0;
+				batchBytes = 0;
+			}
+
+			changedEntries.add(entry);
+			changedKeys.add(key);
+			batchCount++;
+			batchBytes += entryBytes;
+		}
+
+		if (changedEntries.isEmpty()) {
+			logger.debug("All " + entries.size() + " " + resourceType + " entities of account "
+					+ accountKey.getName() + " are up to date");
+			return keys;
+		}
+		batchEnds.add(changedEntries.size());
+
+		logger.debug("Writing " + changedEntries.size() + " of " + entries.size() + " " + resourceType
+				+ " entities of account " + accountKey.getName() + " in " + batchEnds.size() + " batches");
+
+		/* The entities (and their JSON strings) of a batch are only created right before it is written */
+		runInBatches(batchEnds, (from, to) -> {
+
+			Entity[] entities = new Entity[to - from];
+
+			for (int index = from; index < to; index++) {
+				entities[index - from] = createResourceEntity(changedKeys.get(index), resourceType, resourceData,
+						changedEntries.get(index), lastUpdated);
+			}
+			datastore.put(entities);
+		});
+
+		return keys;
+	}
+
+	private Entity createResourceEntity(Key key, String resourceType, byte[] resourceData, ResourceEntry entry,
+			Timestamp lastUpdated) {
+
+		Entity.Builder entityBuilder = Entity.newBuilder(key).set("resourceType", resourceType)
+				.set("lastUpdated", lastUpdated)
+				.set("resourceData", StringValue
+						.newBuilder(new String(resourceData, entry.start, entry.end - entry.start, StandardCharsets.UTF_8))
+						.setExcludeFromIndexes(true).build());
+
+		if (entry.regionName != null) {
+			entityBuilder.set("region", entry.regionName);
+		}
+		if (entry.resourceGroupName != null) {
+			entityBuilder.set("resourceGroup", entry.resourceGroupName);
+		}
+		if (entry.privateIp != null) {
+			entityBuilder.set("privateIp", entry.privateIp);
+		}
+		return entityBuilder.build();
+	}
+
+	/**
+	 * Deletes the AZURE_Resource entities of the given type whose resources no
+	 * longer exist, i.e. that are not among the current keys
+	 */
+	private void deleteStaleEntities(Key accountKey, String resourceType, Set<Key> currentKeys)
+			throws InterruptedException {
+
+		try {
+			QueryResults<Key> existingKeys = datastore.run(queryResourceEntities(Query.newKeyQueryBuilder(),
+					accountKey, resourceType));
+
+			List<Key> staleKeys = new ArrayList<Key>();
+
+			while (existingKeys.hasNext()) {
+				Key key = existingKeys.next();
+				if (!currentKeys.contains(key)) {
+					staleKeys.add(key);
+				}
+			}
+
+			if (staleKeys.isEmpty()) {
+				return;
+			}
+
+			logger.debug("Deleting " + staleKeys.size() + " " + resourceType + " entities of account "
+					+ accountKey.getName() + " whose resources no longer exist");
+
+			runInBatches(getBatchEnds(staleKeys.size()), (from, to) -> {
+				List<Key> batch = staleKeys.subList(from, to);
+				datastore.delete(batch.toArray(new Key[batch.size()]));
+			});
+
+		} catch (RuntimeException ex) {
+			logger.warn("Error deleting the stale " + resourceType + " entities of account " + accountKey.getName(),
+					ex);
+		}
+	}
+
+	/** Ancestor query for the AZURE_Resource entities of the given type */
+	private <V> Query<V> queryResourceEntities(StructuredQuery.Builder<V> queryBuilder, Key accountKey,
+			String resourceType) {
+
+		return queryBuilder.setNamespace(accountKey.getNamespace()).setKind(DS_ENTITY_KIND_AZURE_RESOURCE)
+				.setFilter(CompositeFilter.and(PropertyFilter.hasAncestor(accountKey),
+						PropertyFilter.eq("resourceType", resourceType)))
+				.build();
+	}
+
+	/** Datastore stores timestamps with microsecond precision */
+	private static long toMicros(Timestamp timestamp) {
+		return (timestamp == null) ? -1 : timestamp.getSeconds() * 1000000 + timestamp.getNanos() / 1000;
+	}
+
+	/** One Datastore request for the items [from, to) */
+	private interface BatchOperation {
+		void run(int from, int to);
+	}
+
+	/** Batch boundaries for the given number of items, up to ENTITIES_PER_REQUEST each */
+	private List<Integer> getBatchEnds(int itemCount) {
+
+		List<Integer> batchEnds = new ArrayList<Integer>();
+		for (int from = 0; from < itemCount; from += ENTITIES_PER_REQUEST) {
+			batchEnds.add(Math.min(from + ENTITIES_PER_REQUEST, itemCount));
+		}
+		return batchEnds;
+	}
+
+	/**
+	 * Runs the operation on each batch - in parallel on the write executor, if
+	 * there is one. Returns once all batches are done. Throws the first failure,
+	 * if any. Once interrupted, no further batch is written
+	 *
+	 * @param batchEnds The (exclusive) end of each batch. The first batch starts
+	 *                  at 0, each further one at the end of the previous one
+	 */
+	private void runInBatches(List<Integer> batchEnds, BatchOperation operation) throws InterruptedException {
+
+		if (writeExecutor == null || batchEnds.size() <= 1) {
+
+			int from = 0;
+			for (int to : batchEnds) {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedException();
+				}
+				operation.run(from, to);
+				from = to;
+			}
+			return;
+		}
+
+		List<Future<?>> pendingBatches = new ArrayList<Future<?>>();
+
+		int from = 0;
+		for (int to : batchEnds) {
+			int batchFrom = from;
+			pendingBatches.add(writeExecutor.submit(() -> operation.run(batchFrom, to)));
+			from = to;
+		}
+
+		RuntimeException failure = null;
+
+		for (Future<?> pendingBatch : pendingBatches) {
+
+			try {
+				pendingBatch.get();
+
+			} catch (InterruptedException ex) {
+				// The remaining batches must not be written anymore
+				for (Future<?> remainingBatch : pendingBatches) {
+					remainingBatch.cancel(true);
+				}
+				throw ex;
+
+			} catch (ExecutionException ex) {
+				if (failure == null) {
+					failure = (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause()
+							: new IllegalStateException(ex.getCause());
+				}
+			}
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Writes the stored resource data of the given AZURE_Resources entity as a raw
+	 * JSON value to the generator. Chunked data is decompressed while the chunks
+	 * are loaded so that the full JSON is never held in memory.
+	 */
+	public void writeResourceData(Entity resourceDataEntity, JsonGenerator jsonGen) throws IOException {
+
+		if (isStoredAsEntities(resourceDataEntity)) {
+			writeResourceEntities(resourceDataEntity, jsonGen);
+			return;
+		}
+
+		try (Reader resourceData = openResourceData(resourceDataEntity)) {
+
+			char[] buffer = new char[8192];
+			boolean valueStarted = false;
+			int read;
+
+			while ((read = resourceData.read(buffer)) != -1) {
+
+				if (!valueStarted) {
+					jsonGen.writeRawValue(buffer, 0, read);
+					valueStarted = true;
+				} else {
+					jsonGen.writeRaw(buffer, 0, read);
+				}
+			}
+
+			if (!valueStarted) {
+				jsonGen.writeRawValue("[]");
+			}
+		}
+	}
+
+	private Reader openResourceData(Entity resourceDataEntity) throws IOException {
+
+		if (!isChunked(resourceDataEntity)) {
+			return new StringReader(resourceDataEntity.getString("resourceData"));
+		}
+
+		List<Key> chunkKeys = getChunkKeys(resourceDataEntity);
+
+		return new InputStreamReader(new GZIPInputStream(new SequenceInputStream(new ChunkStreams(chunkKeys))),
+				StandardCharsets.UTF_8);
+	}
+
+	/** Writes the resource data of all AZURE_Resource entities of the manifest's type as a JSON array */
+	private void writeResourceEntities(Entity manifest, JsonGenerator jsonGen) throws IOException {
+
+		QueryResults<Entity> resourceEntities = datastore.run(queryResourceEntities(Query.newEntityQueryBuilder(),
+				manifest.getKey().getParent(), manifest.getString("resourceType")));
+
+		jsonGen.writeStartArray();
+
+		while (resourceEntities.hasNext()) {
+			jsonGen.writeRawValue(resourceEntities.next().getString("resourceData"));
+		}
+
+		jsonGen.writeEndArray();
+	}
+
+	private boolean isStoredAsEntities(Entity resourceDataEntity) {
+		return resourceDataEntity != null && resourceDataEntity.contains("storageFormat")
+				&& FORMAT_ENTITIES.equals(resourceDataEntity.getString("storageFormat"));
+	}
+
+	private boolean isChunked(Entity resourceDataEntity) {
+		return resourceDataEntity.contains("storageFormat")
+				&& FORMAT_GZIP_CHUNKS.equals(resourceDataEntity.getString("storageFormat"));
+	}
+
+	private List<Key> getChunkKeys(Entity manifest) {
+
+		String generation = manifest.getString("chunkGeneration");
+		long chunkCount = manifest.getLong("chunkCount");
+
+		List<Key> chunkKeys = new ArrayList<Key>();
+		for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+			chunkKeys.add(getChunkKey(manifest.getKey(), generation, chunkIndex));
+		}
+		return chunkKeys;
+	}
+
+	private Key getChunkKey(Key manifestKey, String generation, int chunkIndex) {
+
+		return Key.newBuilder(manifestKey.getProjectId(), DS_ENTITY_KIND_AZURE_RESOURCE_CHUNK,
+				generation + "-" + chunkIndex).setNamespace(manifestKey.getNamespace())
+				.addAncestors(manifestKey.getAncestors())
+				.addAncestor(PathElement.of(manifestKey.getKind(), manifestKey.getName())).build();
+	}
+
+	/** Deletes all chunks that are referenced by the given (previous) manifest */
+	private void deleteChunks(Entity previousManifest) {
+
+		if (previousManifest == null || !isChunked(previousManifest)) {
+			return;
+		}
+
+		try {
+			List<Key> chunkKeys = getChunkKeys(previousManifest);
+
+			for (int from = 0; from < chunkKeys.size(); from += ENTITIES_PER_REQUEST) {
+				List<Key> batch = chunkKeys.subList(from, Math.min(from + ENTITIES_PER_REQUEST, chunkKeys.size()));
+				datastore.delete(batch.toArray(new Key[batch.size()]));
+			}
+
+		} catch (Exception ex) {
+			logger.warn("Error deleting the previous resource data chunks of " + previousManifest.getKey(), ex);
+		}
+	}
+
+	private byte[] compress(byte[] resourceData, int length) {
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 8192)) {
+			gzipStream.write(resourceData, 0, length);
+
+		} catch (IOException ex) {
+			// Cannot happen for an in-memory stream
+			throw new IllegalStateException(ex);
+		}
+
+		return outputStream.toByteArray();
+	}
+
+	/** Loads the chunks lazily, a few at a time, while they are being read */
+	private class ChunkStreams implements Enumeration<InputStream> {
+
+		private final List<Key> chunkKeys;
+		private int nextChunk = 0;
+		private Iterator<Entity> loadedChunks;
+
+		private ChunkStreams(List<Key> chunkKeys) {
+			this.chunkKeys = chunkKeys;
+		}
+
+		@Override
+		public boolean hasMoreElements() {
+			return nextChunk < chunkKeys.size() || (loadedChunks != null && loadedChunks.hasNext());
+		}
+
+		@Override
+		public InputStream nextElement() {
+
+			if (loadedChunks == null || !loadedChunks.hasNext()) {
+
+				if (nextChunk >= chunkKeys.size()) {
+					throw new NoSuchElementException();
+				}
+
+				List<Key> batch = chunkKeys.subList(nextChunk, Math.min(nextChunk + CHUNKS_PER_REQUEST, chunkKeys.size()));
+				nextChunk += batch.size();
+
+				/* fetch() returns the entities in the order of the keys */
+				loadedChunks = datastore.fetch(batch.toArray(new Key[batch.size()])).iterator();
+			}
+
+			Entity chunk = loadedChunks.next();
+			if (chunk == null) {
+				throw new IllegalStateException("Missing resource data chunk - the data has been updated meanwhile");
+			}
+			return chunk.getBlob("data").asInputStream();
+		}
+	}
+}
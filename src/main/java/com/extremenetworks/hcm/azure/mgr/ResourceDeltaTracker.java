@@ -0,0 +1,207 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Computes the delta of one resource type of one account between two syncs.
+ * For every resource, a content hash of its serialized JSON is kept in memory
+ * (lower-case resource id -> fingerprint). During a sync, each resource is
+ * added to the tracker and compared with the fingerprints of the previous sync.
+ * Once the delta has been published, commit() makes the new fingerprints the
+ * baseline for the next sync.
+ *
+ * The fingerprint ignores the "key" and "update" fields written by the
+ * serializers: Both are derived from the SDK object instance (and differ on
+ * every sync) rather than from the resource itself. The "key" of a tag is of
+ * course part of the fingerprint.
+ *
+ * The fingerprints are not persisted: After a restart the first sync of every
+ * account and type is published as a full snapshot.
+ */
+public class ResourceDeltaTracker {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	/* Key: tenant id | account id | resource type */
+	private static final ConcurrentHashMap<String, Map<String, ResourceFingerprint>> fingerprintsByType = new ConcurrentHashMap<String, Map<String, ResourceFingerprint>>();
+
+	/* Key: tenant id | account id */
+	private static final ConcurrentHashMap<String, AtomicLong> syncGenerations = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final String typeKey;
+	private final Map<String, ResourceFingerprint> previousFingerprints;
+	private final Map<String, ResourceFingerprint> currentFingerprints = new HashMap<String, ResourceFingerprint>();
+
+	private final List<byte[]> addedResources = new ArrayList<byte[]>();
+	private final List<byte[]> changedResources = new ArrayList<byte[]>();
+
+	public ResourceDeltaTracker(String tenantId, String accountId, String resourceType) {
+
+		this.typeKey = tenantId + "|" + accountId + "|" + resourceType;
+		this.previousFingerprints = fingerprintsByType.get(typeKey);
+	}
+
+	/** Returns the next sync generation number for the given account */
+	public static long nextSyncGeneration(String tenantId, String accountId) {
+		return syncGenerations.computeIfAbsent(tenantId + "|" + accountId, k -> new AtomicLong()).incrementAndGet();
+	}
+
+	/**
+	 * Adds the next resource of the current sync
+	 *
+	 * @param resourceJson The serialized resource (UTF-8 JSON). Kept as is if the
+	 *                     resource has been added or changed
+	 */
+	public void add(String resourceId, byte[] resourceJson) {
+		add(resourceId, resourceJson, getFingerprint(resourceJson, 0, resourceJson.length));
+	}
+
+	/**
+	 * Adds the next resource of the current sync whose fingerprint has already
+	 * been computed, see getFingerprint
+	 */
+	void add(String resourceId, byte[] resourceJson, String fingerprint) {
+
+		/* Azure provides the same id in different cases depending on where it is referenced from */
+		String resourceKey = resourceId.toLowerCase();
+		currentFingerprints.put(resourceKey, new ResourceFingerprint(resourceId, fingerprint));
+
+		if (previousFingerprints == null) {
+			return;
+		}
+
+		ResourceFingerprint previousFingerprint = previousFingerprints.get(resourceKey);
+
+		if (previousFingerprint == null) {
+			addedResources.add(resourceJson);
+		} else if (!previousFingerprint.fingerprint.equals(fingerprint)) {
+			changedResources.add(resourceJson);
+		}
+	}
+
+	/** True if there is no baseline yet, i.e. a delta cannot be computed */
+	public boolean hasBaseline() {
+		return previousFingerprints != null;
+	}
+
+	/** JSON (UTF-8) of all resources that did not exist during the previous sync */
+	public List<byte[]> getAddedResources() {
+		return addedResources;
+	}
+
+	/** JSON (UTF-8) of all resources whose content has changed since the previous sync */
+	public List<byte[]> getChangedResources() {
+		return changedResources;
+	}
+
+	/** Ids of all resources that existed during the previous sync but not anymore */
+	public List<String> getRemovedResourceIds() {
+
+		List<String> removedIds = new ArrayList<String>();
+
+		if (previousFingerprints != null) {
+			for (Map.Entry<String, ResourceFingerprint> previous : previousFingerprints.entrySet()) {
+				if (!currentFingerprints.containsKey(previous.getKey())) {
+					removedIds.add(previous.getValue().resourceId);
+				}
+			}
+		}
+
+		return removedIds;
+	}
+
+	/** Makes the fingerprints of the current sync the baseline for the next one */
+	public void commit() {
+		fingerprintsByType.put(typeKey, currentFingerprints);
+	}
+
+	/**
+	 * Hashes all tokens of the given JSON except for the per-instance "key" and
+	 * "update" fields. Falls back to hashing the raw bytes if the JSON cannot be
+	 * parsed
+	 *
+	 * @param resourceJson Contains the serialized resource (UTF-8) at the given
+	 *                     offset
+	 */
+	static String getFingerprint(byte[] resourceJson, int offset, int length) {
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+
+		} catch (NoSuchAlgorithmException ex) {
+			// Every JVM has to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+
+		try (JsonParser parser = jsonFactory.createParser(resourceJson, offset, length)) {
+
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+
+				if (token == JsonToken.FIELD_NAME && isInstanceField(parser)) {
+					parser.nextToken();
+					parser.skipChildren();
+					continue;
+				}
+
+				digest.update((byte) token.id());
+				if (token.isScalarValue() || token == JsonToken.FIELD_NAME) {
+					digest.update(parser.getText().getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+				}
+			}
+
+		} catch (IOException ex) {
+			digest.reset();
+			digest.update(resourceJson, offset, length);
+		}
+
+		return Base64.getEncoder().encodeToString(digest.digest());
+	}
+
+	/** True for the "key" and "update" fields of the SDK objects, false for the key of a tag */
+	private static boolean isInstanceField(JsonParser parser) throws IOException {
+
+		String fieldName = parser.getCurrentName();
+
+		if ("update".equals(fieldName)) {
+			return true;
+		}
+		if (!"key".equals(fieldName)) {
+			return false;
+		}
+
+		/* Tags are written as an array of {"key": .., "value": ..} objects */
+		JsonStreamContext array = parser.getParsingContext().getParent();
+		return array == null || !array.inArray() || array.getParent() == null
+				|| !"tags".equals(array.getParent().getCurrentName());
+	}
+
+	/* Keeps the resource id in the case it was provided in, for the removed ids */
+	private static final class ResourceFingerprint {
+
+		private final String resourceId;
+		private final String fingerprint;
+
+		private ResourceFingerprint(String resourceId, String fingerprint) {
+			this.resourceId = resourceId;
+			this.fingerprint = fingerprint;
+		}
+	}
+}
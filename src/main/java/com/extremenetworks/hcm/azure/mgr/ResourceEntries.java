@@ -0,0 +1,88 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.extremenetworks.hcm.azure.model.NetworkInterfaceSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSnapshot;
+import com.extremenetworks.hcm.azure.model.ResourceSnapshot;
+import com.extremenetworks.hcm.azure.model.VirtualMachineSnapshot;
+
+/**
+ * Position (byte range) and indexed properties of every resource within the
+ * serialized JSON array of one resource type. Recorded by the ResourcesWorker
+ * while it serializes the resources, so that ResourceDataStorage (storage
+ * format "entities") can store each resource as its own entity without parsing
+ * the JSON again.
+ */
+class ResourceEntries {
+
+	static class ResourceEntry {
+
+		final String id;
+		final String regionName;
+		final String resourceGroupName;
+		final String privateIp;
+
+		/* Byte range of the resource's JSON object within the serialized array */
+		final int start;
+		final int end;
+
+		/* Content hash of the resource's JSON, see ResourceDeltaTracker.getFingerprint */
+		final String fingerprint;
+
+		private ResourceEntry(String id, String regionName, String resourceGroupName, String privateIp, int start,
+				int end, String fingerprint) {
+
+			this.id = id;
+			this.regionName = regionName;
+			this.resourceGroupName = resourceGroupName;
+			this.privateIp = privateIp;
+			this.start = start;
+			this.end = end;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	private final List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+
+	/**
+	 * Records the given resource snapshot. Only network interfaces carry a
+	 * private IP - VMs reference theirs through the primary network interface
+	 */
+	void add(ResourceSnapshot resource, int start, int end, String fingerprint) {
+
+		if (resource instanceof VirtualMachineSnapshot) {
+			VirtualMachineSnapshot vm = (VirtualMachineSnapshot) resource;
+			entries.add(new ResourceEntry(vm.id(), vm.regionName(), vm.resourceGroupName(), null, start, end,
+					fingerprint));
+
+		} else if (resource instanceof NetworkInterfaceSnapshot) {
+			NetworkInterfaceSnapshot nwInterface = (NetworkInterfaceSnapshot) resource;
+			entries.add(new ResourceEntry(nwInterface.id(), nwInterface.regionName(),
+					nwInterface.resourceGroupName(), nwInterface.primaryPrivateIP(), start, end, fingerprint));
+
+		} else if (resource instanceof NetworkSnapshot) {
+			NetworkSnapshot network = (NetworkSnapshot) resource;
+			entries.add(new ResourceEntry(network.id(), network.regionName(), network.resourceGroupName(), null,
+					start, end, fingerprint));
+
+		} else if (resource instanceof NetworkSecurityGroupSnapshot) {
+			NetworkSecurityGroupSnapshot secGroup = (NetworkSecurityGroupSnapshot) resource;
+			entries.add(new ResourceEntry(secGroup.id(), secGroup.regionName(), secGroup.resourceGroupName(), null,
+					start, end, fingerprint));
+
+		} else {
+			entries.add(new ResourceEntry(resource.id(), null, null, null, start, end, fingerprint));
+		}
+	}
+
+	List<ResourceEntry> getEntries() {
+		return entries;
+	}
+
+	int size() {
+		return entries.size();
+	}
+}
@@ -1,28 +1,37 @@
 package com.extremenetworks.hcm.azure.mgr;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Base64;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
+import com.extremenetworks.hcm.azure.mgr.SyncScheduler.SYNC_STATUS;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.datastore.Datastore;
-import com.google.cloud.datastore.DatastoreOptions;
 import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.ProjectionEntity;
 import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.QueryResults;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
+import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,45 +43,38 @@ public class ResourceRes {
 	private static ObjectMapper jsonMapper = new ObjectMapper();
 	private static final JsonFactory jsonFactory = new JsonFactory();
 
-	private final String rabbitServer = "rabbit-mq";
-	private final static String RABBIT_QUEUE_NAME = "azure.resources";
-	private static Channel rabbitChannel;
-
-	private ExecutorService executor;
-
 	private final SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 	private final String DS_ENTITY_KIND_AZURE_RESOURCES = "AZURE_Resources";
 	private final String DS_ENTITY_KIND_SRC_SYS_AZURE = "SourceSystemAzure";
 
-	private Datastore datastore;
+	/* Application-scoped infrastructure (RabbitMQ, Datastore, executors) - created once by Main */
+	private final ServiceContext serviceContext;
+	private final Datastore datastore;
+	private final ResourceDataStorage resourceDataStorage;
 
 	public ResourceRes() {
 
-		try {
-			ConnectionFactory factory = new ConnectionFactory();
-			factory.setHost(rabbitServer);
-
-			Connection connection = factory.newConnection();
-			rabbitChannel = connection.createChannel();
-			rabbitChannel.queueDeclare(RABBIT_QUEUE_NAME, false, false, false, null);
-
-			executor = Executors.newCachedThreadPool();
-
-			datastore = DatastoreOptions.getDefaultInstance().getService();
-
-		} catch (Exception ex) {
-			logger.error("Error setting up the 'Resources' resource", ex);
-		}
+		serviceContext = ServiceContext.getInstance();
+		datastore = serviceContext.getDatastore();
+		resourceDataStorage = new ResourceDataStorage(datastore);
 	}
 
 	/**
 	 * Retrieves all resources (VMs, subnets, networks, etc.) for the given project
-	 * ID from the DB
+	 * ID from the DB. The response is streamed: The JSON envelope and the resource
+	 * data of each entity are written directly to the HTTP response while the
+	 * Datastore query results are iterated, so the full response is never held in
+	 * memory.
+	 * 
+	 * Supports conditional requests: The response carries a strong ETag and a
+	 * request with a matching If-None-Match header is answered with 304 Not
+	 * Modified without reading any resource data.
 	 */
 	@GET
 	@Path("all")
-	public String retrieveAllResources(@QueryParam("tenantId") String tenantId,
-			@QueryParam("accountId") String accountId) {
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response retrieveAllResources(@QueryParam("tenantId") String tenantId,
+			@QueryParam("accountId") String accountId, @Context Request request) {
 
 		try {
 			/* Retrieve the config for the given tenant & account from Datastore */
@@ -80,18 +82,85 @@ public class ResourceRes {
 			String accountValidationMsg = retrieveAccountConfigFromDb(tenantId, accountId, accountConfig);
 
 			if (!accountValidationMsg.isEmpty()) {
-				return accountValidationMsg;
+				return Response.ok(accountValidationMsg).build();
+			}
+
+			EntityTag entityTag = computeResourcesEntityTag(tenantId, accountId, accountConfig);
+
+			if (entityTag != null) {
+				ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+				if (notModified != null) {
+					logger.debug("Resource data for tenant " + tenantId + " and account " + accountId
+							+ " has not been modified - ETag " + entityTag.getValue());
+					return notModified.tag(entityTag).build();
+				}
+			}
+
+			StreamingOutput resourcesOutput = outputStream -> writeAllResources(tenantId, accountId, accountConfig,
+					outputStream);
+
+			return Response.ok(resourcesOutput).tag(entityTag).build();
+
+		} catch (Exception ex) {
+			logger.error(ex);
+		}
+
+		return Response.ok("").build();
+	}
+
+	/**
+	 * Computes the ETag of the /all response from the account config and the key
+	 * and lastUpdated timestamp of every resource data entity of the account
+	 * (which changes with every write by the ResourcesWorker). Uses a projection
+	 * query, so the resource data itself is not read.
+	 * 
+	 * @return The ETag or null if it could not be computed
+	 */
+	private EntityTag computeResourcesEntityTag(String tenantId, String accountId, AccountConfig accountConfig) {
+
+		try {
+			Query<ProjectionEntity> queryLastUpdated = Query.newProjectionEntityQueryBuilder().setNamespace(tenantId)
+					.setKind(DS_ENTITY_KIND_AZURE_RESOURCES)
+					.setFilter(PropertyFilter.hasAncestor(getAccountKey(tenantId, accountId)))
+					.setProjection("lastUpdated").build();
+
+			QueryResults<ProjectionEntity> lastUpdatedResults = datastore.run(queryLastUpdated);
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(accountConfig.toString().getBytes(StandardCharsets.UTF_8));
+
+			while (lastUpdatedResults.hasNext()) {
+
+				ProjectionEntity lastUpdatedEntity = lastUpdatedResults.next();
+
+				digest.update(lastUpdatedEntity.getKey().toString().getBytes(StandardCharsets.UTF_8));
+				digest.update(lastUpdatedEntity.getTimestamp("lastUpdated").toString()
+						.getBytes(StandardCharsets.UTF_8));
 			}
 
+			return new EntityTag(Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()));
+
+		} catch (Exception ex) {
+			logger.warn("Error computing the ETag of the resource data for tenant " + tenantId, ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the JSON document with all resource data of the given account to the
+	 * given (HTTP response) stream
+	 */
+	private void writeAllResources(String tenantId, String accountId, AccountConfig accountConfig,
+			OutputStream outputStream) throws IOException {
+
+		try {
 			logger.debug("Retrieving all resource data for tenant " + tenantId + " and configured Azure account "
 					+ accountId + " from GCP Datastore");
 
 			// Retrieve all types of resources from GCP Datastore - SecuritGroups, VMs, etc.
 			Query<Entity> queryResources = Query.newEntityQueryBuilder().setNamespace(tenantId)
 					.setKind(DS_ENTITY_KIND_AZURE_RESOURCES)
-					// .setFilter(CompositeFilter.and(PropertyFilter.eq("done", false),
-					// PropertyFilter.eq("priority", 4)))
-					.build();
+					.setFilter(PropertyFilter.hasAncestor(getAccountKey(tenantId, accountId))).build();
 
 			QueryResults<Entity> queryResourcesResults = datastore.run(queryResources);
 
@@ -101,7 +170,6 @@ public class ResourceRes {
 			 * "dataType": "resources", "sourceSystemType": "azure",
 			 * "sourceSystemProjectId": "418454969983",
 			 */
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 			JsonGenerator jsonGen = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
 
 			jsonGen.writeStartObject();
@@ -136,29 +204,26 @@ public class ResourceRes {
 							dateFormatter.format(resourceDataEntity.getTimestamp("lastUpdated").toDate()));
 					jsonGen.writeStringField("resourceType", resourceType);
 
-					// The list of subnets is already stored as a JSON string in the DB
+					// The list of resources is already stored as JSON (plain or compressed chunks) in the DB
 					jsonGen.writeFieldName("resourceData");
-					jsonGen.writeRawValue(resourceDataEntity.getString("resourceData"));
+					resourceDataStorage.writeResourceData(resourceDataEntity, jsonGen);
 
 					jsonGen.writeEndObject();
 				}
 
 			}
 
-			// Finalize the JSON string and output stream
+			// Finalize the JSON document - closing the generator flushes it to the response
 			jsonGen.writeEndArray();
 			jsonGen.writeEndObject();
 
 			jsonGen.close();
-			outputStream.close();
-
-			return outputStream.toString();
 
 		} catch (Exception ex) {
-			logger.error(ex);
+			// The response has already been (partially) sent at this point
+			logger.error("Error streaming the resource data for tenant " + tenantId + " and account " + accountId, ex);
+			throw new IOException(ex);
 		}
-
-		return "";
 	}
 
 	/**
@@ -166,7 +231,9 @@ public class ResourceRes {
 	 * This is a non-blocking REST call that just starts that worker in a separate
 	 * thread and immediately responds to the caller. Once the background worker is
 	 * done retrieving all data from AWS it will - update the DB - publish the data
-	 * to RabbitMQ
+	 * to RabbitMQ. Triggers for an account that already has a queued or running
+	 * update are coalesced with it (see SyncScheduler). The response reports
+	 * whether the update has been started, queued or merged.
 	 * 
 	 * @param accountId
 	 * @param accessKeyId
@@ -191,11 +258,18 @@ public class ResourceRes {
 			/* Config and start the background worker */
 			logger.debug("Creating background worker to import data from Azure account: " + accountConfig.toString());
 
-			executor.execute(new ResourcesWorker(tenantId, accountId, accountConfig, RABBIT_QUEUE_NAME, rabbitChannel,
-					datastore));
+			SYNC_STATUS syncStatus = serviceContext.getSyncScheduler().trigger(tenantId, accountId,
+					new ResourcesWorker(tenantId, accountId, accountConfig,
+							serviceContext.getRabbitPublisher(), datastore));
 
-			return jsonMapper.writeValueAsString(
-					new ResourcesWebResponse(0, "Successfully triggered an update of all resource data"));
+			if (syncStatus == SYNC_STATUS.rejected) {
+				String msg = "Too many pending updates - please try again later";
+				logger.warn(msg);
+				return jsonMapper.writeValueAsString(new ResourcesWebResponse(7, msg, syncStatus.name()));
+			}
+
+			return jsonMapper.writeValueAsString(new ResourcesWebResponse(0,
+					"Successfully triggered an update of all resource data", syncStatus.name()));
 
 		} catch (Exception ex) {
 			String msg = "General Error";
@@ -211,7 +285,49 @@ public class ResourceRes {
 	}
 
 	/**
-	 * Retrieves the account config for the given tenant and account from Datastore.
+	 * Removes the cached config of the given account (or of all accounts if no
+	 * account id is provided). Needs to be called after an account config has
+	 * been modified in Datastore, otherwise the change will only be picked up once
+	 * the cached config has expired.
+	 * 
+	 * The cache is pod-local: This only invalidates the cache of the instance that
+	 * receives the request. With several replicas behind a load balancer, the
+	 * other ones keep the old config until it expires (see
+	 * HCM_AZURE_ACCOUNT_CONFIG_CACHE_TTL_SECONDS).
+	 */
+	@POST
+	@Path("invalidateAccountConfig")
+	@Produces(MediaType.APPLICATION_JSON)
+	public String invalidateAccountConfig(@QueryParam("tenantId") String tenantId,
+			@QueryParam("accountId") String accountId) {
+
+		try {
+			if (accountId == null || accountId.isEmpty()) {
+				AccountConfigCache.getInstance().invalidateAll();
+				return jsonMapper.writeValueAsString(
+						new ResourcesWebResponse(0, "Successfully invalidated all cached account configs"));
+			}
+
+			if (tenantId == null || tenantId.isEmpty()) {
+				String msg = "Missing URL parameter tenantId";
+				logger.warn(msg);
+				return jsonMapper.writeValueAsString(new ResourcesWebResponse(1, msg));
+			}
+
+			AccountConfigCache.getInstance().invalidate(tenantId, accountId);
+			return jsonMapper.writeValueAsString(
+					new ResourcesWebResponse(0, "Successfully invalidated the cached account config"));
+
+		} catch (Exception ex) {
+			String msg = "General Error";
+			logger.error(msg, ex);
+			return msg;
+		}
+	}
+
+	/**
+	 * Retrieves the account config for the given tenant and account from the
+	 * AccountConfigCache or, on a cache miss, directly by its key from Datastore.
 	 * Stores the matching account config in the provided accountConfig parameter.
 	 * Also validates the given tenantId and accountId params.
 	 * 
@@ -239,54 +355,50 @@ public class ResourceRes {
 				return jsonMapper.writeValueAsString(new ResourcesWebResponse(2, msg));
 			}
 
-			// Retrieve all configured GCP source systems for this tenant
-			logger.debug("Retrieving config for tenant id " + tenantId + " and account id " + accountId);
-
-			Query<Entity> query = Query.newEntityQueryBuilder().setNamespace(tenantId)
-					.setKind(DS_ENTITY_KIND_SRC_SYS_AZURE).build();
-
-			QueryResults<Entity> queryResults = datastore.run(query);
+			if (AccountConfigCache.getInstance().get(tenantId, accountId, accountConfig)) {
+				logger.debug("Found cached config for tenant id " + tenantId + " and account id " + accountId);
+				return "";
+			}
 
-			while (queryResults.hasNext()) {
+			// Retrieve the configured Azure source system directly by its key (Entity key
+			// name == accountId)
+			logger.debug("Retrieving config for tenant id " + tenantId + " and account id " + accountId);
 
-				Entity srcSysEntity = queryResults.next();
-				String srcSysAccountId = srcSysEntity.getKey().getName();
+			Entity srcSysEntity = datastore.get(getAccountKey(tenantId, accountId));
 
-				// Try to match the given account id with the configured account (Entity key
-				// name == accountId)
-				if (accountId.equals(srcSysAccountId)) {
+			if (srcSysEntity == null) {
+				String msg = "Could not find a configured Azure source system for tenant id " + tenantId
+						+ " and account id " + accountId;
+				logger.warn(msg);
+				return jsonMapper.writeValueAsString(new ResourcesWebResponse(5, msg));
+			}
 
-					if (srcSysEntity.isNull("appId") || srcSysEntity.isNull("key") || srcSysEntity.isNull("tenantId")
-							|| srcSysEntity.isNull("subscription")) {
-						String msg = "Found account config but it is missing one or more properties";
-						logger.warn(msg);
-						return jsonMapper.writeValueAsString(new ResourcesWebResponse(3, msg));
-					}
+			if (srcSysEntity.isNull("appId") || srcSysEntity.isNull("key") || srcSysEntity.isNull("tenantId")
+					|| srcSysEntity.isNull("subscription")) {
+				String msg = "Found account config but it is missing one or more properties";
+				logger.warn(msg);
+				return jsonMapper.writeValueAsString(new ResourcesWebResponse(3, msg));
+			}
 
-					if (srcSysEntity.getString("appId").isEmpty() || srcSysEntity.getString("key").isEmpty()
-							|| srcSysEntity.getString("tenantId").isEmpty()
-							|| srcSysEntity.getString("subscription").isEmpty()) {
-						String msg = "Found account config but one or more properties are empty";
-						logger.warn(msg);
-						return jsonMapper.writeValueAsString(new ResourcesWebResponse(4, msg));
-					}
+			if (srcSysEntity.getString("appId").isEmpty() || srcSysEntity.getString("key").isEmpty()
+					|| srcSysEntity.getString("tenantId").isEmpty()
+					|| srcSysEntity.getString("subscription").isEmpty()) {
+				String msg = "Found account config but one or more properties are empty";
+				logger.warn(msg);
+				return jsonMapper.writeValueAsString(new ResourcesWebResponse(4, msg));
+			}
 
-					accountConfig.setTenantId(tenantId);
-					accountConfig.setAccountId(accountId);
-					accountConfig.setAppId(srcSysEntity.getString("appId"));
-					accountConfig.setKey(srcSysEntity.getString("key"));
-					accountConfig.setSubscription(srcSysEntity.getString("subscription"));
-					accountConfig.setAzureTenantId(srcSysEntity.getString("tenantId"));
+			accountConfig.setTenantId(tenantId);
+			accountConfig.setAccountId(accountId);
+			accountConfig.setAppId(srcSysEntity.getString("appId"));
+			accountConfig.setKey(srcSysEntity.getString("key"));
+			accountConfig.setSubscription(srcSysEntity.getString("subscription"));
+			accountConfig.setAzureTenantId(srcSysEntity.getString("tenantId"));
 
-					logger.debug("Found configured Azure source system: " + accountConfig.toString());
-					return "";
-				}
-			}
+			AccountConfigCache.getInstance().put(accountConfig);
 
-			String msg = "Could not find a configured Azure source system for tenant id " + tenantId
-					+ " and account id " + accountId;
-			logger.warn(msg);
-			return jsonMapper.writeValueAsString(new ResourcesWebResponse(5, msg));
+			logger.debug("Found configured Azure source system: " + accountConfig.toString());
+			return "";
 
 		} catch (Exception ex) {
 			String msg = "General Error";
@@ -300,4 +412,13 @@ public class ResourceRes {
 			}
 		}
 	}
+
+	/**
+	 * Key of the configured Azure source system (entity key name == accountId).
+	 * The resource data entities of the account are stored as its descendants
+	 */
+	private Key getAccountKey(String tenantId, String accountId) {
+		return datastore.newKeyFactory().setNamespace(tenantId).setKind(DS_ENTITY_KIND_SRC_SYS_AZURE)
+				.newKey(accountId);
+	}
 }
\ No newline at end of file
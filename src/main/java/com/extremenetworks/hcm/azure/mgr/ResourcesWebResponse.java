@@ -1,10 +1,17 @@
 package com.extremenetworks.hcm.azure.mgr;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 public class ResourcesWebResponse {
 
 	private int code;
 	private String message;
 	
+	// Only provided when triggering an update: started, queued or merged
+	@JsonInclude(Include.NON_NULL)
+	private String syncStatus;
+	
 	
 	public ResourcesWebResponse(int code, String message) {
 		super();
@@ -12,6 +19,11 @@ public class ResourcesWebResponse {
 		this.message = message;
 	}
 	
+	public ResourcesWebResponse(int code, String message, String syncStatus) {
+		this(code, message);
+		this.syncStatus = syncStatus;
+	}
+	
 	public int getCode() {
 		return code;
 	}
@@ -24,5 +36,11 @@ public class ResourcesWebResponse {
 	public void setMessage(String message) {
 		this.message = message;
 	}
+	public String getSyncStatus() {
+		return syncStatus;
+	}
+	public void setSyncStatus(String syncStatus) {
+		this.syncStatus = syncStatus;
+	}
 	
 }
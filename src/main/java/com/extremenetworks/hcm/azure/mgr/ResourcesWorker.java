@@ -1,40 +1,60 @@
 package com.extremenetworks.hcm.azure.mgr;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-
-import com.extremenetworks.hcm.azure.tools.NetworkInterfaceJsonSerializer;
-import com.extremenetworks.hcm.azure.tools.NetworkJsonSerializer;
-import com.extremenetworks.hcm.azure.tools.NetworkSecurityGroupJsonSerializer;
-import com.extremenetworks.hcm.azure.tools.VirtualMachineJsonSerializer;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.FETCH_MODE;
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.PUBLISH_MODE;
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.SERIALIZATION_MODE;
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.STORAGE_FORMAT;
+import com.extremenetworks.hcm.azure.model.NetworkInterfaceSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSnapshot;
+import com.extremenetworks.hcm.azure.model.ResourceSnapshot;
+import com.extremenetworks.hcm.azure.model.VirtualMachineSnapshot;
+import com.extremenetworks.hcm.azure.tools.NetworkInterfaceSnapshotJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.NetworkSecurityGroupSnapshotJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.NetworkSnapshotJsonSerializer;
+import com.extremenetworks.hcm.azure.tools.ResourceLookupContext;
+import com.extremenetworks.hcm.azure.tools.SnapshotConverter;
+import com.extremenetworks.hcm.azure.tools.VirtualMachineSnapshotJsonSerializer;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.google.cloud.Timestamp;
 import com.google.cloud.datastore.Datastore;
-import com.google.cloud.datastore.Entity;
-import com.google.cloud.datastore.Key;
-import com.google.cloud.datastore.PathElement;
-import com.google.cloud.datastore.StringValue;
 import com.microsoft.azure.AzureEnvironment;
-import com.microsoft.azure.management.compute.VirtualMachine;
 import com.microsoft.azure.management.network.Network;
-import com.microsoft.azure.management.network.NetworkInterface;
 import com.microsoft.azure.management.network.NetworkSecurityGroup;
 import com.microsoft.azure.management.network.NetworkSecurityRule;
 import com.microsoft.azure.management.network.Subnet;
-import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.AMQP;
+
+import io.prometheus.client.Histogram;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class ResourcesWorker implements Runnable {
+public class ResourcesWorker implements AsyncRunnable {
 
 	private static final Logger logger = LogManager.getLogger(ResourcesWorker.class);
 	private static ObjectMapper jsonMapper = new ObjectMapper();
@@ -46,26 +66,52 @@ public class ResourcesWorker implements Runnable {
 	// Azure config
 	private AccountConfig accountConfig;
 
-	// Rabbit MQ config
-	private String RABBIT_QUEUE_NAME;
-	private Channel rabbitChannel;
+	// Per-sync snapshot of referenced resources and the converter that resolves references from it
+	private ResourceLookupContext lookupContext;
+	private SnapshotConverter snapshotConverter = new SnapshotConverter();
+	private final ObjectWriter jsonWriter = jsonMapper.writer();
+
+	// Identifies all messages of this run if resources are published in batches
+	private final String syncId = UUID.randomUUID().toString();
+
+	// Sync generation of this run if resources are published as deltas, 0 otherwise
+	private long syncGeneration = 0;
+
+	// Rabbit MQ - shared by all workers, see RabbitPublisher
+	private RabbitPublisher rabbitPublisher;
+	private final PayloadEncoder payloadEncoder = PayloadEncoder.fromConfig();
 
 	// GCP Datastore
 	private Datastore datastore;
-	private final String DS_ENTITY_KIND_AZURE_RESOURCES = "AZURE_Resources";
+	private ResourceDataStorage resourceDataStorage;
 	private final String SRC_SYS_TYPE = "AZURE";
-	private final String DS_ENTITY_KIND_SRC_SYS_AZURE = "SourceSystemAzure";
 
 	// Helpers / Utilities
 	private static final JsonFactory jsonFactory = new JsonFactory();
 	private final SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
+	/*
+	 * Shared by all workers. The serializers are registered only once since the
+	 * mapper is used by several fetch threads at the same time. Resources are
+	 * always converted into snapshots before they are serialized
+	 */
+	static {
+		SimpleModule azureModule = new SimpleModule("AzureModule");
+		azureModule.addSerializer(NetworkInterfaceSnapshot.class, new NetworkInterfaceSnapshotJsonSerializer());
+		azureModule.addSerializer(VirtualMachineSnapshot.class, new VirtualMachineSnapshotJsonSerializer());
+		azureModule.addSerializer(NetworkSnapshot.class, new NetworkSnapshotJsonSerializer());
+		azureModule.addSerializer(NetworkSecurityGroupSnapshot.class,
+				new NetworkSecurityGroupSnapshotJsonSerializer());
+		jsonMapper.registerModule(azureModule);
+	}
+
+	/* The order of the types is also the order in which they are fetched in sequential mode */
 	private enum RESOURCE_TYPES {
-		VM, SecurityGroup, Network, NetworkInterface
+		Network, VM, SecurityGroup, NetworkInterface
 	}
 
-	public ResourcesWorker(String tenantId, String accountId, AccountConfig accountConfig, String RABBIT_QUEUE_NAME,
-			Channel rabbitChannel, Datastore datastore) {
+	public ResourcesWorker(String tenantId, String accountId, AccountConfig accountConfig,
+			RabbitPublisher rabbitPublisher, Datastore datastore) {
 
 		// Extreme Networks GCP tenant id
 		this.tenantId = tenantId;
@@ -74,152 +120,952 @@ public class ResourcesWorker implements Runnable {
 		// Azure account
 		this.accountConfig = accountConfig;
 
-		this.RABBIT_QUEUE_NAME = RABBIT_QUEUE_NAME;
-		this.rabbitChannel = rabbitChannel;
+		this.rabbitPublisher = rabbitPublisher;
 
 		this.datastore = datastore;
-
-		try {
-			SimpleModule azureModule = new SimpleModule("AzureModule");
-			azureModule.addSerializer(NetworkInterface.class, new NetworkInterfaceJsonSerializer());
-			azureModule.addSerializer(VirtualMachine.class, new VirtualMachineJsonSerializer());
-			azureModule.addSerializer(Network.class, new NetworkJsonSerializer());
-			azureModule.addSerializer(NetworkSecurityGroup.class, new NetworkSecurityGroupJsonSerializer());
-			jsonMapper.registerModule(azureModule);
-
-		} catch (Exception ex) {
-			logger.error("Error loading mysql jdbc driver within the worker class", ex);
-		}
+		this.resourceDataStorage = new ResourceDataStorage(datastore,
+				ServiceContext.getInstance().getDatastoreWriteExecutor());
 	}
 
 	@Override
 	public void run() {
 
+		/* Only returns once the sync is complete, like the other fetch modes */
+		if (ServiceConfig.getFetchMode() == FETCH_MODE.async) {
+			runAsync().join();
+			return;
+		}
+
 		logger.debug("Starting Background worker to import data from Azure account: " + accountConfig.toString());
 
+		Histogram.Timer syncTimer = SyncMetrics.syncDuration.startTimer();
+
 		try {
 			String appId = accountConfig.getAppId();
 
 			AzureManager azureManager = new AzureManager();
-			boolean connected = azureManager.createConnection(appId, accountConfig.getAzureTenantId(),
-					accountConfig.getKey(), AzureEnvironment.AZURE, accountConfig.getSubscription());
-
-			if (!connected) {
-				String msg = "Won't be able to retrieve any data from Azure since no authentication/authorization/connection could be established";
-				logger.error(msg);
-				rabbitChannel.basicPublish("", RABBIT_QUEUE_NAME, null, msg.getBytes("UTF-8"));
+			if (!connect(azureManager, appId)) {
 				return;
 			}
 
 			/*
-			 * Retrieve networks (contain subnets)
+			 * Bulk-retrieve security groups, networks and public IPs once so the
+			 * converter can resolve references without one remote call per resource.
+			 * If this fails, the converter falls back to the remote lookups
 			 */
-			List<Object> allNetworks = azureManager.retrieveNetworks(appId);
+			prepareSync(appId, azureManager.retrieveLookupContext(appId, snapshotConverter));
 
-			if (allNetworks == null) {
-				String msg = "Error retrieving networks from Azure - stopping any further processing";
-				logger.warn(msg);
-				rabbitChannel.basicPublish("", RABBIT_QUEUE_NAME, null, msg.getBytes("UTF-8"));
-				return;
+			if (ServiceConfig.getFetchMode() == FETCH_MODE.concurrent) {
+				fetchConcurrently(azureManager, appId);
+			} else {
+				fetchSequentially(azureManager, appId);
 			}
 
-			writeToDb(RESOURCE_TYPES.Network, allNetworks);
-			publishToRabbitMQ(RESOURCE_TYPES.Network, allNetworks);
+			logger.debug("Finished retrieving all resources from Azure app " + appId);
 
-			/*
-			 * Retrieve VMs
-			 */
-			List<Object> allVMs = azureManager.retrieveVMs(appId);
+		} catch (Exception ex) {
+			logger.error(ex);
+			return;
+
+		} finally {
+			syncTimer.observeDuration();
+		}
+	}
+
+	/**
+	 * In fetch mode "async", starts the sync and returns right away. The returned
+	 * future completes once all resource types have been written to the DB and
+	 * published to RabbitMQ. In the other fetch modes, the sync runs within the
+	 * call.
+	 */
+	@Override
+	public CompletableFuture<Void> runAsync() {
+
+		if (ServiceConfig.getFetchMode() != FETCH_MODE.async) {
+			run();
+			return CompletableFuture.completedFuture(null);
+		}
+
+		logger.debug("Starting async background worker to import data from Azure account: "
+				+ accountConfig.toString());
+
+		Histogram.Timer syncTimer = SyncMetrics.syncDuration.startTimer();
+
+		try {
+			String appId = accountConfig.getAppId();
+
+			AzureManager azureManager = new AzureManager(ServiceContext.getInstance().getAsyncScheduler());
+			if (!connect(azureManager, appId)) {
+				syncTimer.observeDuration();
+				return CompletableFuture.completedFuture(null);
+			}
+
+			return azureManager.retrieveLookupContextAsync(appId, snapshotConverter).thenCompose(lookupContext -> {
+
+				prepareSync(appId, lookupContext);
+				return fetchAsynchronously(azureManager, appId);
+
+			}).handle((result, ex) -> {
+
+				if (ex != null) {
+					logger.error("Error retrieving resources from Azure app " + appId, ex);
+				} else {
+					logger.debug("Finished retrieving all resources from Azure app " + appId);
+				}
+
+				syncTimer.observeDuration();
+				return null;
+			});
+
+		} catch (Exception ex) {
+			logger.error(ex);
+			syncTimer.observeDuration();
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+
+	/**
+	 * Creates the connection to the Azure account. Publishes an error message if
+	 * that is not possible
+	 * 
+	 * @return False if no connection could be established
+	 */
+	private boolean connect(AzureManager azureManager, String appId) throws IOException {
+
+		boolean connected = azureManager.createConnection(appId, accountConfig.getAzureTenantId(),
+				accountConfig.getKey(), AzureEnvironment.AZURE, accountConfig.getSubscription());
+
+		if (!connected) {
+			String msg = "Won't be able to retrieve any data from Azure since no authentication/authorization/connection could be established";
+			logger.error(msg);
+			rabbitPublisher.publish(msg.getBytes("UTF-8"));
+		}
+		return connected;
+	}
+
+	/**
+	 * Sets up the per-sync state once the lookup context has been retrieved
+	 * 
+	 * @param lookupContext Null if it could not be retrieved
+	 */
+	private void prepareSync(String appId, ResourceLookupContext lookupContext) {
 
-			if (allVMs == null) {
-				String msg = "Error retrieving VMs from Azure - stopping any further processing";
-				logger.warn(msg);
-				rabbitChannel.basicPublish("", RABBIT_QUEUE_NAME, null, msg.getBytes("UTF-8"));
+		this.lookupContext = lookupContext;
+
+		if (lookupContext != null) {
+			snapshotConverter = snapshotConverter.withLookupContext(lookupContext);
+		} else {
+			logger.warn("Could not retrieve the resource lookup context from Azure app " + appId
+					+ " - referenced resources will be retrieved one by one");
+		}
+
+		if (ServiceConfig.getPublishMode() == PUBLISH_MODE.delta) {
+			syncGeneration = ResourceDeltaTracker.nextSyncGeneration(tenantId, accountId);
+		}
+	}
+
+	/**
+	 * Retrieves one resource type after the other (networks, VMs, security
+	 * groups, network interfaces). Stops any further processing as soon as one
+	 * type cannot be retrieved.
+	 */
+	private void fetchSequentially(AzureManager azureManager, String appId) throws Exception {
+
+		for (RESOURCE_TYPES resourceType : RESOURCE_TYPES.values()) {
+
+			if (!syncResourceType(azureManager, appId, resourceType, true)) {
 				return;
 			}
+		}
+	}
 
-			writeToDb(RESOURCE_TYPES.VM, allVMs);
-			publishToRabbitMQ(RESOURCE_TYPES.VM, allVMs);
+	/**
+	 * Retrieves all resource types in parallel within the sync's scope, i.e. on
+	 * the shared (bounded) fetch executor of the service context or, with virtual
+	 * worker threads, on one virtual thread per type. Each type is written to the
+	 * DB and published to RabbitMQ as soon as it has been retrieved. A failure on
+	 * one type does not affect the others. Returns once all types have been
+	 * processed. If interrupted, the fetches that are still running are
+	 * cancelled.
+	 */
+	private void fetchConcurrently(AzureManager azureManager, String appId) throws InterruptedException {
 
-			/*
-			 * Retrieve Security Groups
-			 */
-			List<Object> allSecGroups = azureManager.retrieveSecurityGroups(appId, "");
+		Map<RESOURCE_TYPES, Future<Boolean>> pendingFetches = new LinkedHashMap<RESOURCE_TYPES, Future<Boolean>>();
+
+		try (SyncScope syncScope = ServiceContext.getInstance().openSyncScope(tenantId + "-" + accountId)) {
+
+			for (RESOURCE_TYPES resourceType : RESOURCE_TYPES.values()) {
+				pendingFetches.put(resourceType,
+						syncScope.fork(() -> syncResourceType(azureManager, appId, resourceType, false)));
+			}
+
+			for (Entry<RESOURCE_TYPES, Future<Boolean>> pendingFetch : pendingFetches.entrySet()) {
+
+				try {
+					pendingFetch.getValue().get();
+
+				} catch (ExecutionException ex) {
+					logger.error("Error retrieving resources of type " + pendingFetch.getKey() + " from Azure app "
+							+ appId, ex.getCause());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retrieves all resource types in parallel without occupying a sync thread
+	 * while ARM is scanned: The pages are requested on the AzureManager's ARM
+	 * threads (one per listing in flight) and serialized on the small, shared
+	 * async scheduler as they arrive. Once a type is complete, it is written to
+	 * the DB and published to RabbitMQ on the fetch executor since both of these
+	 * calls block. A failure on one type does not affect the others.
+	 */
+	private CompletableFuture<Void> fetchAsynchronously(AzureManager azureManager, String appId) {
+
+		List<CompletableFuture<Boolean>> fetches = new ArrayList<CompletableFuture<Boolean>>();
+
+		for (RESOURCE_TYPES resourceType : RESOURCE_TYPES.values()) {
+			fetches.add(syncResourceTypeAsync(azureManager, appId, resourceType));
+		}
+
+		return CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[fetches.size()]));
+	}
+
+	/**
+	 * Async variant of syncResourceType. The resources are always streamed,
+	 * independent of the serialization mode.
+	 * 
+	 * @return Completes with false if the resources could not be retrieved or if
+	 *         the write has been interrupted
+	 */
+	private CompletableFuture<Boolean> syncResourceTypeAsync(AzureManager azureManager, String appId,
+			RESOURCE_TYPES resourceType) {
 
-			if (allSecGroups == null) {
-				String msg = "Error retrieving security groups from Azure - stopping any further processing";
-				logger.warn(msg);
-				rabbitChannel.basicPublish("", RABBIT_QUEUE_NAME, null, msg.getBytes("UTF-8"));
+		/* Only needed if resources are published as deltas */
+		ResourceDeltaTracker deltaTracker = null;
+		if (syncGeneration > 0) {
+			deltaTracker = new ResourceDeltaTracker(tenantId, accountId, resourceType.name());
+		}
+
+		/* Only needed if each resource is stored as its own entity */
+		ResourceEntries resourceEntries = null;
+		if (ServiceConfig.getStorageFormat() == STORAGE_FORMAT.entities) {
+			resourceEntries = new ResourceEntries();
+		}
+
+		/* Not bound to a thread - the pages may be handled by different threads */
+		ResourceDataBuffer resourceData = ResourceDataBuffer.allocate();
+		ResourceWriter resourceWriter = new ResourceWriter(resourceType, resourceData, resourceEntries, deltaTracker);
+
+		Histogram.Timer fetchTimer = SyncMetrics.startPhase(SyncMetrics.PHASE_FETCH, resourceType.name());
+		CompletableFuture<Boolean> streamed;
+
+		try {
+			resourceWriter.start();
+			streamed = streamResourceTypeAsync(azureManager, appId, resourceType, resourceWriter);
+
+		} catch (Exception ex) {
+			logger.error("Error generating JSON content for the " + getDescription(resourceType), ex);
+			streamed = CompletableFuture.completedFuture(false);
+		}
+
+		ResourceEntries typeResourceEntries = resourceEntries;
+		ResourceDeltaTracker typeDeltaTracker = deltaTracker;
+
+		return streamed.thenApplyAsync(success -> {
+
+			fetchTimer.observeDuration();
+
+			if (!success || !resourceWriter.finish()) {
+				resourceWriter.close();
+
+				try {
+					publishRetrievalError(resourceType, false);
+				} catch (IOException ex) {
+					logger.error("Error publishing the retrieval error for the " + getDescription(resourceType), ex);
+				}
+				return false;
+			}
+
+			return writeAndPublish(resourceType, resourceData, typeResourceEntries, typeDeltaTracker);
+
+		}, ServiceContext.getInstance().getFetchExecutor());
+	}
+
+	/**
+	 * Async variant of getResourceSource: Streams all resources of the given type
+	 * to the consumer, converted into snapshots. The conversion runs on the
+	 * thread that requested the page since it may issue remote calls (if there is
+	 * no lookup context)
+	 * 
+	 * @return Completes with false in case of any error
+	 */
+	private CompletableFuture<Boolean> streamResourceTypeAsync(AzureManager azureManager, String appId,
+			RESOURCE_TYPES resourceType, ResourceConsumer<Object> consumer) throws Exception {
+
+		switch (resourceType) {
+		case Network:
+			if (lookupContext != null) {
+				return CompletableFuture.completedFuture(writeAll(lookupContext.getNetworks(), consumer));
+			}
+			return azureManager.streamNetworksAsync(appId, network -> snapshotConverter.toSnapshot(network),
+					consumer);
+		case VM:
+			return azureManager.streamVMsAsync(appId, vm -> snapshotConverter.toSnapshot(vm), consumer);
+		case SecurityGroup:
+			if (lookupContext != null) {
+				return CompletableFuture.completedFuture(writeAll(lookupContext.getNetworkSecurityGroups(), consumer));
+			}
+			return azureManager.streamSecurityGroupsAsync(appId, secGroup -> snapshotConverter.toSnapshot(secGroup),
+					consumer);
+		case NetworkInterface:
+			if (lookupContext != null) {
+				return CompletableFuture.completedFuture(writeAll(lookupContext.getNetworkInterfaces(), consumer));
+			}
+			return azureManager.streamNetworkInterfacesAsync(appId,
+					nwInterface -> snapshotConverter.toSnapshot(nwInterface), consumer);
+		default:
+			return CompletableFuture.completedFuture(false);
+		}
+	}
+
+	/**
+	 * Retrieves all resources of the given type from Azure, writes them to the DB
+	 * and publishes them to RabbitMQ.
+	 * 
+	 * @param stopOnError Only used for the error message that is published in
+	 *                    case the resources could not be retrieved
+	 * @return False if the resources could not be retrieved from Azure or if the
+	 *         thread has been interrupted
+	 */
+	private boolean syncResourceType(AzureManager azureManager, String appId, RESOURCE_TYPES resourceType,
+			boolean stopOnError) throws IOException {
+
+		/* Only needed if resources are published as deltas */
+		ResourceDeltaTracker deltaTracker = null;
+		if (syncGeneration > 0) {
+			deltaTracker = new ResourceDeltaTracker(tenantId, accountId, resourceType.name());
+		}
+
+		/* Only needed if each resource is stored as its own entity */
+		ResourceEntries resourceEntries = null;
+		if (ServiceConfig.getStorageFormat() == STORAGE_FORMAT.entities) {
+			resourceEntries = new ResourceEntries();
+		}
+
+		/* Rendered once - the DB write and the RabbitMQ messages both use these bytes */
+		ResourceDataBuffer resourceData = ResourceDataBuffer.acquire();
+
+		try {
+			if (ServiceConfig.getSerializationMode() == SERIALIZATION_MODE.streaming) {
+
+				Histogram.Timer fetchTimer = SyncMetrics.startPhase(SyncMetrics.PHASE_FETCH, resourceType.name());
+				boolean streamed = streamResourceType(azureManager, appId, resourceType, resourceData,
+						resourceEntries, deltaTracker);
+				fetchTimer.observeDuration();
+
+				if (!streamed) {
+					publishRetrievalError(resourceType, stopOnError);
+					return false;
+				}
+
+				return writeAndPublish(resourceType, resourceData, resourceEntries, deltaTracker);
+			}
+
+			Histogram.Timer fetchTimer = SyncMetrics.startPhase(SyncMetrics.PHASE_FETCH, resourceType.name());
+			List<Object> resources = retrieveResourceType(azureManager, appId, resourceType);
+			fetchTimer.observeDuration();
+
+			if (resources == null) {
+				publishRetrievalError(resourceType, stopOnError);
+				return false;
+			}
+
+			Histogram.Timer serializeTimer = SyncMetrics.startPhase(SyncMetrics.PHASE_SERIALIZE,
+					resourceType.name());
+			boolean serialized = serializeResources(resourceType, consumer -> writeAll(resources, consumer),
+					resourceData, resourceEntries, deltaTracker);
+			serializeTimer.observeDuration();
+
+			if (!serialized) {
+				publishRetrievalError(resourceType, stopOnError);
+				return false;
+			}
+
+			return writeAndPublish(resourceType, resourceData, resourceEntries, deltaTracker);
+
+		} finally {
+			resourceData.release();
+		}
+	}
+
+	/**
+	 * Writes the serialized resources to the DB and publishes them to RabbitMQ.
+	 * Nothing is published once the thread has been interrupted (the executors
+	 * are cancelled at shutdown and when a sync scope is closed)
+	 * 
+	 * @return False if the thread has been interrupted
+	 */
+	private boolean writeAndPublish(RESOURCE_TYPES resourceType, ResourceDataBuffer resourceData,
+			ResourceEntries resourceEntries, ResourceDeltaTracker deltaTracker) {
+
+		Histogram.Timer putTimer = SyncMetrics.startPhase(SyncMetrics.PHASE_DATASTORE_PUT, resourceType.name());
+		writeToDb(resourceType, resourceData, resourceEntries);
+		putTimer.observeDuration();
+
+		if (Thread.currentThread().isInterrupted()) {
+			return false;
+		}
+
+		Histogram.Timer publishTimer = SyncMetrics.startPhase(SyncMetrics.PHASE_PUBLISH, resourceType.name());
+		publishResources(resourceType, resourceData, deltaTracker);
+		publishTimer.observeDuration();
+
+		return !Thread.currentThread().isInterrupted();
+	}
+
+	/**
+	 * Retrieves the full list of resources of the given type, as snapshots.
+	 * Networks and security groups are taken from the lookup context if available.
+	 * 
+	 * @return The list of resources or null in case of any error
+	 */
+	private List<Object> retrieveResourceType(AzureManager azureManager, String appId, RESOURCE_TYPES resourceType) {
+
+		List<Object> resources = new ArrayList<Object>();
+
+		try {
+			if (!getResourceSource(azureManager, appId, resourceType).forEach(resources::add)) {
+				return null;
+			}
+			return resources;
+
+		} catch (Exception ex) {
+			logger.error("Error retrieving the " + getDescription(resourceType), ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Streams all resources of the given type from Azure straight into a JSON
+	 * array. Each resource is serialized as soon as its page has arrived and is
+	 * released right after, so only the JSON output (and not the much larger SDK
+	 * objects) is held in memory. Networks and security groups are taken from the
+	 * lookup context if available.
+	 * 
+	 * @param resourceEntries Optional. If provided, every resource is added to it
+	 * @param deltaTracker    Optional. If provided, every resource is added to it
+	 * @return False in case of any error
+	 */
+	private boolean streamResourceType(AzureManager azureManager, String appId, RESOURCE_TYPES resourceType,
+			ResourceDataBuffer resourceData, ResourceEntries resourceEntries, ResourceDeltaTracker deltaTracker) {
+
+		return serializeResources(resourceType, getResourceSource(azureManager, appId, resourceType), resourceData,
+				resourceEntries, deltaTracker);
+	}
+
+	/**
+	 * Returns the source of all resources of the given type. Every resource that
+	 * is streamed from Azure is converted into its snapshot as soon as its page
+	 * has arrived. Networks, security groups and network interfaces are taken
+	 * from the lookup context (already converted) if available.
+	 */
+	private ResourceSource getResourceSource(AzureManager azureManager, String appId, RESOURCE_TYPES resourceType) {
+
+		switch (resourceType) {
+		case Network:
+			if (lookupContext != null) {
+				return consumer -> writeAll(lookupContext.getNetworks(), consumer);
+			}
+			return consumer -> azureManager.streamNetworks(appId,
+					network -> consumer.accept(snapshotConverter.toSnapshot(network)));
+		case VM:
+			return consumer -> azureManager.streamVMs(appId, vm -> consumer.accept(snapshotConverter.toSnapshot(vm)));
+		case SecurityGroup:
+			if (lookupContext != null) {
+				return consumer -> writeAll(lookupContext.getNetworkSecurityGroups(), consumer);
+			}
+			return consumer -> azureManager.streamSecurityGroups(appId,
+					secGroup -> consumer.accept(snapshotConverter.toSnapshot(secGroup)));
+		case NetworkInterface:
+			if (lookupContext != null) {
+				return consumer -> writeAll(lookupContext.getNetworkInterfaces(), consumer);
+			}
+			return consumer -> azureManager.streamNetworkInterfaces(appId,
+					nwInterface -> consumer.accept(snapshotConverter.toSnapshot(nwInterface)));
+		default:
+			return consumer -> false;
+		}
+	}
+
+	/** Hands all resources of one type to the consumer, either streamed from Azure or already retrieved */
+	private interface ResourceSource {
+
+		/** @return False in case of any error */
+		boolean forEach(ResourceConsumer<Object> consumer) throws Exception;
+	}
+
+	/**
+	 * Serializes all resources of the given source as a JSON array into the
+	 * buffer, see ResourceWriter
+	 * 
+	 * @param resourceEntries Optional. If provided, every resource is added to it
+	 * @param deltaTracker    Optional. If provided, every resource is added to it
+	 * @return False in case of any error
+	 */
+	private boolean serializeResources(RESOURCE_TYPES resourceType, ResourceSource source,
+			ResourceDataBuffer resourceData, ResourceEntries resourceEntries, ResourceDeltaTracker deltaTracker) {
+
+		ResourceWriter resourceWriter = new ResourceWriter(resourceType, resourceData, resourceEntries,
+				deltaTracker);
+
+		try {
+			resourceWriter.start();
+			return source.forEach(resourceWriter) && resourceWriter.finish();
+
+		} catch (Exception ex) {
+			logger.error("Error generating JSON content for the " + getDescription(resourceType), ex);
+			return false;
+
+		} finally {
+			resourceWriter.close();
+		}
+	}
+
+	/**
+	 * Serializes the resources of one type as a JSON array into a buffer, one
+	 * resource at a time. Each resource is serialized exactly once: If a delta
+	 * tracker is provided, it gets a copy of the resource's bytes within the
+	 * buffer. The resource entries only get the position of the bytes. Not
+	 * thread-safe, but the resources may be handed over by different
+	 * threads one after the other (as in fetch mode async).
+	 */
+	private class ResourceWriter implements ResourceConsumer<Object> {
+
+		private final RESOURCE_TYPES resourceType;
+		private final ResourceDataBuffer resourceData;
+		private final ResourceEntries resourceEntries;
+		private final ResourceDeltaTracker deltaTracker;
+
+		private final ObjectWriter streamWriter = jsonWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		private JsonGenerator jsonGen;
+
+		/* Counts the resources for the metrics */
+		private int resourceCount = 0;
+
+		private ResourceWriter(RESOURCE_TYPES resourceType, ResourceDataBuffer resourceData,
+				ResourceEntries resourceEntries, ResourceDeltaTracker deltaTracker) {
+
+			this.resourceType = resourceType;
+			this.resourceData = resourceData;
+			this.resourceEntries = resourceEntries;
+			this.deltaTracker = deltaTracker;
+		}
+
+		private void start() throws IOException {
+
+			jsonGen = jsonMapper.getFactory().createGenerator(resourceData, JsonEncoding.UTF8);
+			jsonGen.writeStartArray();
+		}
+
+		@Override
+		public void accept(Object resource) throws Exception {
+
+			resourceCount++;
+
+			if (deltaTracker == null && resourceEntries == null) {
+				streamWriter.writeValue(jsonGen, resource);
 				return;
 			}
 
-			writeToDb(RESOURCE_TYPES.SecurityGroup, allSecGroups);
-			publishToRabbitMQ(RESOURCE_TYPES.SecurityGroup, allSecGroups);
+			jsonGen.flush();
+			int start = resourceData.size();
 
-			/*
-			 * Retrieve Network Interfaces
-			 */
-			List<Object> allNICs = azureManager.retrieveNetworkInterfaces(appId);
+			streamWriter.writeValue(jsonGen, resource);
+			jsonGen.flush();
+
+			// All but the first resource start with the separating comma
+			if (resourceData.byteAt(start) == ',') {
+				start++;
+			}
+			int end = resourceData.size();
+
+			// Shared by the delta and the entity storage, which skips unchanged resources
+			String fingerprint = ResourceDeltaTracker.getFingerprint(resourceData.getBuffer(), start, end - start);
 
-			if (allNICs == null) {
-				String msg = "Error retrieving network interfaces from Azure - stopping any further processing";
-				logger.warn(msg);
-				rabbitChannel.basicPublish("", RABBIT_QUEUE_NAME, null, msg.getBytes("UTF-8"));
+			if (deltaTracker != null) {
+				deltaTracker.add(((ResourceSnapshot) resource).id(), resourceData.copyOfRange(start, end),
+						fingerprint);
+			}
+			if (resourceEntries != null) {
+				resourceEntries.add((ResourceSnapshot) resource, start, end, fingerprint);
+			}
+		}
+
+		/**
+		 * Completes the JSON array
+		 * 
+		 * @return False in case of any error
+		 */
+		private boolean finish() {
+
+			try {
+				jsonGen.writeEndArray();
+				jsonGen.close();
+
+				SyncMetrics.resourceCount.labels(resourceType.name()).observe(resourceCount);
+				return true;
+
+			} catch (IOException ex) {
+				logger.error("Error generating JSON content for the " + getDescription(resourceType), ex);
+				return false;
+			}
+		}
+
+		/** Releases the generator if the array has not been completed */
+		private void close() {
+
+			if (jsonGen == null || jsonGen.isClosed()) {
 				return;
 			}
 
-			writeToDb(RESOURCE_TYPES.NetworkInterface, allNICs);
-			publishToRabbitMQ(RESOURCE_TYPES.NetworkInterface, allNICs);
+			try {
+				jsonGen.close();
+			} catch (IOException ex) {
+				// Only writes to the in-memory buffer
+			}
+		}
+	}
+
+	/** Hands all (already retrieved) resources to the consumer */
+	private boolean writeAll(Collection<?> resources, ResourceConsumer<Object> consumer) throws Exception {
 
-			logger.debug("Finished retrieving all resources from Azure app " + appId);
+		for (Object resource : resources) {
+			consumer.accept(resource);
+		}
+		return true;
+	}
+
+	/** Logs and publishes the error that the given type could not be retrieved */
+	private void publishRetrievalError(RESOURCE_TYPES resourceType, boolean stopOnError) throws IOException {
+
+		String msg = "Error retrieving " + getDescription(resourceType) + " from Azure - "
+				+ (stopOnError ? "stopping any further processing" : "continuing with the other resource types");
+		logger.warn(msg);
+		rabbitPublisher.publish(msg.getBytes("UTF-8"));
+	}
+
+	private String getDescription(RESOURCE_TYPES resourceType) {
+
+		switch (resourceType) {
+		case Network:
+			return "networks";
+		case VM:
+			return "VMs";
+		case SecurityGroup:
+			return "security groups";
+		case NetworkInterface:
+			return "network interfaces";
+		default:
+			return resourceType.name();
+		}
+	}
+
+	/**
+	 * Writes the given resource data to the DB
+	 * 
+	 * @param resourceData    JSON array of all resources of the given type
+	 * @param resourceEntries Optional. Needed to store each resource as its own
+	 *                        entity (storage format "entities")
+	 */
+	private boolean writeToDb(RESOURCE_TYPES resourceType, ResourceDataBuffer resourceData,
+			ResourceEntries resourceEntries) {
+
+		try {
+			SyncMetrics.payloadBytes.labels(SyncMetrics.TARGET_DATASTORE, resourceType.name())
+					.observe(resourceData.size());
+
+			// Stores the data as a single string, as compressed chunks or as one entity per resource
+			// (see ResourceDataStorage)
+			resourceDataStorage.write(accountConfig.getTenantId(), accountId, resourceType.name(),
+					resourceData.getBuffer(), resourceData.size(), resourceEntries);
+
+			return true;
+
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while storing the " + getDescription(resourceType) + " within GCP Datastore");
+			return false;
 
 		} catch (Exception ex) {
-			logger.error(ex);
-			return;
+			logger.error("Error trying to store resource data within GCP Datastore", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Publishes either the full list of resources or, if a delta tracker is
+	 * provided, only the resources that have been added, changed or removed since
+	 * the previous sync. A full snapshot is published instead of the delta if
+	 * there is no previous sync to compare with and periodically (every n-th sync
+	 * generation) so consumers can resync.
+	 */
+	private boolean publishResources(RESOURCE_TYPES resourceType, ResourceDataBuffer resourceData,
+			ResourceDeltaTracker deltaTracker) {
+
+		if (deltaTracker == null) {
+			return publishToRabbitMQ(resourceType, resourceData);
 		}
+
+		int fullSnapshotInterval = ServiceConfig.getFullSnapshotInterval();
+		boolean published;
+
+		if (!deltaTracker.hasBaseline() || (fullSnapshotInterval > 0 && syncGeneration % fullSnapshotInterval == 0)) {
+			published = publishToRabbitMQ(resourceType, resourceData);
+		} else {
+			published = publishDeltaToRabbitMQ(resourceType, deltaTracker);
+		}
+
+		// Only a published delta becomes the baseline for the next one
+		if (published) {
+			deltaTracker.commit();
+		}
+		return published;
 	}
 
 	/**
-	 * Writes the given data (Subnets, VMs, etc.) to the DB
+	 * Publishes the given resource data to RabbitMQ. If batching is enabled, the
+	 * resources are split into several messages (see publishBatchesToRabbitMQ)
 	 * 
-	 * @param dbConn       Active DB connection
-	 * @param resourceType Valid types: Subnet, VM,
-	 * @param data         Map of resource data. The values can contain any type of
-	 *                     object (subnets, VMs, etc.) and will be written to JSON
-	 *                     data and then stored in the DB
-	 * @return
+	 * @param resourceData JSON array of all resources of the given type
 	 */
-	private boolean writeToDb(RESOURCE_TYPES resourceType, List<Object> data) {
+	private boolean publishToRabbitMQ(RESOURCE_TYPES resourceType, ResourceDataBuffer resourceData) {
+
+		int maxBatchBytes = ServiceConfig.getPublishBatchMaxBytes();
+		int maxBatchItems = ServiceConfig.getPublishBatchMaxItems();
+
+		if (maxBatchBytes > 0 || maxBatchItems > 0) {
+			return publishBatchesToRabbitMQ(resourceType, resourceData, maxBatchBytes, maxBatchItems);
+		}
 
 		try {
-			// The name/ID for the new entity
-			String name = resourceType.name();
+			logger.debug("Forwarding updated list of " + resourceType + "s to the message queue "
+					+ rabbitPublisher.getQueueName());
+			publishMessage(resourceType, null, createResourcesMessage(resourceType.name(), resourceData.getBuffer(),
+					resourceData.size(), null, syncGeneration, formatDate(new Date())));
 
-			// The Cloud Datastore key for the new entity
-			Key entityKey = datastore.newKeyFactory().setNamespace(accountConfig.getTenantId())
-					.setKind(DS_ENTITY_KIND_AZURE_RESOURCES)
-					.addAncestor(PathElement.of(DS_ENTITY_KIND_SRC_SYS_AZURE, accountId)).newKey(name);
+			return true;
 
-			Entity dataEntity = Entity.newBuilder(entityKey).set("lastUpdated", Timestamp.now())
-					.set("resourceType", resourceType.name()).set("resourceData", StringValue
-							.newBuilder(jsonMapper.writeValueAsString(data)).setExcludeFromIndexes(true).build())
-					.build();
+		} catch (InterruptedIOException ex) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while publishing the " + getDescription(resourceType) + " to RabbitMQ");
+			return false;
 
-			logger.debug("About to update / write this entity towards GCP datastore:"
-					+ jsonMapper.writeValueAsString(dataEntity));
+		} catch (Exception ex) {
+			logger.error("Error trying to publish resource data to RabbitMQ", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Publishes the resources of the given type as several messages, each one
+	 * limited to the given number of resources and / or bytes of resource data
+	 * (a single resource that is larger than the limit gets its own message). The
+	 * message format is the same as for a single message, just with a subset of
+	 * the resources. Each message has the AMQP headers syncId, resourceType,
+	 * batchIndex (starting at 0) and totalBatches so that consumers can process
+	 * the batches as they arrive and detect when a type is complete. A type
+	 * without any resources is published as a single, empty batch.
+	 * 
+	 * @param maxBatchBytes 0 for no size limit
+	 * @param maxBatchItems 0 for no item limit
+	 */
+	private boolean publishBatchesToRabbitMQ(RESOURCE_TYPES resourceType, ResourceDataBuffer resourceData,
+			int maxBatchBytes, int maxBatchItems) {
 
-			// Saves the entity
-			datastore.put(dataEntity);
+		try {
+			List<int[]> batches = splitIntoBatches(resourceData, maxBatchBytes, maxBatchItems);
+
+			logger.debug("Forwarding updated list of " + resourceType + "s as " + batches.size()
+					+ " batches to the message queue " + rabbitPublisher.getQueueName());
+
+			for (int batchIndex = 0; batchIndex < batches.size(); batchIndex++) {
+
+				Map<String, Object> headers = new LinkedHashMap<String, Object>();
+				headers.put("syncId", syncId);
+				headers.put("resourceType", resourceType.name());
+				headers.put("batchIndex", batchIndex);
+				headers.put("totalBatches", batches.size());
+
+				publishMessage(resourceType, new AMQP.BasicProperties.Builder().headers(headers).build(),
+						createResourcesMessage(resourceType.name(), resourceData.getBuffer(), resourceData.size(),
+								batches.get(batchIndex), syncGeneration, formatDate(new Date())));
+			}
 
 			return true;
 
+		} catch (InterruptedIOException ex) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while publishing the " + getDescription(resourceType) + " to RabbitMQ");
+			return false;
+
 		} catch (Exception ex) {
-			logger.error("Error trying to store resource data within GCP Datastore", ex);
+			logger.error("Error trying to publish resource data to RabbitMQ", ex);
 			return false;
 		}
 	}
 
-	private boolean publishToRabbitMQ(RESOURCE_TYPES resourceType, List<Object> data) {
+	/**
+	 * Splits the given JSON array into consecutive batches of resources
+	 * 
+	 * @return The start (incl.) and end (excl.) byte offsets within the resource
+	 *         data of the resources of each batch
+	 */
+	private List<int[]> splitIntoBatches(ResourceDataBuffer resourceData, int maxBatchBytes, int maxBatchItems)
+			throws IOException {
+
+		List<int[]> batches = new ArrayList<int[]>();
+
+		try (JsonParser parser = jsonFactory.createParser(resourceData.getBuffer(), 0, resourceData.size())) {
+
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("The resource data is not a JSON array");
+			}
+
+			int batchStart = 0;
+			int batchEnd = 0;
+			int batchItems = 0;
+			long batchBytes = 0;
+
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+
+				// Each resource is a JSON object
+				if (token != JsonToken.START_OBJECT) {
+					throw new IOException("Unexpected element " + token + " within the resource data");
+				}
+
+				int resourceStart = (int) parser.getTokenLocation().getByteOffset();
+				parser.skipChildren();
+				int resourceEnd = (int) parser.getCurrentLocation().getByteOffset();
+
+				long resourceBytes = resourceEnd - resourceStart;
+
+				if (batchItems > 0 && ((maxBatchItems > 0 && batchItems >= maxBatchItems)
+						|| (maxBatchBytes > 0 && batchBytes + 1 + resourceBytes > maxBatchBytes))) {
+
+					batches.add(new int[] { batchStart, batchEnd });
+					batchItems = 0;
+				}
+
+				if (batchItems == 0) {
+					batchStart = resourceStart;
+					batchBytes = resourceBytes;
+				} else {
+					// Incl. the separating comma
+					batchBytes += 1 + resourceBytes;
+				}
+
+				batchEnd = resourceEnd;
+				batchItems++;
+			}
+
+			if (batchItems > 0 || batches.isEmpty()) {
+				batches.add(new int[] { batchStart, batchEnd });
+			}
+		}
+
+		return batches;
+	}
+
+	/**
+	 * Publishes the given JSON message in the configured payload format and
+	 * compression (see PayloadEncoder)
+	 * 
+	 * @param properties Optional AMQP properties, e.g. headers
+	 */
+	private void publishMessage(RESOURCE_TYPES resourceType, AMQP.BasicProperties properties, byte[] jsonMessage)
+			throws IOException {
+
+		byte[] payload = payloadEncoder.encode(jsonMessage);
+		SyncMetrics.payloadBytes.labels(SyncMetrics.TARGET_RABBITMQ, resourceType.name()).observe(payload.length);
+
+		rabbitPublisher.publish(payloadEncoder.getProperties(properties), payload);
+	}
+
+	/**
+	 * Creates the message that contains the given resources. Public (and static)
+	 * so that it can be benchmarked on its own. The resource data is copied into
+	 * the message as is, without going through the generator.
+	 * 
+	 * @param resourceData   JSON array (UTF-8) of all resources of the given type
+	 * @param length         Number of valid bytes of the resource data
+	 * @param batch          Start and end offset of the resources within the
+	 *                       resource data that are part of the message or null
+	 *                       for all resources
+	 * @param syncGeneration Only added to the message if > 0
+	 */
+	public static byte[] createResourcesMessage(String resourceType, byte[] resourceData, int length, int[] batch,
+			long syncGeneration, String lastUpdated) throws IOException {
+
+		int from = (batch == null) ? 0 : batch[0];
+		int to = (batch == null) ? length : batch[1];
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(to - from + 256);
+
+		try (JsonGenerator jsonGen = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+
+			jsonGen.writeStartObject();
+
+			jsonGen.writeStringField("dataType", "resources");
+			jsonGen.writeStringField("sourceSystemType", "azure");
+			// jsonGen.writeStringField("sourceSystemProjectId", appId);
+
+			jsonGen.writeArrayFieldStart("data");
+
+			jsonGen.writeStartObject();
+
+			jsonGen.writeStringField("lastUpdated", lastUpdated);
+			jsonGen.writeStringField("resourceType", resourceType);
+			if (syncGeneration > 0) {
+				jsonGen.writeNumberField("syncGeneration", syncGeneration);
+			}
+			jsonGen.writeFieldName("resourceData");
+
+			jsonGen.writeStartArray();
+			if (batch != null) {
+				jsonGen.writeStartArray();
+			}
+
+			/*
+			 * The generator only closes the (from its point of view empty) arrays
+			 * afterwards, so it does not need to know about the raw bytes
+			 */
+			jsonGen.flush();
+			outputStream.write(resourceData, from, to - from);
+
+			if (batch != null) {
+				jsonGen.writeEndArray();
+			}
+			jsonGen.writeEndArray();
+
+			jsonGen.writeEndObject();
+
+			jsonGen.writeEndArray();
+			jsonGen.writeEndObject();
+		}
+
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Publishes the delta of the given type to RabbitMQ. Example: "dataType":
+	 * "resourceDelta", "data": [ { "resourceType": "VM", "syncGeneration": 7,
+	 * "added": [ ... ], "changed": [ ... ], "removed": [ ... resource ids ... ] } ]
+	 * A delta is published even if nothing has changed so that consumers can
+	 * detect missing generations.
+	 */
+	private boolean publishDeltaToRabbitMQ(RESOURCE_TYPES resourceType, ResourceDeltaTracker deltaTracker) {
 
 		try {
 			Date now = new Date();
@@ -229,20 +1075,31 @@ public class ResourcesWorker implements Runnable {
 
 			jsonGen.writeStartObject();
 
-			jsonGen.writeStringField("dataType", "resources");
+			jsonGen.writeStringField("dataType", "resourceDelta");
 			jsonGen.writeStringField("sourceSystemType", "azure");
-			// jsonGen.writeStringField("sourceSystemProjectId", appId);
 
 			jsonGen.writeArrayFieldStart("data");
 
 			jsonGen.writeStartObject();
 
-			jsonGen.writeStringField("lastUpdated", dateFormatter.format(now));
+			jsonGen.writeStringField("lastUpdated", formatDate(now));
 			jsonGen.writeStringField("resourceType", resourceType.name());
-			jsonGen.writeFieldName("resourceData");
+			jsonGen.writeNumberField("syncGeneration", syncGeneration);
 
-			jsonGen.writeStartArray();
-			jsonGen.writeRawValue(jsonMapper.writeValueAsString(data));
+			jsonGen.writeArrayFieldStart("added");
+			writeRawValues(jsonGen, outputStream, deltaTracker.getAddedResources());
+			jsonGen.writeEndArray();
+
+			jsonGen.writeArrayFieldStart("changed");
+			writeRawValues(jsonGen, outputStream, deltaTracker.getChangedResources());
+			jsonGen.writeEndArray();
+
+			List<String> removedIds = deltaTracker.getRemovedResourceIds();
+
+			jsonGen.writeArrayFieldStart("removed");
+			for (String resourceId : removedIds) {
+				jsonGen.writeString(resourceId);
+			}
 			jsonGen.writeEndArray();
 
 			jsonGen.writeEndObject();
@@ -253,16 +1110,48 @@ public class ResourcesWorker implements Runnable {
 			jsonGen.close();
 			outputStream.close();
 
-			logger.debug("Forwarding updated list of " + resourceType + "s to the message queue " + RABBIT_QUEUE_NAME);
-			rabbitChannel.basicPublish("", RABBIT_QUEUE_NAME, null, outputStream.toString().getBytes("UTF-8"));
+			logger.debug("Forwarding delta of " + resourceType + "s (" + deltaTracker.getAddedResources().size()
+					+ " added, " + deltaTracker.getChangedResources().size() + " changed, " + removedIds.size()
+					+ " removed) to the message queue " + rabbitPublisher.getQueueName());
+			publishMessage(resourceType, null, outputStream.toByteArray());
 
 			return true;
 
+		} catch (InterruptedIOException ex) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while publishing the delta of the " + getDescription(resourceType)
+					+ " to RabbitMQ");
+			return false;
+
 		} catch (Exception ex) {
-			logger.error("Error trying to publish resource data to RabbitMQ", ex);
+			logger.error("Error trying to publish resource delta to RabbitMQ", ex);
 			return false;
 		}
+	}
+
+	/**
+	 * Writes the given JSON values (UTF-8) as elements of the array that the
+	 * generator has just started, straight to the generator's output stream
+	 */
+	private void writeRawValues(JsonGenerator jsonGen, ByteArrayOutputStream outputStream, List<byte[]> values)
+			throws IOException {
+
+		jsonGen.flush();
+
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				outputStream.write(',');
+			}
+			outputStream.write(values.get(i));
+		}
+	}
+
+	/** SimpleDateFormat is not thread-safe and types may be published in parallel */
+	private String formatDate(Date date) {
 
+		synchronized (dateFormatter) {
+			return dateFormatter.format(date);
+		}
 	}
 
 	private void generateJsonForNetworks(JsonGenerator jsonGen, List<Network> networks, String lastUpdate) {
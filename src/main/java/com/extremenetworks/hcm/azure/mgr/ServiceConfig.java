@@ -0,0 +1,286 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Central place for all tunable settings of the Azure manager. Every setting
+ * is read from an environment variable (as configured within the Kubernetes
+ * deployment) and falls back to a sensible default if the variable is not set
+ * or cannot be parsed.
+ */
+public class ServiceConfig {
+
+	private static final Logger logger = LogManager.getLogger(ServiceConfig.class);
+
+	/** "concurrent" (default), "sequential" or "async" */
+	public static final String ENV_FETCH_MODE = "HCM_AZURE_FETCH_MODE";
+
+	/** Max number of resource type fetches that run in parallel across all workers */
+	public static final String ENV_FETCH_THREADS = "HCM_AZURE_FETCH_THREADS";
+
+	/**
+	 * Number of threads that serialize the pages of all async fetches (fetch mode
+	 * "async"). The ARM requests themselves run on separate threads
+	 */
+	public static final String ENV_ASYNC_THREADS = "HCM_AZURE_ASYNC_THREADS";
+
+	/** "platform" (default) or "virtual" - the latter requires a build with the jdk21 profile */
+	public static final String ENV_WORKER_THREADS = "HCM_AZURE_WORKER_THREADS";
+
+	/** Minutes after which an unused, cached Azure connection is evicted */
+	public static final String ENV_CONNECTION_TTL_MINUTES = "HCM_AZURE_CONNECTION_TTL_MINUTES";
+
+	/** "streaming" (default) or "buffered" */
+	public static final String ENV_SERIALIZATION_MODE = "HCM_AZURE_SERIALIZATION_MODE";
+
+	/**
+	 * "string" (default), "gzipChunks" or "entities". The latter two are opt-in:
+	 * Readers that only know the string format (e.g. older images after a
+	 * rollback) cannot read them
+	 */
+	public static final String ENV_STORAGE_FORMAT = "HCM_AZURE_STORAGE_FORMAT";
+
+	/** Number of threads that write the entity batches of the storage format "entities" */
+	public static final String ENV_DATASTORE_WRITE_THREADS = "HCM_AZURE_DATASTORE_WRITE_THREADS";
+
+	/** "full" (default) or "delta" */
+	public static final String ENV_PUBLISH_MODE = "HCM_AZURE_PUBLISH_MODE";
+
+	/** In delta mode, every n-th sync publishes a full snapshot. 0 disables periodic snapshots */
+	public static final String ENV_FULL_SNAPSHOT_INTERVAL = "HCM_AZURE_FULL_SNAPSHOT_INTERVAL";
+
+	/** Seconds an account config is cached before it is read from Datastore again */
+	public static final String ENV_ACCOUNT_CONFIG_CACHE_TTL_SECONDS = "HCM_AZURE_ACCOUNT_CONFIG_CACHE_TTL_SECONDS";
+
+	/** Max number of cached account configs */
+	public static final String ENV_ACCOUNT_CONFIG_CACHE_SIZE = "HCM_AZURE_ACCOUNT_CONFIG_CACHE_SIZE";
+
+	/** Max number of account syncs that run in parallel */
+	public static final String ENV_SYNC_THREADS = "HCM_AZURE_SYNC_THREADS";
+
+	/** Max number of account syncs that wait for a free sync thread */
+	public static final String ENV_SYNC_QUEUE_SIZE = "HCM_AZURE_SYNC_QUEUE_SIZE";
+
+	/**
+	 * Minutes between two periodic syncs of all configured accounts. Disabled
+	 * (0) by default: Every replica runs its own periodic sync, so it should only
+	 * be enabled on a single instance
+	 */
+	public static final String ENV_SYNC_INTERVAL_MINUTES = "HCM_AZURE_SYNC_INTERVAL_MINUTES";
+
+	/** Max number of RabbitMQ channels, i.e. of messages that are published in parallel */
+	public static final String ENV_PUBLISH_CHANNELS = "HCM_AZURE_PUBLISH_CHANNELS";
+
+	/**
+	 * Max bytes of resource data per message. If this or the max items are set,
+	 * each resource type is published as several batches. 0 (default) = no limit
+	 */
+	public static final String ENV_PUBLISH_BATCH_MAX_BYTES = "HCM_AZURE_PUBLISH_BATCH_MAX_BYTES";
+
+	/** Max number of resources per message. 0 (default) = no limit */
+	public static final String ENV_PUBLISH_BATCH_MAX_ITEMS = "HCM_AZURE_PUBLISH_BATCH_MAX_ITEMS";
+
+	/** Encoding of the queue messages: "json" (default), "smile" or "cbor" */
+	public static final String ENV_PAYLOAD_FORMAT = "HCM_AZURE_PAYLOAD_FORMAT";
+
+	/** Compression of the queue messages: "none" (default), "gzip" or "lz4" */
+	public static final String ENV_PAYLOAD_COMPRESSION = "HCM_AZURE_PAYLOAD_COMPRESSION";
+
+	/** Max number of parallel ARM requests per subscription, reduced automatically when throttled */
+	public static final String ENV_ARM_MAX_CONCURRENCY = "HCM_AZURE_ARM_MAX_CONCURRENCY";
+
+	/** Max number of retries of a throttled (429) ARM request */
+	public static final String ENV_ARM_MAX_RETRIES = "HCM_AZURE_ARM_MAX_RETRIES";
+
+	/** Base URL (without path) of the ARM API, e.g. of a local mock server for load tests */
+	public static final String ENV_ARM_BASE_URL = "HCM_AZURE_ARM_BASE_URL";
+
+	/*
+	 * sequential / concurrent: the resource types of an account are fetched one
+	 * after the other / in parallel, each blocking a thread until all of its pages
+	 * have been retrieved. async: fewer sync threads - a sync does not hold a
+	 * thread for its whole duration. The ARM requests still block one thread each
+	 * while they are in flight, the pages are serialized by a small shared thread
+	 * pool as they arrive
+	 */
+	public enum FETCH_MODE {
+		sequential, concurrent, async
+	}
+
+	/*
+	 * platform: the syncs and their fetches run on bounded pools of platform
+	 * threads. virtual: each sync and each of its fetches runs on its own virtual
+	 * thread, see WorkerThreads
+	 */
+	public enum WORKER_THREADS {
+		platform, virtual
+	}
+
+	/*
+	 * streaming: each page of resources is serialized as soon as it arrives.
+	 * buffered: the full list of resources is retrieved first
+	 */
+	public enum SERIALIZATION_MODE {
+		buffered, streaming
+	}
+
+	/* How the resource data is stored in GCP Datastore - see ResourceDataStorage */
+	public enum STORAGE_FORMAT {
+		string, gzipChunks, entities
+	}
+
+	/*
+	 * full: every sync publishes the full list of each resource type. delta: only
+	 * added, changed and removed resources are published
+	 */
+	public enum PUBLISH_MODE {
+		full, delta
+	}
+
+	/* Signalled to consumers via the AMQP content-type - see PayloadEncoder */
+	public enum PAYLOAD_FORMAT {
+		json, smile, cbor
+	}
+
+	/* Signalled to consumers via the AMQP content-encoding */
+	public enum PAYLOAD_COMPRESSION {
+		none, gzip, lz4
+	}
+
+	private ServiceConfig() {
+	}
+
+	public static FETCH_MODE getFetchMode() {
+		return getEnum(ENV_FETCH_MODE, FETCH_MODE.class, FETCH_MODE.concurrent);
+	}
+
+	public static WORKER_THREADS getWorkerThreads() {
+		return getEnum(ENV_WORKER_THREADS, WORKER_THREADS.class, WORKER_THREADS.platform);
+	}
+
+	public static int getFetchThreads() {
+		return getInt(ENV_FETCH_THREADS, 16);
+	}
+
+	public static int getAsyncThreads() {
+		return getInt(ENV_ASYNC_THREADS, 4);
+	}
+
+	public static int getConnectionTtlMinutes() {
+		return getInt(ENV_CONNECTION_TTL_MINUTES, 60);
+	}
+
+	public static SERIALIZATION_MODE getSerializationMode() {
+		return getEnum(ENV_SERIALIZATION_MODE, SERIALIZATION_MODE.class, SERIALIZATION_MODE.streaming);
+	}
+
+	public static STORAGE_FORMAT getStorageFormat() {
+		return getEnum(ENV_STORAGE_FORMAT, STORAGE_FORMAT.class, STORAGE_FORMAT.string);
+	}
+
+	public static int getDatastoreWriteThreads() {
+		return getInt(ENV_DATASTORE_WRITE_THREADS, 8);
+	}
+
+	public static PUBLISH_MODE getPublishMode() {
+		return getEnum(ENV_PUBLISH_MODE, PUBLISH_MODE.class, PUBLISH_MODE.full);
+	}
+
+	public static int getFullSnapshotInterval() {
+		return getInt(ENV_FULL_SNAPSHOT_INTERVAL, 12);
+	}
+
+	public static int getAccountConfigCacheTtlSeconds() {
+		return getInt(ENV_ACCOUNT_CONFIG_CACHE_TTL_SECONDS, 300);
+	}
+
+	public static int getAccountConfigCacheSize() {
+		return getInt(ENV_ACCOUNT_CONFIG_CACHE_SIZE, 1000);
+	}
+
+	public static int getSyncThreads() {
+		return getInt(ENV_SYNC_THREADS, 8);
+	}
+
+	public static int getSyncQueueSize() {
+		return getInt(ENV_SYNC_QUEUE_SIZE, 1000);
+	}
+
+	public static int getSyncIntervalMinutes() {
+		return getInt(ENV_SYNC_INTERVAL_MINUTES, 0);
+	}
+
+	public static int getPublishChannels() {
+		return getInt(ENV_PUBLISH_CHANNELS, 8);
+	}
+
+	public static int getPublishBatchMaxBytes() {
+		return getInt(ENV_PUBLISH_BATCH_MAX_BYTES, 0);
+	}
+
+	public static int getPublishBatchMaxItems() {
+		return getInt(ENV_PUBLISH_BATCH_MAX_ITEMS, 0);
+	}
+
+	public static PAYLOAD_FORMAT getPayloadFormat() {
+		return getEnum(ENV_PAYLOAD_FORMAT, PAYLOAD_FORMAT.class, PAYLOAD_FORMAT.json);
+	}
+
+	public static PAYLOAD_COMPRESSION getPayloadCompression() {
+		return getEnum(ENV_PAYLOAD_COMPRESSION, PAYLOAD_COMPRESSION.class, PAYLOAD_COMPRESSION.none);
+	}
+
+	public static int getArmMaxConcurrency() {
+		return getInt(ENV_ARM_MAX_CONCURRENCY, 8);
+	}
+
+	public static int getArmMaxRetries() {
+		return getInt(ENV_ARM_MAX_RETRIES, 5);
+	}
+
+	public static String getArmBaseUrl() {
+		return getString(ENV_ARM_BASE_URL, "https://management.azure.com");
+	}
+
+	static String getString(String name, String defaultValue) {
+
+		String value = System.getenv(name);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		return value.trim();
+	}
+
+	static int getInt(String name, int defaultValue) {
+
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException ex) {
+			logger.warn("Invalid value " + value + " for setting " + name + " - using default " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	static <T extends Enum<T>> T getEnum(String name, Class<T> enumType, T defaultValue) {
+
+		String value = getString(name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		for (T constant : enumType.getEnumConstants()) {
+			if (constant.name().equalsIgnoreCase(value)) {
+				return constant;
+			}
+		}
+
+		logger.warn("Invalid value " + value + " for setting " + name + " - using default " + defaultValue);
+		return defaultValue;
+	}
+}
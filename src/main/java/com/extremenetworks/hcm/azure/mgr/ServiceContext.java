@@ -0,0 +1,219 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.extremenetworks.hcm.azure.mgr.ServiceConfig.WORKER_THREADS;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreOptions;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * Application-scoped infrastructure that is shared by all requests and workers:
+ * The RabbitMQ publisher, the GCP Datastore client and the executors that run
+ * the background workers and the periodic sync of all accounts. Created once by
+ * Main at startup and shut down when the process stops.
+ */
+public class ServiceContext {
+
+	private static final Logger logger = LogManager.getLogger(ServiceContext.class);
+
+	private static volatile ServiceContext instance;
+
+	public final static String RABBIT_QUEUE_NAME = "azure.resources";
+	private final static String RABBIT_SERVER = "rabbit-mq";
+
+	/* Only available if built with the jdk21 profile */
+	private final static String VIRTUAL_WORKER_THREADS_CLASS = "com.extremenetworks.hcm.azure.mgr.VirtualWorkerThreads";
+
+	private final RabbitPublisher rabbitPublisher;
+
+	private final Datastore datastore;
+
+	/* Platform or virtual threads for the syncs and their fetches */
+	private final WorkerThreads workerThreads;
+
+	/* Runs the background workers - at most one queued or running sync per account */
+	private final SyncScheduler syncScheduler;
+
+	/* Runs the per resource type fetches of all workers */
+	private final ExecutorService fetchExecutor;
+
+	/* Writes the entity batches of all syncs (storage format entities) */
+	private final ExecutorService datastoreWriteExecutor;
+
+	/* Serializes the pages of all async fetches (fetch mode async), does not issue ARM requests */
+	private final ExecutorService asyncExecutor;
+	private final Scheduler asyncScheduler;
+
+	/* Null if the periodic sync is disabled */
+	private PeriodicSyncScheduler periodicSyncScheduler;
+
+	private ServiceContext(Datastore datastore, RabbitPublisher rabbitPublisher) {
+
+		this.datastore = datastore;
+
+		workerThreads = createWorkerThreads();
+		syncScheduler = new SyncScheduler(ServiceConfig.getSyncThreads(), ServiceConfig.getSyncQueueSize(),
+				workerThreads.getSyncThreadFactory());
+		fetchExecutor = workerThreads.getFetchExecutor();
+		datastoreWriteExecutor = Executors.newFixedThreadPool(ServiceConfig.getDatastoreWriteThreads());
+		asyncExecutor = Executors.newFixedThreadPool(ServiceConfig.getAsyncThreads());
+		asyncScheduler = Schedulers.from(asyncExecutor);
+
+		this.rabbitPublisher = rabbitPublisher;
+
+		try {
+			rabbitPublisher.connect();
+		} catch (Exception ex) {
+			logger.error("Error connecting to RabbitMQ - will retry on first use", ex);
+		}
+	}
+
+	/**
+	 * Falls back to platform threads if virtual threads are configured but the
+	 * app has not been built with the jdk21 profile. A jdk21 build cannot fall
+	 * back: All of its classes target Java 21, so it does not start on an older
+	 * runtime at all
+	 */
+	private static WorkerThreads createWorkerThreads() {
+
+		if (ServiceConfig.getWorkerThreads() == WORKER_THREADS.virtual) {
+
+			try {
+				WorkerThreads virtualThreads = (WorkerThreads) Class.forName(VIRTUAL_WORKER_THREADS_CLASS)
+						.getDeclaredConstructor().newInstance();
+				logger.info("Running the syncs on virtual threads");
+				return virtualThreads;
+
+			} catch (ReflectiveOperationException | LinkageError ex) {
+				logger.error("Virtual threads require a build with the jdk21 profile"
+						+ " - running the syncs on platform threads", ex);
+			}
+		}
+		return new PlatformWorkerThreads();
+	}
+
+	/** Creates the context. Must be called once at startup */
+	public static synchronized ServiceContext start() {
+
+		if (instance != null) {
+			return instance;
+		}
+
+		return start(DatastoreOptions.getDefaultInstance().getService(),
+				new RabbitPublisher(RABBIT_SERVER, RABBIT_QUEUE_NAME, ServiceConfig.getPublishChannels()));
+	}
+
+	/**
+	 * Creates the context with the given Datastore client and publisher instead
+	 * of the default ones, e.g. with local stand-ins for load tests
+	 */
+	public static synchronized ServiceContext start(Datastore datastore, RabbitPublisher rabbitPublisher) {
+
+		if (instance == null) {
+			logger.info("Starting the service context");
+			instance = new ServiceContext(datastore, rabbitPublisher);
+
+			int syncIntervalMinutes = ServiceConfig.getSyncIntervalMinutes();
+			if (syncIntervalMinutes > 0) {
+				instance.periodicSyncScheduler = new PeriodicSyncScheduler(instance, syncIntervalMinutes);
+				instance.periodicSyncScheduler.start();
+			}
+		}
+		return instance;
+	}
+
+	public static ServiceContext getInstance() {
+
+		if (instance == null) {
+			throw new IllegalStateException("The service context has not been started");
+		}
+		return instance;
+	}
+
+	/**
+	 * Stops accepting new work, waits for running workers to finish (up to the
+	 * given timeout) and closes the RabbitMQ connection
+	 */
+	public void shutdown(long timeout, TimeUnit unit) {
+
+		logger.info("Shutting down the service context");
+
+		if (periodicSyncScheduler != null) {
+			periodicSyncScheduler.shutdown();
+		}
+
+		try {
+			// The running syncs still need the fetch executor
+			syncScheduler.shutdown(timeout, unit);
+
+			fetchExecutor.shutdown();
+			asyncExecutor.shutdown();
+			if (!fetchExecutor.awaitTermination(timeout, unit)) {
+				fetchExecutor.shutdownNow();
+			}
+
+			// Only used by the fetches
+			datastoreWriteExecutor.shutdown();
+			if (!datastoreWriteExecutor.awaitTermination(timeout, unit)) {
+				datastoreWriteExecutor.shutdownNow();
+			}
+			if (!asyncExecutor.awaitTermination(timeout, unit)) {
+				asyncExecutor.shutdownNow();
+			}
+
+		} catch (InterruptedException ex) {
+			fetchExecutor.shutdownNow();
+			datastoreWriteExecutor.shutdownNow();
+			asyncExecutor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		rabbitPublisher.shutdown(timeout, unit);
+	}
+
+	/**
+	 * Returns the shared, thread-safe RabbitMQ publisher. It (re)connects if
+	 * needed, e.g. because RabbitMQ was not reachable at startup
+	 */
+	public RabbitPublisher getRabbitPublisher() {
+		return rabbitPublisher;
+	}
+
+	public Datastore getDatastore() {
+		return datastore;
+	}
+
+	public SyncScheduler getSyncScheduler() {
+		return syncScheduler;
+	}
+
+	public ExecutorService getFetchExecutor() {
+		return fetchExecutor;
+	}
+
+	/**
+	 * Opens the scope for the fetches of one account sync, see SyncScope. Must be
+	 * closed once the sync is done
+	 */
+	public SyncScope openSyncScope(String syncName) {
+		return workerThreads.openSyncScope(syncName);
+	}
+
+	/** Writes the entity batches of ResourceDataStorage in parallel */
+	public ExecutorService getDatastoreWriteExecutor() {
+		return datastoreWriteExecutor;
+	}
+
+	/** The scheduler on which the async variants of the AzureManager hand out the resources */
+	public Scheduler getAsyncScheduler() {
+		return asyncScheduler;
+	}
+}
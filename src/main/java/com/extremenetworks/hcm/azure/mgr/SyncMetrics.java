@@ -0,0 +1,134 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+
+/**
+ * Prometheus metrics of the syncs, exposed by Main under /metrics:
+ *
+ * - Duration of each phase of a sync per resource type: fetch (retrieving the
+ * resources from ARM, incl. the serialization in streaming mode), serialize
+ * (buffered mode only), datastore_put and publish
+ *
+ * - Size of the data written to Datastore and published to RabbitMQ, and the
+ * number of resources per type
+ *
+ * - Latency and status code of every ARM request (see ArmMetricsInterceptor)
+ *
+ * - Current state of the executors, the RabbitMQ publisher and the ARM
+ * throttling (see ServiceCollector)
+ */
+public class SyncMetrics {
+
+	public static final String PHASE_FETCH = "fetch";
+	public static final String PHASE_SERIALIZE = "serialize";
+	public static final String PHASE_DATASTORE_PUT = "datastore_put";
+	public static final String PHASE_PUBLISH = "publish";
+
+	public static final String TARGET_DATASTORE = "datastore";
+	public static final String TARGET_RABBITMQ = "rabbitmq";
+
+	public static final Histogram syncDuration = Histogram.build().name("hcm_azure_sync_duration_seconds")
+			.help("Duration of a complete account sync")
+			.buckets(1, 2.5, 5, 10, 30, 60, 120, 300, 600, 1800).register();
+
+	public static final Histogram phaseDuration = Histogram.build().name("hcm_azure_sync_phase_duration_seconds")
+			.help("Duration of each phase of a sync per resource type").labelNames("phase", "resource_type")
+			.buckets(0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300).register();
+
+	public static final Histogram payloadBytes = Histogram.build().name("hcm_azure_payload_bytes")
+			.help("Size of the resource data written to Datastore and of the messages published to RabbitMQ")
+			.labelNames("target", "resource_type").exponentialBuckets(1024, 4, 10).register();
+
+	public static final Histogram resourceCount = Histogram.build().name("hcm_azure_resource_count")
+			.help("Number of resources per type and sync").labelNames("resource_type")
+			.exponentialBuckets(1, 4, 10).register();
+
+	public static final Histogram armRequestDuration = Histogram.build().name("hcm_azure_arm_request_duration_seconds")
+			.help("Latency of the ARM requests per operation and HTTP status code").labelNames("operation", "status")
+			.buckets(0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30).register();
+
+	private static boolean serviceCollectorRegistered = false;
+
+	private SyncMetrics() {
+	}
+
+	/** Starts timing the given phase - call observeDuration() on the result once done */
+	public static Histogram.Timer startPhase(String phase, String resourceType) {
+		return phaseDuration.labels(phase, resourceType).startTimer();
+	}
+
+	/** Registers the gauges that are read from the given context on every scrape */
+	public static synchronized void registerServiceCollector(ServiceContext serviceContext) {
+
+		if (!serviceCollectorRegistered) {
+			new ServiceCollector(serviceContext).register();
+			serviceCollectorRegistered = true;
+		}
+	}
+
+	private static class ServiceCollector extends Collector {
+
+		private final ServiceContext serviceContext;
+
+		private ServiceCollector(ServiceContext serviceContext) {
+			this.serviceContext = serviceContext;
+		}
+
+		@Override
+		public List<MetricFamilySamples> collect() {
+
+			List<MetricFamilySamples> samples = new ArrayList<MetricFamilySamples>();
+
+			SyncScheduler syncScheduler = serviceContext.getSyncScheduler();
+			samples.add(gauge("hcm_azure_syncs_active", "Number of syncs that are currently running",
+					syncScheduler.getActiveSyncs()));
+			samples.add(gauge("hcm_azure_syncs_queued", "Number of syncs that wait for a free sync thread",
+					syncScheduler.getQueuedSyncs()));
+
+			ExecutorService fetchExecutor = serviceContext.getFetchExecutor();
+			if (fetchExecutor instanceof ThreadPoolExecutor) {
+				samples.add(gauge("hcm_azure_fetches_active", "Number of resource type fetches that are running",
+						((ThreadPoolExecutor) fetchExecutor).getActiveCount()));
+				samples.add(gauge("hcm_azure_fetches_queued", "Number of resource type fetches that wait for a thread",
+						((ThreadPoolExecutor) fetchExecutor).getQueue().size()));
+			}
+
+			RabbitPublisher rabbitPublisher = serviceContext.getRabbitPublisher();
+			samples.add(gauge("hcm_azure_rabbitmq_unconfirmed_messages",
+					"Number of published messages that have not been confirmed by the broker yet",
+					rabbitPublisher.getUnconfirmedCount()));
+			samples.add(counter("hcm_azure_rabbitmq_published_messages_total",
+					"Number of published messages, incl. republished ones", rabbitPublisher.getPublishedCount()));
+			samples.add(counter("hcm_azure_rabbitmq_confirmed_messages_total",
+					"Number of messages confirmed by the broker", rabbitPublisher.getConfirmedCount()));
+			samples.add(counter("hcm_azure_rabbitmq_nacked_messages_total",
+					"Number of messages nacked by the broker", rabbitPublisher.getNackedCount()));
+			samples.add(counter("hcm_azure_rabbitmq_failed_messages_total",
+					"Number of messages that could not be delivered", rabbitPublisher.getFailedCount()));
+			samples.add(counter("hcm_azure_rabbitmq_confirm_latency_seconds_total",
+					"Sum of the time between publish and confirm of all confirmed messages",
+					rabbitPublisher.getConfirmLatencyNanos() / 1e9));
+
+			samples.add(counter("hcm_azure_arm_throttled_responses_total",
+					"Number of requests throttled by ARM (429)", ArmThrottlingInterceptor.getThrottledResponses()));
+
+			return samples;
+		}
+
+		private MetricFamilySamples gauge(String name, String help, double value) {
+			return new GaugeMetricFamily(name, help, value);
+		}
+
+		private MetricFamilySamples counter(String name, String help, double value) {
+			return new CounterMetricFamily(name, help, value);
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs the account syncs (ResourcesWorker) on a bounded worker pool and makes
+ * sure there is at most one queued or running sync per tenant and account:
+ *
+ * - No sync for the account: A new sync is started (or queued if all worker
+ * threads are busy).
+ *
+ * - Sync is queued but not yet running: The trigger is merged into it since the
+ * queued sync will retrieve the latest data anyway.
+ *
+ * - Sync is running: It may already have retrieved parts of the data, so one
+ * follow-up sync is queued that starts once the running one is done. Further
+ * triggers are merged into that follow-up.
+ *
+ * Workers that implement AsyncRunnable (fetch mode "async") only occupy a
+ * worker thread until their sync has been started. The sync counts as running
+ * until its future completes, so many more accounts can be synced at the same
+ * time than there are worker threads.
+ *
+ * The state is guarded by a lock rather than a monitor, so virtual worker
+ * threads (see WorkerThreads) don't pin their carrier thread while they wait.
+ */
+public class SyncScheduler {
+
+	private static final Logger logger = LogManager.getLogger(SyncScheduler.class);
+
+	public enum SYNC_STATUS {
+		started, queued, merged, rejected
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition syncFinished = lock.newCondition();
+
+	/* Key: tenant id | account id. Guarded by lock */
+	private final Map<String, SyncEntry> syncs = new HashMap<String, SyncEntry>();
+
+	/* Includes the async syncs that no longer occupy a worker thread. Guarded by lock */
+	private int runningSyncs = 0;
+
+	private static class SyncEntry {
+
+		private boolean running = false;
+		private Runnable followUp;
+	}
+
+	/**
+	 * @param threadFactory Creates the worker threads, e.g. virtual ones (see
+	 *                      WorkerThreads)
+	 */
+	public SyncScheduler(int workerThreads, int queueSize, ThreadFactory threadFactory) {
+
+		executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(queueSize), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Triggers a sync of the given account, coalescing it with any queued or
+	 * running sync of the same account
+	 *
+	 * @param worker The sync to run if a new one needs to be started
+	 * @return Whether the sync has been started, queued, merged into an existing
+	 *         one or rejected because the queue is full
+	 */
+	public SYNC_STATUS trigger(String tenantId, String accountId, Runnable worker) {
+
+		lock.lock();
+		try {
+			return triggerLocked(tenantId + "|" + accountId, worker);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private SYNC_STATUS triggerLocked(String syncKey, Runnable worker) {
+
+		SyncEntry syncEntry = syncs.get(syncKey);
+
+		if (syncEntry != null) {
+
+			if (!syncEntry.running) {
+				logger.debug("Merging sync trigger for " + syncKey + " into the queued sync");
+				return SYNC_STATUS.merged;
+			}
+
+			if (syncEntry.followUp != null) {
+				logger.debug("Merging sync trigger for " + syncKey + " into the queued follow-up sync");
+				syncEntry.followUp = worker;
+				return SYNC_STATUS.merged;
+			}
+
+			logger.debug("Sync for " + syncKey + " is running - queueing a follow-up sync");
+			syncEntry.followUp = worker;
+			return SYNC_STATUS.queued;
+		}
+
+		boolean idleWorkerAvailable = executor.getActiveCount() + executor.getQueue().size() < executor
+				.getMaximumPoolSize();
+
+		syncEntry = new SyncEntry();
+
+		if (!submit(syncKey, syncEntry, worker)) {
+			return SYNC_STATUS.rejected;
+		}
+
+		syncs.put(syncKey, syncEntry);
+		return idleWorkerAvailable ? SYNC_STATUS.started : SYNC_STATUS.queued;
+	}
+
+	/** Number of syncs that are currently running */
+	public int getActiveSyncs() {
+
+		lock.lock();
+		try {
+			return runningSyncs;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Number of syncs that are waiting for a free worker thread */
+	public int getQueuedSyncs() {
+		return executor.getQueue().size();
+	}
+
+	/** Stops accepting syncs and waits for the running ones to finish */
+	public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+
+		executor.shutdown();
+
+		if (!executor.awaitTermination(timeout, unit)) {
+			logger.warn("Syncs did not finish in time - interrupting them");
+			executor.shutdownNow();
+			return;
+		}
+
+		/* Async syncs may still be running without a worker thread */
+		lock.lock();
+		try {
+			long remaining = deadline - System.currentTimeMillis();
+
+			while (runningSyncs > 0 && remaining > 0) {
+				syncFinished.await(remaining, TimeUnit.MILLISECONDS);
+				remaining = deadline - System.currentTimeMillis();
+			}
+
+			if (runningSyncs > 0) {
+				logger.warn(runningSyncs + " async syncs did not finish in time");
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean submit(String syncKey, SyncEntry syncEntry, Runnable worker) {
+
+		try {
+			executor.execute(() -> runSync(syncKey, syncEntry, worker));
+			return true;
+
+		} catch (RejectedExecutionException ex) {
+			logger.warn("Rejecting sync for " + syncKey + " - the sync queue is full or shut down");
+			return false;
+		}
+	}
+
+	private void runSync(String syncKey, SyncEntry syncEntry, Runnable worker) {
+
+		lock.lock();
+		try {
+			syncEntry.running = true;
+			runningSyncs++;
+		} finally {
+			lock.unlock();
+		}
+
+		if (worker instanceof AsyncRunnable) {
+
+			try {
+				/* Frees this worker thread - the sync is finished once the future completes */
+				((AsyncRunnable) worker).runAsync().whenComplete((result, ex) -> finishSync(syncKey, syncEntry));
+
+			} catch (RuntimeException ex) {
+				logger.error("Error starting the sync for " + syncKey, ex);
+				finishSync(syncKey, syncEntry);
+			}
+			return;
+		}
+
+		try {
+			worker.run();
+
+		} finally {
+			finishSync(syncKey, syncEntry);
+		}
+	}
+
+	/** Starts the follow-up sync if one has been queued in the meantime */
+	private void finishSync(String syncKey, SyncEntry syncEntry) {
+
+		lock.lock();
+		try {
+			Runnable followUp = syncEntry.followUp;
+			syncEntry.followUp = null;
+			syncEntry.running = false;
+
+			if (followUp == null || !submit(syncKey, syncEntry, followUp)) {
+				syncs.remove(syncKey);
+			}
+
+			runningSyncs--;
+			syncFinished.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
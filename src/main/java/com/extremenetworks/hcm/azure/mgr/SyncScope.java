@@ -0,0 +1,80 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The fetches of one account sync. Closing the scope cancels (interrupts) all
+ * forks that are still running, e.g. because the sync thread has been
+ * interrupted at shutdown, so no fetch outlives its sync.
+ *
+ * If the scope owns its executor (one per sync, see VirtualWorkerThreads), the
+ * close also waits for the cancelled forks to end. Otherwise the forks run on
+ * the shared fetch executor and are only cancelled.
+ */
+class SyncScope implements AutoCloseable {
+
+	private static final Logger logger = LogManager.getLogger(SyncScope.class);
+
+	/* Max time to wait for cancelled forks to end */
+	private static final long CANCEL_TIMEOUT_SECONDS = 30;
+
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+
+	private final List<Future<?>> forks = new ArrayList<Future<?>>();
+
+	/**
+	 * @param ownsExecutor Whether the executor is only used by this scope and
+	 *                     shut down when the scope is closed
+	 */
+	SyncScope(ExecutorService executor, boolean ownsExecutor) {
+
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	/** Runs the task within this scope. Only called by the sync thread */
+	<T> Future<T> fork(Callable<T> task) {
+
+		Future<T> fork = executor.submit(task);
+		forks.add(fork);
+		return fork;
+	}
+
+	@Override
+	public void close() {
+
+		int cancelled = 0;
+		for (Future<?> fork : forks) {
+			if (fork.cancel(true)) {
+				cancelled++;
+			}
+		}
+
+		if (cancelled > 0) {
+			logger.warn("Cancelled " + cancelled + " fetches that were still running at the end of the sync");
+		}
+
+		if (!ownsExecutor) {
+			return;
+		}
+
+		executor.shutdownNow();
+
+		try {
+			if (!executor.awaitTermination(CANCEL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				logger.warn("Cancelled fetches did not end within " + CANCEL_TIMEOUT_SECONDS + " seconds");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
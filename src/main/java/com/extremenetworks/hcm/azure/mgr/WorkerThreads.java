@@ -0,0 +1,31 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides the threads on which the account syncs and their resource type
+ * fetches run, see ServiceConfig.WORKER_THREADS:
+ *
+ * - PlatformWorkerThreads: Bounded pools of platform threads.
+ *
+ * - VirtualWorkerThreads: Virtual threads, so a sync that waits for ARM,
+ * Datastore or RabbitMQ does not hold on to a platform thread. Only compiled by
+ * the jdk21 build profile (src/main/java21) and therefore loaded by name.
+ */
+interface WorkerThreads {
+
+	/** Creates the threads of the SyncScheduler */
+	ThreadFactory getSyncThreadFactory();
+
+	/** Runs the per resource type fetches of all syncs */
+	ExecutorService getFetchExecutor();
+
+	/**
+	 * Opens the scope for the fetches of one account sync. The caller must close
+	 * it once the sync is done
+	 *
+	 * @param syncName Used for the thread names, if supported
+	 */
+	SyncScope openSyncScope(String syncName);
+}
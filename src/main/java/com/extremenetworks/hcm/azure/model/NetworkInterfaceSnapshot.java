@@ -0,0 +1,120 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.azure.management.network.NetworkInterface;
+
+/** Snapshot of a network interface, see NetworkInterfaceJsonSerializer for its JSON */
+public final class NetworkInterfaceSnapshot implements ResourceSnapshot {
+
+	private final String id;
+	private final String macAddress;
+	private final String name;
+	private final String networkSecurityGroupId;
+	private final String primaryPrivateIP;
+	private final String regionName;
+	private final String resourceGroupName;
+	private final String virtualMachineId;
+	private final String internalDnsNameLabel;
+	private final String internalDomainNameSuffix;
+	private final String internalFqdn;
+	private final String key;
+	private final String update;
+	private final NetworkSecurityGroupSnapshot networkSecurityGroup;
+	private final List<NicIpConfigurationSnapshot> ipConfigurations;
+	private final ResourceTags tags;
+
+	/**
+	 * @param networkSecurityGroup Already resolved by the caller. Null if the
+	 *                             interface does not have a security group
+	 * @param ipConfigurations     Already converted by the caller
+	 */
+	public NetworkInterfaceSnapshot(NetworkInterface nwInterface, NetworkSecurityGroupSnapshot networkSecurityGroup,
+			List<NicIpConfigurationSnapshot> ipConfigurations, StringPool stringPool) {
+
+		this.id = nwInterface.id();
+		this.macAddress = nwInterface.macAddress();
+		this.name = nwInterface.name();
+		this.networkSecurityGroupId = stringPool.share(nwInterface.networkSecurityGroupId());
+		this.primaryPrivateIP = nwInterface.primaryPrivateIP();
+		this.regionName = stringPool.share(nwInterface.regionName());
+		this.resourceGroupName = stringPool.share(nwInterface.resourceGroupName());
+		this.virtualMachineId = nwInterface.virtualMachineId();
+		this.internalDnsNameLabel = nwInterface.internalDnsNameLabel();
+		this.internalDomainNameSuffix = stringPool.share(nwInterface.internalDomainNameSuffix());
+		this.internalFqdn = nwInterface.internalFqdn();
+		this.key = nwInterface.key();
+		this.update = nwInterface.update().toString();
+		this.networkSecurityGroup = networkSecurityGroup;
+		this.ipConfigurations = Collections.unmodifiableList(ipConfigurations);
+		this.tags = ResourceTags.of(nwInterface.tags(), stringPool);
+	}
+
+	@Override
+	public String id() {
+		return id;
+	}
+
+	public String macAddress() {
+		return macAddress;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String networkSecurityGroupId() {
+		return networkSecurityGroupId;
+	}
+
+	public String primaryPrivateIP() {
+		return primaryPrivateIP;
+	}
+
+	public String regionName() {
+		return regionName;
+	}
+
+	public String resourceGroupName() {
+		return resourceGroupName;
+	}
+
+	public String virtualMachineId() {
+		return virtualMachineId;
+	}
+
+	public String internalDnsNameLabel() {
+		return internalDnsNameLabel;
+	}
+
+	public String internalDomainNameSuffix() {
+		return internalDomainNameSuffix;
+	}
+
+	public String internalFqdn() {
+		return internalFqdn;
+	}
+
+	public String key() {
+		return key;
+	}
+
+	/** String representation of the interface's update(), part of the JSON */
+	public String update() {
+		return update;
+	}
+
+	/** Null if the interface does not have a security group */
+	public NetworkSecurityGroupSnapshot networkSecurityGroup() {
+		return networkSecurityGroup;
+	}
+
+	public List<NicIpConfigurationSnapshot> ipConfigurations() {
+		return ipConfigurations;
+	}
+
+	public ResourceTags tags() {
+		return tags;
+	}
+}
@@ -0,0 +1,91 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+import com.microsoft.azure.management.network.NetworkSecurityRule;
+
+/**
+ * Snapshot of a network security group incl. all of its rules, see
+ * NetworkSecurityGroupJsonSerializer for its JSON. A single snapshot is shared
+ * by all network interfaces that reference the group.
+ */
+public final class NetworkSecurityGroupSnapshot implements ResourceSnapshot {
+
+	private final String id;
+	private final String name;
+	private final String key;
+	private final String regionName;
+	private final String resourceGroupName;
+	private final String type;
+	private final List<SecurityRuleSnapshot> defaultSecurityRules;
+	private final List<SecurityRuleSnapshot> securityRules;
+	private final ResourceTags tags;
+
+	public NetworkSecurityGroupSnapshot(NetworkSecurityGroup secGroup, StringPool stringPool) {
+
+		this.id = stringPool.share(secGroup.id());
+		this.name = stringPool.share(secGroup.name());
+		this.key = secGroup.key();
+		this.regionName = stringPool.share(secGroup.regionName());
+		this.resourceGroupName = stringPool.share(secGroup.resourceGroupName());
+		this.type = stringPool.share(secGroup.type());
+		this.defaultSecurityRules = toSnapshots(secGroup.defaultSecurityRules(), stringPool);
+		this.securityRules = toSnapshots(secGroup.securityRules(), stringPool);
+		this.tags = ResourceTags.of(secGroup.tags(), stringPool);
+	}
+
+	private static List<SecurityRuleSnapshot> toSnapshots(Map<String, NetworkSecurityRule> secRules,
+			StringPool stringPool) {
+
+		if (secRules == null || secRules.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<SecurityRuleSnapshot> ruleSnapshots = new ArrayList<SecurityRuleSnapshot>(secRules.size());
+		for (NetworkSecurityRule secRule : secRules.values()) {
+			ruleSnapshots.add(new SecurityRuleSnapshot(secRule, stringPool));
+		}
+		return Collections.unmodifiableList(ruleSnapshots);
+	}
+
+	@Override
+	public String id() {
+		return id;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public String regionName() {
+		return regionName;
+	}
+
+	public String resourceGroupName() {
+		return resourceGroupName;
+	}
+
+	public String type() {
+		return type;
+	}
+
+	public List<SecurityRuleSnapshot> defaultSecurityRules() {
+		return defaultSecurityRules;
+	}
+
+	public List<SecurityRuleSnapshot> securityRules() {
+		return securityRules;
+	}
+
+	public ResourceTags tags() {
+		return tags;
+	}
+}
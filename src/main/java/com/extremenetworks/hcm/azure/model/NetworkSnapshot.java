@@ -0,0 +1,66 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.azure.management.network.Network;
+import com.microsoft.azure.management.network.Subnet;
+
+/** Snapshot of a network incl. its subnets, see NetworkJsonSerializer for its JSON */
+public final class NetworkSnapshot implements ResourceSnapshot {
+
+	private final String id;
+	private final String name;
+	private final String key;
+	private final String regionName;
+	private final String resourceGroupName;
+	private final List<SubnetSnapshot> subnets;
+	private final ResourceTags tags;
+
+	public NetworkSnapshot(Network network, StringPool stringPool) {
+
+		this.id = network.id();
+		this.name = stringPool.share(network.name());
+		this.key = network.key();
+		this.regionName = stringPool.share(network.regionName());
+		this.resourceGroupName = stringPool.share(network.resourceGroupName());
+
+		List<SubnetSnapshot> subnetSnapshots = new ArrayList<SubnetSnapshot>(network.subnets().size());
+		for (Subnet subnet : network.subnets().values()) {
+			subnetSnapshots.add(new SubnetSnapshot(subnet, stringPool));
+		}
+		this.subnets = Collections.unmodifiableList(subnetSnapshots);
+
+		this.tags = ResourceTags.of(network.tags(), stringPool);
+	}
+
+	@Override
+	public String id() {
+		return id;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public String regionName() {
+		return regionName;
+	}
+
+	public String resourceGroupName() {
+		return resourceGroupName;
+	}
+
+	public List<SubnetSnapshot> subnets() {
+		return subnets;
+	}
+
+	public ResourceTags tags() {
+		return tags;
+	}
+}
@@ -0,0 +1,67 @@
+package com.extremenetworks.hcm.azure.model;
+
+import com.microsoft.azure.management.network.NicIPConfiguration;
+
+/** Snapshot of an IP configuration of a network interface */
+public final class NicIpConfigurationSnapshot {
+
+	private final String key;
+	private final String name;
+	private final String networkId;
+	private final String networkName;
+	private final String privateIpAddress;
+	private final String publicIpAddress;
+	private final String subnetName;
+	private final boolean primary;
+
+	/**
+	 * @param networkName     Already resolved by the caller. Null if the network is
+	 *                        not known
+	 * @param publicIpAddress Already resolved by the caller. Empty if there is no
+	 *                        public IP
+	 */
+	public NicIpConfigurationSnapshot(NicIPConfiguration ipConfig, String networkName, String publicIpAddress,
+			StringPool stringPool) {
+
+		this.key = stringPool.share(ipConfig.key());
+		this.name = stringPool.share(ipConfig.name());
+		this.networkId = stringPool.share(ipConfig.networkId());
+		this.networkName = stringPool.share(networkName);
+		this.privateIpAddress = ipConfig.privateIPAddress();
+		this.publicIpAddress = publicIpAddress;
+		this.subnetName = stringPool.share(ipConfig.subnetName());
+		this.primary = ipConfig.isPrimary();
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String networkId() {
+		return networkId;
+	}
+
+	public String networkName() {
+		return networkName;
+	}
+
+	public String privateIpAddress() {
+		return privateIpAddress;
+	}
+
+	public String publicIpAddress() {
+		return publicIpAddress;
+	}
+
+	public String subnetName() {
+		return subnetName;
+	}
+
+	public boolean isPrimary() {
+		return primary;
+	}
+}
@@ -0,0 +1,29 @@
+package com.extremenetworks.hcm.azure.model;
+
+import com.microsoft.azure.management.network.PublicIPAddress;
+
+/**
+ * Snapshot of a public IP address. Only used to resolve the public IPs of
+ * network interfaces - public IPs are not published on their own.
+ */
+public final class PublicIpAddressSnapshot implements ResourceSnapshot {
+
+	private final String id;
+	private final String ipAddress;
+
+	public PublicIpAddressSnapshot(PublicIPAddress publicIpAddress, StringPool stringPool) {
+
+		this.id = publicIpAddress.id();
+		this.ipAddress = publicIpAddress.ipAddress();
+	}
+
+	@Override
+	public String id() {
+		return id;
+	}
+
+	/** Null if no address has been allocated yet */
+	public String ipAddress() {
+		return ipAddress;
+	}
+}
@@ -0,0 +1,16 @@
+package com.extremenetworks.hcm.azure.model;
+
+/**
+ * Compact, immutable copy of an Azure resource that holds just the data the
+ * JSON serializers write. Unlike the SDK's fluent objects, a snapshot does not
+ * reference the inner model, the manager or any lazily loaded children, so
+ * large accounts can be kept in memory for the duration of a sync.
+ *
+ * Snapshots are created by the SnapshotConverter right after a page of
+ * resources has been fetched from Azure.
+ */
+public interface ResourceSnapshot {
+
+	/** The Azure resource id, in the case Azure provided it */
+	String id();
+}
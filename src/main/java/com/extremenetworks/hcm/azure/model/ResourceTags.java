@@ -0,0 +1,49 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable tags of a resource. Keys and values are kept in a single array
+ * (key, value, key, value, ...) instead of a map with one entry per tag.
+ */
+public final class ResourceTags {
+
+	public static final ResourceTags EMPTY = new ResourceTags(new String[0]);
+
+	private final String[] keysAndValues;
+
+	private ResourceTags(String[] keysAndValues) {
+		this.keysAndValues = keysAndValues;
+	}
+
+	/** Copies the given tags in their iteration order. Null or empty maps result in EMPTY */
+	public static ResourceTags of(Map<String, String> tags, StringPool stringPool) {
+
+		if (tags == null || tags.isEmpty()) {
+			return EMPTY;
+		}
+
+		String[] keysAndValues = new String[tags.size() * 2];
+		int index = 0;
+
+		for (Entry<String, String> tag : tags.entrySet()) {
+			keysAndValues[index++] = stringPool.share(tag.getKey());
+			keysAndValues[index++] = stringPool.share(tag.getValue());
+		}
+
+		return new ResourceTags(keysAndValues);
+	}
+
+	public int size() {
+		return keysAndValues.length / 2;
+	}
+
+	public String key(int index) {
+		return keysAndValues[index * 2];
+	}
+
+	public String value(int index) {
+		return keysAndValues[index * 2 + 1];
+	}
+}
@@ -0,0 +1,94 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.List;
+
+import com.microsoft.azure.management.network.NetworkSecurityRule;
+
+/** Snapshot of a (default) security rule of a network security group */
+public final class SecurityRuleSnapshot {
+
+	private final String key;
+	private final String name;
+	private final String description;
+	private final String destinationAddressPrefix;
+	private final String destinationPortRange;
+	private final String sourceAddressPrefix;
+	private final String sourcePortRange;
+	private final int priority;
+	private final String access;
+	private final String direction;
+	private final String protocol;
+	private final List<String> destinationApplicationSecurityGroupIds;
+	private final List<String> sourceApplicationSecurityGroupIds;
+
+	public SecurityRuleSnapshot(NetworkSecurityRule secRule, StringPool stringPool) {
+
+		/* Many groups share the same (default) rules */
+		this.key = stringPool.share(secRule.key());
+		this.name = stringPool.share(secRule.name());
+		this.description = stringPool.share(secRule.description());
+		this.destinationAddressPrefix = stringPool.share(secRule.destinationAddressPrefix());
+		this.destinationPortRange = stringPool.share(secRule.destinationPortRange());
+		this.sourceAddressPrefix = stringPool.share(secRule.sourceAddressPrefix());
+		this.sourcePortRange = stringPool.share(secRule.sourcePortRange());
+		this.priority = secRule.priority();
+		this.access = stringPool.share(secRule.access().toString());
+		this.direction = stringPool.share(secRule.direction().toString());
+		this.protocol = stringPool.share(secRule.protocol().toString());
+		this.destinationApplicationSecurityGroupIds = stringPool
+				.shareAll(secRule.destinationApplicationSecurityGroupIds());
+		this.sourceApplicationSecurityGroupIds = stringPool.shareAll(secRule.sourceApplicationSecurityGroupIds());
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String description() {
+		return description;
+	}
+
+	public String destinationAddressPrefix() {
+		return destinationAddressPrefix;
+	}
+
+	public String destinationPortRange() {
+		return destinationPortRange;
+	}
+
+	public String sourceAddressPrefix() {
+		return sourceAddressPrefix;
+	}
+
+	public String sourcePortRange() {
+		return sourcePortRange;
+	}
+
+	public int priority() {
+		return priority;
+	}
+
+	public String access() {
+		return access;
+	}
+
+	public String direction() {
+		return direction;
+	}
+
+	public String protocol() {
+		return protocol;
+	}
+
+	public List<String> destinationApplicationSecurityGroupIds() {
+		return destinationApplicationSecurityGroupIds;
+	}
+
+	public List<String> sourceApplicationSecurityGroupIds() {
+		return sourceApplicationSecurityGroupIds;
+	}
+}
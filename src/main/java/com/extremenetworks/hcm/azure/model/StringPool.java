@@ -0,0 +1,67 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes strings that occur over and over within the resources of one
+ * account: Region and resource group names, states, referenced resource ids,
+ * tags, security rule settings, ... Each distinct value is then held only once
+ * by all snapshots of a sync.
+ *
+ * Unlike String.intern(), the pool is released together with the snapshots at
+ * the end of the sync. It is thread-safe since the resource types may be
+ * fetched in parallel.
+ */
+public final class StringPool {
+
+	/** Does not pool anything, e.g. for single resources that are serialized right away */
+	public static final StringPool NONE = new StringPool(null);
+
+	private final ConcurrentHashMap<String, String> strings;
+
+	private StringPool(ConcurrentHashMap<String, String> strings) {
+		this.strings = strings;
+	}
+
+	public StringPool() {
+		this(new ConcurrentHashMap<String, String>());
+	}
+
+	/** Returns the pooled instance that is equal to the given string. Null stays null */
+	public String share(String value) {
+
+		if (value == null || strings == null) {
+			return value;
+		}
+
+		String pooledValue = strings.putIfAbsent(value, value);
+		return (pooledValue == null) ? value : pooledValue;
+	}
+
+	/** Resource ids in lower-case, e.g. as lookup keys - Azure uses different cases for the same id */
+	public String shareLowerCase(String id) {
+		return (id == null) ? null : share(id.toLowerCase());
+	}
+
+	/** Immutable copy of the given strings, each of them pooled */
+	public List<String> shareAll(Collection<String> values) {
+
+		if (values == null || values.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<String> pooledValues = new ArrayList<String>(values.size());
+		for (String value : values) {
+			pooledValues.add(share(value));
+		}
+		return Collections.unmodifiableList(pooledValues);
+	}
+
+	public int size() {
+		return (strings == null) ? 0 : strings.size();
+	}
+}
@@ -0,0 +1,42 @@
+package com.extremenetworks.hcm.azure.model;
+
+import com.microsoft.azure.management.network.Subnet;
+
+/** Snapshot of a subnet of a network */
+public final class SubnetSnapshot {
+
+	private final String key;
+	private final String name;
+	private final String addressPrefix;
+	private final String networkSecurityGroupId;
+	private final String routeTableId;
+
+	public SubnetSnapshot(Subnet subnet, StringPool stringPool) {
+
+		this.key = stringPool.share(subnet.key());
+		this.name = stringPool.share(subnet.name());
+		this.addressPrefix = subnet.addressPrefix();
+		this.networkSecurityGroupId = stringPool.share(subnet.networkSecurityGroupId());
+		this.routeTableId = stringPool.share(subnet.routeTableId());
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String addressPrefix() {
+		return addressPrefix;
+	}
+
+	public String networkSecurityGroupId() {
+		return networkSecurityGroupId;
+	}
+
+	public String routeTableId() {
+		return routeTableId;
+	}
+}
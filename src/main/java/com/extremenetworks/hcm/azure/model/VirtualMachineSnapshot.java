@@ -0,0 +1,144 @@
+package com.extremenetworks.hcm.azure.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.azure.management.compute.VirtualMachine;
+import com.microsoft.azure.management.resources.fluentcore.arm.AvailabilityZoneId;
+
+/** Snapshot of a virtual machine, see VirtualMachineJsonSerializer for its JSON */
+public final class VirtualMachineSnapshot implements ResourceSnapshot {
+
+	private final String id;
+	private final String vmId;
+	private final String name;
+	private final String key;
+	private final String availabilitySetId;
+	private final String computerName;
+	private final String primaryNetworkInterfaceId;
+	private final String provisioningState;
+	private final String powerState;
+	private final String regionName;
+	private final String resourceGroupName;
+	private final String size;
+	private final String primaryPublicIpAddress;
+	private final String deviceFamily;
+	private final String deviceType;
+	private final List<String> availabilityZones;
+	private final List<String> networkInterfaceIds;
+	private final ResourceTags tags;
+
+	/**
+	 * @param primaryPublicIpAddress Already resolved by the caller. Empty if the VM
+	 *                               does not have a public IP
+	 */
+	public VirtualMachineSnapshot(VirtualMachine vm, String primaryPublicIpAddress, StringPool stringPool) {
+
+		this.id = vm.id();
+		this.vmId = vm.vmId();
+		this.name = vm.name();
+		this.key = vm.key();
+		this.availabilitySetId = stringPool.share(vm.availabilitySetId());
+		this.computerName = vm.computerName();
+		this.primaryNetworkInterfaceId = stringPool.share(vm.primaryNetworkInterfaceId());
+		this.provisioningState = stringPool.share(vm.provisioningState());
+		this.powerState = stringPool.share(vm.powerState().toString());
+		this.regionName = stringPool.share(vm.regionName());
+		this.resourceGroupName = stringPool.share(vm.resourceGroupName());
+		this.size = stringPool.share(vm.size().toString());
+		this.primaryPublicIpAddress = primaryPublicIpAddress;
+		this.deviceFamily = stringPool.share(vm.storageProfile().osDisk().osType().toString());
+
+		/* The info on a more exact operating system version is not available for custom VM images */
+		if (vm.storageProfile().imageReference() != null) {
+			this.deviceType = stringPool.share(vm.storageProfile().imageReference().offer() + " "
+					+ vm.storageProfile().imageReference().sku());
+		} else {
+			this.deviceType = null;
+		}
+
+		List<String> zones = new ArrayList<String>();
+		for (AvailabilityZoneId zone : vm.availabilityZones()) {
+			zones.add(zone.toString());
+		}
+		this.availabilityZones = zones.isEmpty() ? Collections.<String>emptyList() : stringPool.shareAll(zones);
+
+		this.networkInterfaceIds = stringPool.shareAll(vm.networkInterfaceIds());
+		this.tags = ResourceTags.of(vm.tags(), stringPool);
+	}
+
+	@Override
+	public String id() {
+		return id;
+	}
+
+	public String vmId() {
+		return vmId;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public String availabilitySetId() {
+		return availabilitySetId;
+	}
+
+	public String computerName() {
+		return computerName;
+	}
+
+	public String primaryNetworkInterfaceId() {
+		return primaryNetworkInterfaceId;
+	}
+
+	public String provisioningState() {
+		return provisioningState;
+	}
+
+	public String powerState() {
+		return powerState;
+	}
+
+	public String regionName() {
+		return regionName;
+	}
+
+	public String resourceGroupName() {
+		return resourceGroupName;
+	}
+
+	public String size() {
+		return size;
+	}
+
+	public String primaryPublicIpAddress() {
+		return primaryPublicIpAddress;
+	}
+
+	public String deviceFamily() {
+		return deviceFamily;
+	}
+
+	/** Null for custom VM images */
+	public String deviceType() {
+		return deviceType;
+	}
+
+	public List<String> availabilityZones() {
+		return availabilityZones;
+	}
+
+	public List<String> networkInterfaceIds() {
+		return networkInterfaceIds;
+	}
+
+	public ResourceTags tags() {
+		return tags;
+	}
+}
@@ -0,0 +1,172 @@
+package com.extremenetworks.hcm.azure.tools;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.extremenetworks.hcm.azure.model.NetworkInterfaceSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.NicIpConfigurationSnapshot;
+import com.extremenetworks.hcm.azure.model.ResourceTags;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+
+public class NetworkInterfaceSnapshotJsonSerializer extends JsonSerializer<NetworkInterfaceSnapshot> {
+
+	public void serialize(NetworkInterfaceSnapshot nwInterface, JsonGenerator jgen, SerializerProvider provider) throws IOException, JsonProcessingException {
+
+		jgen.writeStartObject();
+		
+		jgen.writeFieldName("id");
+		jgen.writeString(nwInterface.id());
+		
+		jgen.writeFieldName("macAddress");
+		jgen.writeString(nwInterface.macAddress());
+
+		jgen.writeFieldName("name");
+		jgen.writeString(nwInterface.name());
+
+		jgen.writeFieldName("networkSecurityGroupId");
+		jgen.writeString(nwInterface.networkSecurityGroupId());
+
+		jgen.writeFieldName("primaryPrivateIP");
+		jgen.writeString(nwInterface.primaryPrivateIP());
+
+		jgen.writeFieldName("regionName");
+		jgen.writeString(nwInterface.regionName());
+
+		jgen.writeFieldName("resourceGroupName");
+		jgen.writeString(nwInterface.resourceGroupName());
+		
+		jgen.writeFieldName("virtualMachineId");
+		jgen.writeString(nwInterface.virtualMachineId());
+
+		jgen.writeFieldName("internalDnsNameLabel");
+		jgen.writeString(nwInterface.internalDnsNameLabel());
+
+		jgen.writeFieldName("internalDomainNameSuffix");
+		jgen.writeString(nwInterface.internalDomainNameSuffix());
+
+		jgen.writeFieldName("internalFqdn");
+		jgen.writeString(nwInterface.internalFqdn());
+
+		jgen.writeFieldName("key");
+		jgen.writeString(nwInterface.key());
+
+		jgen.writeFieldName("update");
+		jgen.writeString(nwInterface.update());
+
+		/* Print the network security group (including all rules) */
+		printSecurityGroup(nwInterface.networkSecurityGroup(), jgen);
+		
+		/* Print all IP configurations */
+		printIpConfigurations(nwInterface.ipConfigurations(), jgen);
+		
+		
+		/* Tags */
+		jgen.writeArrayFieldStart("tags");
+		
+		ResourceTags tags = nwInterface.tags();
+		for (int tagIndex = 0; tagIndex < tags.size(); tagIndex++) {
+
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(tags.key(tagIndex));
+			
+			jgen.writeFieldName("value");
+			jgen.writeString(tags.value(tagIndex));
+
+			jgen.writeEndObject();
+		}
+		
+		jgen.writeEndArray(); // End of: Tags 
+		
+		
+		jgen.writeEndObject();
+	}
+	
+	
+	/** Prints the network security group */
+	private void printSecurityGroup(NetworkSecurityGroupSnapshot secGroup, JsonGenerator jgen) throws IOException, JsonProcessingException {
+		
+		if (secGroup == null) {
+			jgen.writeFieldName("networkSecurityGroup");
+			jgen.writeStartObject();
+			jgen.writeEndObject();	
+			return;
+		}
+		
+		jgen.writeFieldName("networkSecurityGroup");
+		jgen.writeStartObject();
+		
+		jgen.writeFieldName("id");
+		jgen.writeString(secGroup.id());
+
+		jgen.writeFieldName("key");
+		jgen.writeString(secGroup.key());
+
+		jgen.writeFieldName("name");
+		jgen.writeString(secGroup.name());
+
+		jgen.writeFieldName("regionName");
+		jgen.writeString(secGroup.regionName());
+
+		jgen.writeFieldName("resourceGroupName");
+		jgen.writeString(secGroup.resourceGroupName());
+
+		jgen.writeFieldName("type");
+		jgen.writeString(secGroup.type());
+
+		
+		// Print all security rules
+		NetworkSecurityGroupSnapshotJsonSerializer.printSecurityRules("securityRules", secGroup.securityRules(), jgen);
+		
+		jgen.writeEndObject();	
+	}
+	
+	
+	/** Prints all IP configurations */
+	private void printIpConfigurations(List<NicIpConfigurationSnapshot> ipConfigs, JsonGenerator jgen) throws IOException, JsonProcessingException {
+		
+		jgen.writeArrayFieldStart("IpConfigurations");
+		
+		for (NicIpConfigurationSnapshot ipConfig : ipConfigs) {
+
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(ipConfig.key());
+
+			jgen.writeFieldName("name");
+			jgen.writeString(ipConfig.name());
+
+			jgen.writeFieldName("networkId");
+			jgen.writeString(ipConfig.networkId());
+
+			if (ipConfig.networkName() != null) {
+				jgen.writeFieldName("networkName");
+				jgen.writeString(ipConfig.networkName());	
+			}
+			
+			jgen.writeFieldName("privateIpAddress");
+			jgen.writeString(ipConfig.privateIpAddress());
+
+			jgen.writeFieldName("publicIpAddress");
+			jgen.writeString(ipConfig.publicIpAddress());
+			
+
+			jgen.writeFieldName("subnetName");
+			jgen.writeString(ipConfig.subnetName());
+
+			jgen.writeFieldName("isPrimary");
+			jgen.writeBoolean(ipConfig.isPrimary());
+
+			jgen.writeEndObject(); // End of: IP Config
+		}
+
+		jgen.writeEndArray(); // End of: Array of all IP configurations
+	}
+}
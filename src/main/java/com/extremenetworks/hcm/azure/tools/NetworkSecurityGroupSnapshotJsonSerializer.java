@@ -0,0 +1,138 @@
+package com.extremenetworks.hcm.azure.tools;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.ResourceTags;
+import com.extremenetworks.hcm.azure.model.SecurityRuleSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+
+public class NetworkSecurityGroupSnapshotJsonSerializer extends JsonSerializer<NetworkSecurityGroupSnapshot> {
+
+	public void serialize(NetworkSecurityGroupSnapshot secGroup, JsonGenerator jgen, SerializerProvider provider) throws IOException, JsonProcessingException {
+
+		jgen.writeStartObject();
+		
+		jgen.writeFieldName("id");
+		jgen.writeString(secGroup.id());
+
+		jgen.writeFieldName("name");
+		jgen.writeString(secGroup.name());
+
+		jgen.writeFieldName("key");
+		jgen.writeString(secGroup.key());
+
+		jgen.writeFieldName("regionName");
+		jgen.writeString(secGroup.regionName());
+
+		jgen.writeFieldName("resourceGroupName");
+		jgen.writeString(secGroup.resourceGroupName());
+
+		
+		
+		printSecurityRules("defaultSecurityRules", secGroup.defaultSecurityRules(), jgen);
+		
+		printSecurityRules("securityRules", secGroup.securityRules(), jgen);
+		
+	
+		/* Tags */
+		jgen.writeArrayFieldStart("tags");
+		
+		ResourceTags tags = secGroup.tags();
+		for (int tagIndex = 0; tagIndex < tags.size(); tagIndex++) {
+			
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(tags.key(tagIndex));
+			
+			jgen.writeFieldName("value");
+			jgen.writeString(tags.value(tagIndex));
+			
+			jgen.writeEndObject();
+		}
+		
+		jgen.writeEndArray(); // End of: Tags 
+		
+		
+		jgen.writeEndObject();
+	}
+	
+
+	/**
+	 * Prints the given list of (default) security rules. Also used for the
+	 * security group that is embedded within each network interface
+	 */
+	static void printSecurityRules(String fieldName, List<SecurityRuleSnapshot> secRules, JsonGenerator jgen) throws IOException, JsonProcessingException {
+		
+		jgen.writeArrayFieldStart(fieldName);
+		
+		for (SecurityRuleSnapshot secRule : secRules) {
+
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(secRule.key());
+
+			jgen.writeFieldName("name");
+			jgen.writeString(secRule.name());
+			
+			jgen.writeFieldName("description");
+			jgen.writeString(secRule.description());
+
+			jgen.writeFieldName("destinationAddressPrefix");
+			jgen.writeString(secRule.destinationAddressPrefix());
+
+			jgen.writeFieldName("destinationPortRange");
+			jgen.writeString(secRule.destinationPortRange());
+
+			jgen.writeFieldName("sourceAddressPrefix");
+			jgen.writeString(secRule.sourceAddressPrefix());
+
+			jgen.writeFieldName("sourcePortRange");
+			jgen.writeString(secRule.sourcePortRange());
+
+			jgen.writeFieldName("priority");
+			jgen.writeNumber(secRule.priority());
+
+			jgen.writeFieldName("access");
+			jgen.writeString(secRule.access());
+
+			jgen.writeFieldName("direction");
+			jgen.writeString(secRule.direction());
+
+			jgen.writeFieldName("protocol");
+			jgen.writeString(secRule.protocol());
+
+			/* Destination Application Security Group Ids */
+			jgen.writeArrayFieldStart("destinationApplicationSecurityGroupIds");
+			
+			for (String destSecGroupId : secRule.destinationApplicationSecurityGroupIds()) {
+				jgen.writeString(destSecGroupId);
+			}
+			
+			jgen.writeEndArray(); // End of: Destination Application Security Group Ids 
+			
+
+			/* Source Application Security Group Ids */
+			jgen.writeArrayFieldStart("sourceApplicationSecurityGroupIds");
+			
+			for (String srcSecGroupId : secRule.sourceApplicationSecurityGroupIds()) {
+				jgen.writeString(srcSecGroupId);
+			}
+			
+			jgen.writeEndArray(); // End of: Source Application Security Group Ids
+			
+			
+			jgen.writeEndObject(); // End of: Security Rule
+		}
+		
+		jgen.writeEndArray(); // End of: Array of all security rules
+	}
+	
+}
@@ -0,0 +1,95 @@
+package com.extremenetworks.hcm.azure.tools;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.extremenetworks.hcm.azure.model.NetworkSnapshot;
+import com.extremenetworks.hcm.azure.model.ResourceTags;
+import com.extremenetworks.hcm.azure.model.SubnetSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+
+public class NetworkSnapshotJsonSerializer extends JsonSerializer<NetworkSnapshot> {
+
+	public void serialize(NetworkSnapshot nw, JsonGenerator jgen, SerializerProvider provider) throws IOException, JsonProcessingException {
+
+		jgen.writeStartObject();
+		
+		jgen.writeFieldName("id");
+		jgen.writeString(nw.id());
+
+		jgen.writeFieldName("name");
+		jgen.writeString(nw.name());
+
+		jgen.writeFieldName("key");
+		jgen.writeString(nw.key());
+
+		jgen.writeFieldName("regionName");
+		jgen.writeString(nw.regionName());
+
+		jgen.writeFieldName("resourceGroupName");
+		jgen.writeString(nw.resourceGroupName());
+
+		
+		printSubnets(nw.subnets(), jgen);
+		
+	
+		/* Tags */
+		jgen.writeArrayFieldStart("tags");
+		
+		ResourceTags tags = nw.tags();
+		for (int tagIndex = 0; tagIndex < tags.size(); tagIndex++) {
+			
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(tags.key(tagIndex));
+			
+			jgen.writeFieldName("value");
+			jgen.writeString(tags.value(tagIndex));
+			
+			jgen.writeEndObject();
+		}
+		
+		jgen.writeEndArray(); // End of: Tags 
+		
+		
+		jgen.writeEndObject();
+	}
+	
+
+	/** Prints the list of subnets */
+	private void printSubnets(List<SubnetSnapshot> subnets, JsonGenerator jgen) throws IOException, JsonProcessingException {
+		
+		jgen.writeArrayFieldStart("subnets");
+		
+		for (SubnetSnapshot subnet : subnets) {
+
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(subnet.key());
+
+			jgen.writeFieldName("name");
+			jgen.writeString(subnet.name());
+			
+			jgen.writeFieldName("addressPrefix");
+			jgen.writeString(subnet.addressPrefix());
+
+			jgen.writeFieldName("networkSecurityGroupId");
+			jgen.writeString(subnet.networkSecurityGroupId());
+
+			jgen.writeFieldName("routeTableId");
+			jgen.writeString(subnet.routeTableId());
+
+
+			jgen.writeEndObject(); // End of: Subnet
+		}
+		
+		jgen.writeEndArray(); // End of: Array of all subnets
+	}
+	
+}
@@ -0,0 +1,124 @@
+package com.extremenetworks.hcm.azure.tools;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.extremenetworks.hcm.azure.model.NetworkInterfaceSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSnapshot;
+import com.extremenetworks.hcm.azure.model.PublicIpAddressSnapshot;
+import com.extremenetworks.hcm.azure.model.StringPool;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Snapshot of all network security groups, networks, public IP addresses and
+ * network interfaces of one Azure subscription. It is built once per sync from
+ * bulk list calls and handed to the JSON serializers (as a Jackson context
+ * attribute) so they can resolve referenced resources by id instead of issuing
+ * one remote GET per reference. The network interfaces are resolved against
+ * the other resources of the context and published from it as well, so they
+ * are listed only once per sync.
+ *
+ * Only the compact snapshots (see the model package) are kept, not the SDK
+ * objects they have been converted from.
+ *
+ * All maps are keyed by the lower-case resource id: Azure provides the same id
+ * in different cases depending on where it is referenced from.
+ */
+public class ResourceLookupContext {
+
+	/** Name of the Jackson context attribute that holds the lookup context */
+	public static final String JSON_ATTRIBUTE = "azureResourceLookupContext";
+
+	private final Map<String, NetworkSecurityGroupSnapshot> networkSecurityGroups = new LinkedHashMap<String, NetworkSecurityGroupSnapshot>();
+	private final Map<String, NetworkSnapshot> networks = new LinkedHashMap<String, NetworkSnapshot>();
+	private final Map<String, PublicIpAddressSnapshot> publicIpAddresses = new LinkedHashMap<String, PublicIpAddressSnapshot>();
+	private final Map<String, NetworkInterfaceSnapshot> networkInterfaces = new LinkedHashMap<String, NetworkInterfaceSnapshot>();
+
+	/* The keys are pooled as well: The same ids are referenced by many resources */
+	private final StringPool stringPool;
+
+	public ResourceLookupContext(StringPool stringPool) {
+		this.stringPool = stringPool;
+	}
+
+	/**
+	 * Returns the lookup context that has been attached to the current
+	 * serialization or null if the serializers have to fall back to remote calls
+	 */
+	public static ResourceLookupContext from(SerializerProvider provider) {
+
+		if (provider == null) {
+			return null;
+		}
+
+		Object lookupContext = provider.getAttribute(JSON_ATTRIBUTE);
+		if (lookupContext instanceof ResourceLookupContext) {
+			return (ResourceLookupContext) lookupContext;
+		}
+		return null;
+	}
+
+	public void addNetworkSecurityGroup(NetworkSecurityGroupSnapshot secGroup) {
+		networkSecurityGroups.put(stringPool.shareLowerCase(secGroup.id()), secGroup);
+	}
+
+	public void addNetwork(NetworkSnapshot network) {
+		networks.put(stringPool.shareLowerCase(network.id()), network);
+	}
+
+	public void addPublicIpAddress(PublicIpAddressSnapshot publicIpAddress) {
+		publicIpAddresses.put(stringPool.shareLowerCase(publicIpAddress.id()), publicIpAddress);
+	}
+
+	/**
+	 * The network interface has to be converted with this context (see
+	 * SnapshotConverter.withLookupContext), i.e. after all security groups,
+	 * networks and public IPs have been added
+	 */
+	public void addNetworkInterface(NetworkInterfaceSnapshot nwInterface) {
+		networkInterfaces.put(stringPool.shareLowerCase(nwInterface.id()), nwInterface);
+	}
+
+	public NetworkSecurityGroupSnapshot getNetworkSecurityGroup(String id) {
+		return (id == null) ? null : networkSecurityGroups.get(toKey(id));
+	}
+
+	public NetworkSnapshot getNetwork(String id) {
+		return (id == null) ? null : networks.get(toKey(id));
+	}
+
+	public PublicIpAddressSnapshot getPublicIpAddress(String id) {
+		return (id == null) ? null : publicIpAddresses.get(toKey(id));
+	}
+
+	/** Null if the network interface has not been retrieved with this context */
+	public NetworkInterfaceSnapshot getNetworkInterface(String id) {
+		return (id == null) ? null : networkInterfaces.get(toKey(id));
+	}
+
+	/** All security groups in the order they were retrieved from Azure */
+	public Collection<NetworkSecurityGroupSnapshot> getNetworkSecurityGroups() {
+		return networkSecurityGroups.values();
+	}
+
+	/** All networks in the order they were retrieved from Azure */
+	public Collection<NetworkSnapshot> getNetworks() {
+		return networks.values();
+	}
+
+	/** All public IP addresses in the order they were retrieved from Azure */
+	public Collection<PublicIpAddressSnapshot> getPublicIpAddresses() {
+		return publicIpAddresses.values();
+	}
+
+	/** All network interfaces in the order they were retrieved from Azure */
+	public Collection<NetworkInterfaceSnapshot> getNetworkInterfaces() {
+		return networkInterfaces.values();
+	}
+
+	private static String toKey(String id) {
+		return id.toLowerCase();
+	}
+}
@@ -0,0 +1,162 @@
+package com.extremenetworks.hcm.azure.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.extremenetworks.hcm.azure.model.NetworkInterfaceSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSecurityGroupSnapshot;
+import com.extremenetworks.hcm.azure.model.NetworkSnapshot;
+import com.extremenetworks.hcm.azure.model.NicIpConfigurationSnapshot;
+import com.extremenetworks.hcm.azure.model.PublicIpAddressSnapshot;
+import com.extremenetworks.hcm.azure.model.StringPool;
+import com.extremenetworks.hcm.azure.model.VirtualMachineSnapshot;
+import com.microsoft.azure.management.compute.VirtualMachine;
+import com.microsoft.azure.management.network.Network;
+import com.microsoft.azure.management.network.NetworkInterface;
+import com.microsoft.azure.management.network.NetworkSecurityGroup;
+import com.microsoft.azure.management.network.NicIPConfiguration;
+import com.microsoft.azure.management.network.PublicIPAddress;
+
+/**
+ * Converts the SDK's fluent objects into the compact snapshots of the model
+ * package. Referenced resources (security group of a network interface,
+ * networks and public IPs of its IP configurations, primary public IP of a VM)
+ * are resolved during the conversion: From the lookup context if there is one,
+ * by remote calls otherwise. The fluent object is not needed anymore
+ * afterwards.
+ *
+ * One converter (and string pool) is used per sync. It is thread-safe.
+ */
+public class SnapshotConverter {
+
+	private final StringPool stringPool;
+	private final ResourceLookupContext lookupContext;
+
+	/** Pools the strings of all snapshots, without a lookup context */
+	public SnapshotConverter() {
+		this(new StringPool(), null);
+	}
+
+	private SnapshotConverter(StringPool stringPool, ResourceLookupContext lookupContext) {
+		this.stringPool = stringPool;
+		this.lookupContext = lookupContext;
+	}
+
+	/**
+	 * For single resources that are serialized right away: Nothing is pooled
+	 * 
+	 * @param lookupContext Optional
+	 */
+	public static SnapshotConverter withoutPooling(ResourceLookupContext lookupContext) {
+		return new SnapshotConverter(StringPool.NONE, lookupContext);
+	}
+
+	/**
+	 * Returns a converter that shares the string pool of this one and resolves
+	 * references from the given lookup context
+	 */
+	public SnapshotConverter withLookupContext(ResourceLookupContext lookupContext) {
+		return new SnapshotConverter(stringPool, lookupContext);
+	}
+
+	/** An empty lookup context that pools its keys together with the snapshots */
+	public ResourceLookupContext newLookupContext() {
+		return new ResourceLookupContext(stringPool);
+	}
+
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	public NetworkSnapshot toSnapshot(Network network) {
+		return new NetworkSnapshot(network, stringPool);
+	}
+
+	public NetworkSecurityGroupSnapshot toSnapshot(NetworkSecurityGroup secGroup) {
+		return new NetworkSecurityGroupSnapshot(secGroup, stringPool);
+	}
+
+	public PublicIpAddressSnapshot toSnapshot(PublicIPAddress publicIpAddress) {
+		return new PublicIpAddressSnapshot(publicIpAddress, stringPool);
+	}
+
+	public VirtualMachineSnapshot toSnapshot(VirtualMachine vm) {
+
+		return new VirtualMachineSnapshot(vm, getPrimaryPublicIpAddress(vm), stringPool);
+	}
+
+	public NetworkInterfaceSnapshot toSnapshot(NetworkInterface nwInterface) {
+
+		/* With a lookup context, all interfaces share the snapshot of their security group */
+		NetworkSecurityGroupSnapshot secGroup;
+
+		if (lookupContext != null) {
+			secGroup = lookupContext.getNetworkSecurityGroup(nwInterface.networkSecurityGroupId());
+		} else {
+			NetworkSecurityGroup nicSecGroup = nwInterface.getNetworkSecurityGroup();
+			secGroup = (nicSecGroup == null) ? null : toSnapshot(nicSecGroup);
+		}
+
+		List<NicIpConfigurationSnapshot> ipConfigs = new ArrayList<NicIpConfigurationSnapshot>(
+				nwInterface.ipConfigurations().size());
+
+		for (NicIPConfiguration ipConfig : nwInterface.ipConfigurations().values()) {
+			ipConfigs.add(toSnapshot(ipConfig));
+		}
+
+		return new NetworkInterfaceSnapshot(nwInterface, secGroup, ipConfigs, stringPool);
+	}
+
+	private NicIpConfigurationSnapshot toSnapshot(NicIPConfiguration ipConfig) {
+
+		String networkName = null;
+		String publicIpAddress = null;
+
+		if (lookupContext != null) {
+			NetworkSnapshot network = lookupContext.getNetwork(ipConfig.networkId());
+			PublicIpAddressSnapshot publicIp = lookupContext.getPublicIpAddress(ipConfig.publicIPAddressId());
+
+			networkName = (network == null) ? null : network.name();
+			publicIpAddress = (publicIp == null) ? null : publicIp.ipAddress();
+
+		} else {
+			Network network = ipConfig.getNetwork();
+			PublicIPAddress publicIp = ipConfig.getPublicIPAddress();
+
+			networkName = (network == null) ? null : network.name();
+			publicIpAddress = (publicIp == null) ? null : publicIp.ipAddress();
+		}
+
+		return new NicIpConfigurationSnapshot(ipConfig, networkName, (publicIpAddress == null) ? "" : publicIpAddress,
+				stringPool);
+	}
+
+	/**
+	 * Takes the public IP of the primary IP configuration of the VM's primary
+	 * network interface from the snapshot of that interface in the per-sync
+	 * lookup context - same as VirtualMachine.getPrimaryPublicIPAddress(), a
+	 * public IP on a secondary IP configuration is not reported. Only falls back
+	 * to the remote lookup (VM -> NIC -> public IP) if there is no lookup context
+	 * or if it does not contain the primary NIC (e.g. created after the context
+	 * had been retrieved).
+	 * 
+	 * @return Empty if the VM does not have a public IP
+	 */
+	private String getPrimaryPublicIpAddress(VirtualMachine vm) {
+
+		NetworkInterfaceSnapshot primaryNwInterface = (lookupContext == null) ? null
+				: lookupContext.getNetworkInterface(vm.primaryNetworkInterfaceId());
+
+		if (primaryNwInterface != null) {
+			for (NicIpConfigurationSnapshot ipConfig : primaryNwInterface.ipConfigurations()) {
+				if (ipConfig.isPrimary()) {
+					return ipConfig.publicIpAddress();
+				}
+			}
+			return "";
+		}
+
+		PublicIPAddress primaryPublicIp = vm.getPrimaryPublicIPAddress();
+		return (primaryPublicIp == null) ? "" : primaryPublicIp.ipAddress();
+	}
+}
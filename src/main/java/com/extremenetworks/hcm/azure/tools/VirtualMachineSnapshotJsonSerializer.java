@@ -0,0 +1,111 @@
+package com.extremenetworks.hcm.azure.tools;
+
+import java.io.IOException;
+
+import com.extremenetworks.hcm.azure.model.ResourceTags;
+import com.extremenetworks.hcm.azure.model.VirtualMachineSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+
+public class VirtualMachineSnapshotJsonSerializer extends JsonSerializer<VirtualMachineSnapshot> {
+
+	public void serialize(VirtualMachineSnapshot vm, JsonGenerator jgen, SerializerProvider provider) throws IOException, JsonProcessingException {
+
+		jgen.writeStartObject();
+		
+		jgen.writeFieldName("id");
+		jgen.writeString(vm.id());
+
+		jgen.writeFieldName("vmId");
+		jgen.writeString(vm.vmId());
+
+		jgen.writeFieldName("name");
+		jgen.writeString(vm.name());
+
+		jgen.writeFieldName("key");
+		jgen.writeString(vm.key());
+
+		jgen.writeFieldName("availabilitySetId");
+		jgen.writeString(vm.availabilitySetId());
+
+		jgen.writeFieldName("computerName");
+		jgen.writeString(vm.computerName());
+
+		jgen.writeFieldName("primaryNetworkInterfaceId");
+		jgen.writeString(vm.primaryNetworkInterfaceId());
+
+		jgen.writeFieldName("provisioningState");
+		jgen.writeString(vm.provisioningState());
+
+		jgen.writeFieldName("powerState");
+		jgen.writeString(vm.powerState());
+		
+		jgen.writeFieldName("regionName");
+		jgen.writeString(vm.regionName());
+
+		jgen.writeFieldName("resourceGroupName");
+		jgen.writeString(vm.resourceGroupName());
+
+		jgen.writeFieldName("size");
+		jgen.writeString(vm.size());
+
+		jgen.writeFieldName("primaryPublicIpAddress");
+		jgen.writeString(vm.primaryPublicIpAddress());
+
+		jgen.writeFieldName("deviceFamily");
+		jgen.writeString(vm.deviceFamily());
+
+		/* The info on a more exact operating system version is not available for custom VM images */
+		if (vm.deviceType() != null) {
+			
+			jgen.writeFieldName("deviceType");
+			jgen.writeString(vm.deviceType());
+		} 
+
+
+		/* Availability Zones */
+		jgen.writeArrayFieldStart("availabilityZones");
+		
+		for (String zone : vm.availabilityZones()) {
+			jgen.writeString(zone);
+		}
+		
+		jgen.writeEndArray(); // End of: Availability Zones 
+		
+
+		/* Network Interface IDs */
+		jgen.writeArrayFieldStart("networkInterfaceIDs");
+		
+		for (String nwIfId : vm.networkInterfaceIds()) {
+			jgen.writeString(nwIfId);
+		}
+		
+		jgen.writeEndArray(); // End of: Network Interface IDs 
+		
+	
+		/* Tags */
+		jgen.writeArrayFieldStart("tags");
+		
+		ResourceTags tags = vm.tags();
+		for (int tagIndex = 0; tagIndex < tags.size(); tagIndex++) {
+
+			jgen.writeStartObject();
+			
+			jgen.writeFieldName("key");
+			jgen.writeString(tags.key(tagIndex));
+			
+			jgen.writeFieldName("value");
+			jgen.writeString(tags.value(tagIndex));
+			
+			jgen.writeEndObject();	
+		}
+		
+		jgen.writeEndArray(); // End of: Tags 
+		
+		
+		jgen.writeEndObject();
+	}
+}
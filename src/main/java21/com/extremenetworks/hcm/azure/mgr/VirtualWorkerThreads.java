@@ -0,0 +1,42 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Worker threads for HCM_AZURE_WORKER_THREADS=virtual (Java 21, jdk21 build
+ * profile): Every sync and every fetch runs on its own virtual thread. The
+ * blocking PagedList iteration and the Datastore and RabbitMQ calls then only
+ * park the virtual thread, so the number of accounts that are synced at the
+ * same time is limited by HCM_AZURE_SYNC_THREADS (which can be set much higher
+ * than with platform threads) and by the ARM throttling, not by the pools.
+ *
+ * Each sync gets its own executor for its fetches, which is shut down (and
+ * awaited) together with the sync's scope.
+ */
+class VirtualWorkerThreads implements WorkerThreads {
+
+	private final ThreadFactory syncThreadFactory = Thread.ofVirtual().name("sync-", 0).factory();
+
+	/* Used by the async fetch mode - the other modes fork their fetches into the sync's scope */
+	private final ExecutorService fetchExecutor = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("fetch-", 0).factory());
+
+	@Override
+	public ThreadFactory getSyncThreadFactory() {
+		return syncThreadFactory;
+	}
+
+	@Override
+	public ExecutorService getFetchExecutor() {
+		return fetchExecutor;
+	}
+
+	@Override
+	public SyncScope openSyncScope(String syncName) {
+
+		return new SyncScope(
+				Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(syncName + "-fetch-", 0).factory()), true);
+	}
+}
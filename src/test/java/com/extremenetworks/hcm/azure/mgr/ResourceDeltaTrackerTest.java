@@ -0,0 +1,74 @@
+package com.extremenetworks.hcm.azure.mgr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class ResourceDeltaTrackerTest {
+
+	private static final String NIC_ID = "/subscriptions/sub1/resourceGroups/rg1/providers/Microsoft.Network/networkInterfaces/nic1";
+
+	@Test
+	public void identicalResourcesResultInEmptyDelta() {
+
+		String accountId = UUID.randomUUID().toString();
+
+		ResourceDeltaTracker firstSync = new ResourceDeltaTracker("tenant", accountId, "NetworkInterface");
+		firstSync.add(NIC_ID, nicJson("key-1", "NetworkInterfaceImpl@1a2b", "env"));
+		firstSync.commit();
+
+		/* Same resource, but a different SDK instance and id in a different case */
+		ResourceDeltaTracker secondSync = new ResourceDeltaTracker("tenant", accountId, "NetworkInterface");
+		secondSync.add(NIC_ID.toLowerCase(), nicJson("key-2", "NetworkInterfaceImpl@3c4d", "env"));
+
+		assertTrue(secondSync.hasBaseline());
+		assertEquals(Collections.emptyList(), secondSync.getAddedResources());
+		assertEquals(Collections.emptyList(), secondSync.getChangedResources());
+		assertEquals(Collections.emptyList(), secondSync.getRemovedResourceIds());
+	}
+
+	@Test
+	public void changedTagKeyIsDetected() {
+
+		String accountId = UUID.randomUUID().toString();
+
+		ResourceDeltaTracker firstSync = new ResourceDeltaTracker("tenant", accountId, "NetworkInterface");
+		firstSync.add(NIC_ID, nicJson("key-1", "NetworkInterfaceImpl@1a2b", "env"));
+		firstSync.commit();
+
+		ResourceDeltaTracker secondSync = new ResourceDeltaTracker("tenant", accountId, "NetworkInterface");
+		secondSync.add(NIC_ID, nicJson("key-1", "NetworkInterfaceImpl@1a2b", "owner"));
+
+		assertEquals(1, secondSync.getChangedResources().size());
+		assertTrue(secondSync.getAddedResources().isEmpty());
+	}
+
+	@Test
+	public void removedResourceKeepsItsId() {
+
+		String accountId = UUID.randomUUID().toString();
+
+		ResourceDeltaTracker firstSync = new ResourceDeltaTracker("tenant", accountId, "NetworkInterface");
+		assertFalse(firstSync.hasBaseline());
+		firstSync.add(NIC_ID, nicJson("key-1", "NetworkInterfaceImpl@1a2b", "env"));
+		firstSync.commit();
+
+		ResourceDeltaTracker secondSync = new ResourceDeltaTracker("tenant", accountId, "NetworkInterface");
+
+		assertEquals(Collections.singletonList(NIC_ID), secondSync.getRemovedResourceIds());
+	}
+
+	private static byte[] nicJson(String key, String update, String tagKey) {
+
+		String json = "{\"id\":\"" + NIC_ID + "\",\"name\":\"nic1\",\"key\":\"" + key + "\",\"update\":\"" + update
+				+ "\",\"IpConfigurations\":[{\"key\":\"" + key + "-ipconfig\",\"name\":\"ipconfig1\"}]"
+				+ ",\"tags\":[{\"key\":\"" + tagKey + "\",\"value\":\"prod\"}]}";
+		return json.getBytes(StandardCharsets.UTF_8);
+	}
+}